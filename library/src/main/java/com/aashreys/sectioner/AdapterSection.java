@@ -0,0 +1,306 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+/**
+ * A {@link Section} which hosts an existing {@link RecyclerView.Adapter}, so that it can be placed
+ * between other {@link Section}s without copying its data. Size, view types, creation and binding
+ * are delegated to the child adapter, whose view types are namespaced by the {@link
+ * SectionManager} so they never clash with those of other {@link Section}s.
+ * <p>
+ * Changes to the child adapter are translated into notifications offset by the position of this
+ * {@link Section}. A call to {@link RecyclerView.Adapter#notifyDataSetChanged()} on the child
+ * adapter is translated into a change of the items present before and after, plus an insertion
+ * or removal of the difference, instead of a refresh of the whole {@link RecyclerView}.
+ * <p>
+ * Recycling, window attachment and {@link RecyclerView} attachment callbacks are forwarded to the
+ * child adapter. Note that {@link RecyclerView.ViewHolder#getAdapterPosition()} of a child
+ * ViewHolder returns its position in the adapter of the {@link SectionManager}, not in the child
+ * adapter; use {@link #getChildAdapterPosition(RecyclerView.ViewHolder)} instead.
+ * <p>
+ * The mutating methods of {@link Section} throw an {@link UnsupportedOperationException}; modify
+ * the child adapter instead. Its items are not accessible as {@link Object}s, so {@link
+ * #contains(Object)} returns false and {@link #firstIndexOf(Object)} and {@link
+ * #lastIndexOf(Object)} return -1.
+ */
+public class AdapterSection<ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Object, ViewHolder> {
+
+    @NonNull private final RecyclerView.Adapter<ViewHolder> adapter;
+
+    @NonNull private final RecyclerView.AdapterDataObserver adapterObserver;
+
+    /**
+     * Item count of the child adapter as of its last notification, which is what the adapter of
+     * the {@link SectionManager} has been told about.
+     */
+    private int itemCount;
+
+    private boolean isObserving;
+
+    public AdapterSection(@NonNull RecyclerView.Adapter<ViewHolder> adapter) {
+        super();
+        this.adapter = adapter;
+        this.adapterObserver = new ChildAdapterObserver();
+        this.itemCount = adapter.getItemCount();
+    }
+
+    /**
+     * Returns the child adapter hosted by this {@link Section}.
+     */
+    @NonNull
+    public RecyclerView.Adapter<ViewHolder> getAdapter() {
+        return adapter;
+    }
+
+    @Override
+    void setManager(@Nullable SectionManager manager) {
+        super.setManager(manager);
+        // Only observe the child adapter while there is a SectionManager to forward changes to
+        if (manager != null && !isObserving) {
+            itemCount = adapter.getItemCount();
+            adapter.registerAdapterDataObserver(adapterObserver);
+            isObserving = true;
+        } else if (manager == null && isObserving) {
+            adapter.unregisterAdapterDataObserver(adapterObserver);
+            isObserving = false;
+        }
+    }
+
+    /**
+     * Returns this {@link AdapterSection}, since its ViewHolders are created by its own adapter.
+     */
+    @NonNull
+    @Override
+    protected Object getViewTypeKey() {
+        return this;
+    }
+
+    @Override
+    protected ViewHolder createViewHolder(ViewGroup parent) {
+        return adapter.onCreateViewHolder(parent, 0);
+    }
+
+    @Override
+    protected ViewHolder createViewHolder(ViewGroup parent, int itemViewType) {
+        return adapter.onCreateViewHolder(parent, itemViewType);
+    }
+
+    @Override
+    protected int getItemViewType(int sectionPosition) {
+        return adapter.getItemViewType(sectionPosition);
+    }
+
+    @Override
+    protected void bindViewHolder(ViewHolder holder, int sectionPosition, int adapterPosition) {
+        adapter.onBindViewHolder(holder, sectionPosition);
+    }
+
+    @Override
+    protected void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition,
+            @NonNull List<Object> payloads
+    ) {
+        adapter.onBindViewHolder(holder, sectionPosition, payloads);
+    }
+
+    /**
+     * Returns the position of {@param holder} in the child adapter, or {@link
+     * RecyclerView#NO_POSITION} if it is not bound to an item of this {@link Section}.
+     */
+    public int getChildAdapterPosition(@NonNull ViewHolder holder) {
+        SectionManager manager = getManager();
+        int adapterPosition = holder.getAdapterPosition();
+        if (manager == null || adapterPosition == RecyclerView.NO_POSITION) {
+            return RecyclerView.NO_POSITION;
+        }
+        int position = adapterPosition - manager.getFirstItemAdapterPositionForSection(this);
+        return position >= 0 && position < itemCount ? position : RecyclerView.NO_POSITION;
+    }
+
+    @Override
+    protected void onViewRecycled(ViewHolder holder) {
+        adapter.onViewRecycled(holder);
+    }
+
+    @Override
+    protected boolean onFailedToRecycleView(ViewHolder holder) {
+        return adapter.onFailedToRecycleView(holder);
+    }
+
+    @Override
+    protected void onViewAttachedToWindow(ViewHolder holder) {
+        adapter.onViewAttachedToWindow(holder);
+    }
+
+    @Override
+    protected void onViewDetachedFromWindow(ViewHolder holder) {
+        adapter.onViewDetachedFromWindow(holder);
+    }
+
+    @Override
+    protected void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        adapter.onAttachedToRecyclerView(recyclerView);
+    }
+
+    @Override
+    protected void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        adapter.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    /**
+     * Returns the item id of the child adapter if it has stable ids, so that its items are matched
+     * by id when diffing, or null otherwise.
+     */
+    @Nullable
+    @Override
+    protected Object getItemForDiff(int sectionPosition) {
+        return adapter.hasStableIds() ? adapter.getItemId(sectionPosition) : null;
+    }
+
+    @Override
+    public int size() {
+        return itemCount;
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void add(@NonNull Object... datas) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void add(int position, @NonNull Object data) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(@NonNull Object data) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(int position) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void replace(@NonNull Object data, boolean notifyAdapter) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void replace(int position, @NonNull Object data, boolean notifyAdapter) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void clearAndAdd(Object... datas) {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    @Override
+    public boolean contains(Object data) {
+        return false;
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Modify the child adapter instead");
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Object data) {
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Object data) {
+        return -1;
+    }
+
+    /**
+     * Translates notifications of the child adapter into notifications of this {@link Section}.
+     */
+    private class ChildAdapterObserver extends RecyclerView.AdapterDataObserver {
+
+        @Override
+        public void onChanged() {
+            int oldSize = itemCount;
+            int newSize = adapter.getItemCount();
+            itemCount = newSize;
+            if (oldSize != newSize) {
+                updatePositionMapping();
+            }
+            if (oldSize > newSize) {
+                _notifyItemRangeChanged(0, newSize);
+                _notifyItemRangeRemoved(newSize, oldSize - newSize);
+            } else if (newSize > oldSize) {
+                _notifyItemRangeChanged(0, oldSize);
+                _notifyItemRangeInserted(oldSize, newSize - oldSize);
+            } else {
+                _notifyItemRangeChanged(0, oldSize);
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int count) {
+            _notifyItemRangeChanged(positionStart, count);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int count, Object payload) {
+            _notifyItemRangeChanged(positionStart, count, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int count) {
+            itemCount += count;
+            updatePositionMapping();
+            _notifyItemRangeInserted(positionStart, count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int count) {
+            itemCount -= count;
+            updatePositionMapping();
+            _notifyItemRangeRemoved(positionStart, count);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int count) {
+            // RecyclerView.Adapter only supports moving single items, so count is always 1
+            _notifyItemMoved(fromPosition, toPosition);
+        }
+    }
+}
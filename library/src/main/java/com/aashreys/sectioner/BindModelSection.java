@@ -0,0 +1,225 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link MultiItemSection} which splits binding into two stages: turning a {@link Data} into a
+ * render ready {@link Model} - formatted strings, spans, measured text - and applying that {@link
+ * Model} to a {@link ViewHolder}. The first stage runs on a background {@link Executor} for the
+ * positions just ahead of the current scroll direction, so that by the time those positions are
+ * bound their {@link Model}s are usually ready.
+ * <p>
+ * {@link Model}s are kept in a bounded least recently used cache keyed by {@link
+ * #getItemKey(Object)}, and are evicted when their {@link Data} is removed from or replaced in this
+ * {@link Section}. Only the {@link Model} of the removed or replaced {@link Data} is evicted, and
+ * only its pending computation is discarded.
+ */
+public abstract class BindModelSection<Data, Model, ViewHolder extends RecyclerView.ViewHolder>
+        extends MultiItemSection<Data, ViewHolder> {
+
+    /**
+     * Default maximum number of cached {@link Model}s.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 200;
+
+    /**
+     * Default number of positions ahead of the last bound position to precompute.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 10;
+
+    @NonNull private final ModelCache modelCache;
+
+    /**
+     * {@link Data}s whose {@link Model}s are being computed, keyed by {@link #getItemKey(Object)}.
+     * A computed {@link Model} is only cached if its {@link Data} is still the pending one for its
+     * key, so removing a key discards the computation in flight.
+     */
+    @NonNull private final Map<Object, Data> pendingDatas;
+
+    @NonNull private Executor executor = SectionExecutors.background();
+
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+
+    private int lastBoundPosition = -1;
+
+    public BindModelSection() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize maximum number of {@link Model}s to keep in memory.
+     */
+    public BindModelSection(int cacheSize) {
+        super();
+        this.modelCache = new ModelCache(cacheSize);
+        this.pendingDatas = new HashMap<>();
+        registerObserver(new InvalidatingObserver());
+    }
+
+    /**
+     * Creates a {@link BindModelSection} holding {@param dataList}.
+     *
+     * @see MultiItemSection#MultiItemSection(List)
+     */
+    public BindModelSection(@NonNull List<Data> dataList, int cacheSize) {
+        super(dataList);
+        this.modelCache = new ModelCache(cacheSize);
+        this.pendingDatas = new HashMap<>();
+        registerObserver(new InvalidatingObserver());
+    }
+
+    /**
+     * Sets the {@link Executor} on which {@link Model}s are created. Defaults to a shared
+     * background {@link Executor}.
+     */
+    public void setBindModelExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the number of positions ahead of the last bound position whose {@link Model}s are
+     * precomputed.
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Creates the render ready {@link Model} for a {@link Data}. Called on a background thread, so
+     * it must not touch any Views.
+     *
+     * @param data {@link Data} to create a {@link Model} for
+     * @return {@link Model} for {@param data}
+     */
+    @NonNull
+    protected abstract Model createBindModel(@NonNull Data data);
+
+    /**
+     * Binds a {@link ViewHolder} to a {@link Data} using its precomputed {@link Model}.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param data            {@link Data} at {@param sectionPosition}
+     * @param model           precomputed {@link Model} for {@param data}, or null if it is not
+     *                        available yet, in which case it can be created via {@link
+     *                        #createBindModel(Object)}.
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            @NonNull Data data,
+            @Nullable Model model,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        Data data = get(sectionPosition);
+        bindViewHolder(
+                holder,
+                data,
+                modelCache.get(getModelKey(data)),
+                sectionPosition,
+                adapterPosition
+        );
+        int direction = sectionPosition >= lastBoundPosition ? 1 : -1;
+        lastBoundPosition = sectionPosition;
+        prefetch(sectionPosition, direction);
+    }
+
+    /**
+     * Evicts all cached {@link Model}s, for example when their appearance depends on something
+     * other than their {@link Data} which has changed.
+     */
+    public void invalidateBindModels() {
+        pendingDatas.clear();
+        modelCache.clear();
+    }
+
+    @NonNull
+    private Object getModelKey(@NonNull Data data) {
+        Object key = getItemKey(data);
+        return key != null ? key : data;
+    }
+
+    /**
+     * Schedules the creation of {@link Model}s for the positions following {@param
+     * sectionPosition} in {@param direction}.
+     */
+    private void prefetch(int sectionPosition, int direction) {
+        int size = size();
+        for (int i = 1; i <= prefetchDistance; i++) {
+            int position = sectionPosition + i * direction;
+            if (position < 0 || position >= size) {
+                break;
+            }
+            final Data data = get(position);
+            final Object key = getModelKey(data);
+            if (modelCache.containsKey(key) || pendingDatas.get(key) == data) {
+                continue;
+            }
+            pendingDatas.put(key, data);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final Model model = createBindModel(data);
+                    SectionExecutors.mainThread().post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (pendingDatas.get(key) == data) {
+                                pendingDatas.remove(key);
+                                modelCache.put(key, model);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts the {@link Model} of a {@link Data} once it is removed from this {@link Section}, and
+     * discards its computation if one is pending.
+     */
+    private class InvalidatingObserver extends SectionObserver<Data> {
+
+        @Override
+        public void onDataRemoved(@NonNull Section<Data, ?> section, @NonNull Data data) {
+            Object key = getModelKey(data);
+            pendingDatas.remove(key);
+            modelCache.remove(key);
+        }
+    }
+
+    /**
+     * Least recently used cache of {@link Model}s. Only accessed from the main thread.
+     */
+    private class ModelCache extends LinkedHashMap<Object, Model> {
+
+        private final int maxSize;
+
+        ModelCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Model> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link Section} whose items are horizontally scrolling rows, each displaying a {@link Row} in a
+ * nested {@link RecyclerView} through an {@link ItemAdapter}.
+ * <p>
+ * The nested {@link RecyclerView}s of all rows share a single {@link
+ * RecyclerView.RecycledViewPool}, so that a row scrolled onto the screen reuses the item views of
+ * rows scrolled off it instead of inflating its own. Pass the same pool to several {@link
+ * CarouselSection}s to share it between them too. The nested {@link LinearLayoutManager}s prefetch
+ * the first items of a row while it is still off screen, see {@link
+ * #setInitialPrefetchItemCount(int)}.
+ * <p>
+ * The horizontal scroll position of every row is saved when its {@link CarouselViewHolder} is
+ * recycled or rebound, and restored when the row is bound again. Positions are kept as a single
+ * long per row, which is reused once allocated, and are discarded when the {@link Row} is removed
+ * and not added back before the next bind.
+ */
+public abstract class CarouselSection<Row, ItemAdapter extends RecyclerView.Adapter<?>>
+        extends MultiItemSection<Row, CarouselSection.CarouselViewHolder<ItemAdapter>> {
+
+    /**
+     * Default number of items of a row which are prefetched before it is scrolled onto the screen.
+     */
+    public static final int DEFAULT_INITIAL_PREFETCH_ITEM_COUNT = 4;
+
+    @NonNull private final RecyclerView.RecycledViewPool recycledViewPool;
+
+    private int initialPrefetchItemCount = DEFAULT_INITIAL_PREFETCH_ITEM_COUNT;
+
+    /**
+     * Saved scroll positions keyed by {@link #getItemKey(Object)}, each holding the adapter
+     * position of the first visible item in the upper and its offset in the lower 32 bits.
+     */
+    @NonNull private final Map<Object, long[]> scrollPositions = new HashMap<>();
+
+    /**
+     * Saved scroll positions of {@link Row}s removed since the last bind, which are moved back to
+     * {@link #scrollPositions} if a {@link Row} with the same key is added, and discarded at the
+     * next bind otherwise.
+     */
+    @NonNull private final Map<Object, long[]> removedScrollPositions = new HashMap<>();
+
+    /**
+     * Creates a {@link CarouselSection} with its own {@link RecyclerView.RecycledViewPool}.
+     */
+    public CarouselSection() {
+        this(new RecyclerView.RecycledViewPool());
+    }
+
+    /**
+     * Creates a {@link CarouselSection} whose rows use {@param recycledViewPool}, which may be
+     * shared with other {@link CarouselSection}s displaying the same kind of items.
+     */
+    public CarouselSection(@NonNull RecyclerView.RecycledViewPool recycledViewPool) {
+        super();
+        this.recycledViewPool = recycledViewPool;
+        registerObserver(new ScrollPositionObserver());
+    }
+
+    /**
+     * Creates the {@link ItemAdapter} of a row. Called once per {@link CarouselViewHolder}, whose
+     * {@link ItemAdapter} is then rebound to different {@link Row}s via {@link
+     * #bindItemAdapter(RecyclerView.Adapter, Object, int)}.
+     */
+    @NonNull
+    protected abstract ItemAdapter createItemAdapter();
+
+    /**
+     * Makes {@param adapter} display the items of {@param row}, typically by setting its data and
+     * calling {@link RecyclerView.Adapter#notifyDataSetChanged()}.
+     *
+     * @param adapter         {@link ItemAdapter} of the row being bound.
+     * @param row             {@link Row} at {@param sectionPosition}
+     * @param sectionPosition the position of the row in this section.
+     */
+    protected abstract void bindItemAdapter(
+            @NonNull ItemAdapter adapter,
+            @NonNull Row row,
+            int sectionPosition
+    );
+
+    /**
+     * Creates the nested {@link RecyclerView} of a row. Override to inflate it from a layout or to
+     * add item decorations; its {@link RecyclerView.LayoutManager}, adapter and {@link
+     * RecyclerView.RecycledViewPool} are set afterwards.
+     */
+    @NonNull
+    protected RecyclerView createRecyclerView(@NonNull ViewGroup parent) {
+        RecyclerView recyclerView = new RecyclerView(parent.getContext());
+        recyclerView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT
+        ));
+        return recyclerView;
+    }
+
+    /**
+     * Sets the number of items of a row which are prefetched and laid out before the row is
+     * scrolled onto the screen. Should be the number of items visible in a row when it first
+     * appears. Defaults to {@link #DEFAULT_INITIAL_PREFETCH_ITEM_COUNT}, and only applies to
+     * rows created afterwards.
+     *
+     * @see LinearLayoutManager#setInitialPrefetchItemCount(int)
+     */
+    public void setInitialPrefetchItemCount(int initialPrefetchItemCount) {
+        this.initialPrefetchItemCount = initialPrefetchItemCount;
+    }
+
+    /**
+     * Returns the {@link RecyclerView.RecycledViewPool} shared by the nested {@link
+     * RecyclerView}s of this {@link CarouselSection}.
+     */
+    @NonNull
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return recycledViewPool;
+    }
+
+    /**
+     * Shares rows only between {@link CarouselSection}s of the same class using the same {@link
+     * RecyclerView.RecycledViewPool}, since rows are created with it.
+     */
+    @NonNull
+    @Override
+    protected Object getViewTypeKey() {
+        return Arrays.asList(getClass(), recycledViewPool);
+    }
+
+    @Override
+    protected CarouselViewHolder<ItemAdapter> createViewHolder(ViewGroup parent) {
+        RecyclerView recyclerView = createRecyclerView(parent);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(
+                parent.getContext(),
+                LinearLayoutManager.HORIZONTAL,
+                false
+        );
+        layoutManager.setInitialPrefetchItemCount(initialPrefetchItemCount);
+        // Return item views to the shared pool as soon as the row is detached
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(recycledViewPool);
+        ItemAdapter adapter = createItemAdapter();
+        recyclerView.setAdapter(adapter);
+        return new CarouselViewHolder<>(recyclerView, layoutManager, adapter);
+    }
+
+    @Override
+    protected final void bindViewHolder(
+            CarouselViewHolder<ItemAdapter> holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        saveScrollPosition(holder);
+        // Changes are bound after the whole batch, so Rows removed without being added back
+        // have been removed for good
+        removedScrollPositions.clear();
+        Row row = get(sectionPosition);
+        bindItemAdapter(holder.adapter, row, sectionPosition);
+        holder.rowKey = getRowKey(row);
+        long[] scrollPosition = scrollPositions.get(holder.rowKey);
+        if (scrollPosition != null) {
+            holder.layoutManager.scrollToPositionWithOffset(
+                    (int) (scrollPosition[0] >> 32),
+                    (int) scrollPosition[0]
+            );
+        } else {
+            holder.layoutManager.scrollToPositionWithOffset(0, 0);
+        }
+    }
+
+    @Override
+    protected void onViewRecycled(CarouselViewHolder<ItemAdapter> holder) {
+        saveScrollPosition(holder);
+        holder.rowKey = null;
+    }
+
+    /**
+     * Saves the scroll position of the row {@param holder} is currently bound to, if any.
+     */
+    private void saveScrollPosition(@NonNull CarouselViewHolder<ItemAdapter> holder) {
+        if (holder.rowKey == null) {
+            return;
+        }
+        LinearLayoutManager layoutManager = holder.layoutManager;
+        int position = layoutManager.findFirstVisibleItemPosition();
+        View child = position != RecyclerView.NO_POSITION
+                ? layoutManager.findViewByPosition(position)
+                : null;
+        if (child == null) {
+            // Nothing laid out yet, keep the position which was restored
+            return;
+        }
+        int offset = layoutManager.getDecoratedLeft(child) - layoutManager.getPaddingLeft();
+        long[] scrollPosition = scrollPositions.get(holder.rowKey);
+        if (scrollPosition == null) {
+            scrollPosition = removedScrollPositions.get(holder.rowKey);
+        }
+        if (scrollPosition == null) {
+            scrollPosition = new long[1];
+            scrollPositions.put(holder.rowKey, scrollPosition);
+        }
+        scrollPosition[0] = ((long) position << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    @NonNull
+    private Object getRowKey(@NonNull Row row) {
+        Object key = getItemKey(row);
+        return key != null ? key : row;
+    }
+
+    /**
+     * Discards the saved scroll position of removed {@link Row}s, unless a {@link Row} with the
+     * same key is added before the next bind. Replacements are reported as a removal followed by
+     * an addition, and {@link #clearAndAdd(Object[])} reports all removals before all additions.
+     */
+    private class ScrollPositionObserver extends SectionObserver<Row> {
+
+        @Override
+        public void onDataRemoved(@NonNull Section<Row, ?> section, @NonNull Row row) {
+            Object key = getRowKey(row);
+            long[] scrollPosition = scrollPositions.remove(key);
+            if (scrollPosition != null) {
+                removedScrollPositions.put(key, scrollPosition);
+            }
+        }
+
+        @Override
+        public void onDataAdded(@NonNull Section<Row, ?> section, @NonNull Row row) {
+            Object key = getRowKey(row);
+            long[] scrollPosition = removedScrollPositions.remove(key);
+            if (scrollPosition != null) {
+                scrollPositions.put(key, scrollPosition);
+            }
+        }
+    }
+
+    /**
+     * {@link RecyclerView.ViewHolder} of a row, holding its nested {@link RecyclerView}.
+     */
+    public static class CarouselViewHolder<ItemAdapter extends RecyclerView.Adapter<?>>
+            extends RecyclerView.ViewHolder {
+
+        @NonNull public final RecyclerView recyclerView;
+
+        @NonNull public final LinearLayoutManager layoutManager;
+
+        @NonNull public final ItemAdapter adapter;
+
+        /**
+         * Key of the {@link Row} this {@link CarouselViewHolder} is bound to, if any.
+         */
+        @Nullable Object rowKey;
+
+        CarouselViewHolder(
+                @NonNull RecyclerView recyclerView,
+                @NonNull LinearLayoutManager layoutManager,
+                @NonNull ItemAdapter adapter
+        ) {
+            super(recyclerView);
+            this.recyclerView = recyclerView;
+            this.layoutManager = layoutManager;
+            this.adapter = adapter;
+        }
+    }
+}
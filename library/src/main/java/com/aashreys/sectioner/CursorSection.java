@@ -0,0 +1,571 @@
+package com.aashreys.sectioner;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link Section} backed directly by a {@link Cursor}, such as the result of a SQLite query.
+ * Rows are not copied into a list: the size of this {@link Section} is the count of the {@link
+ * Cursor}, and a row is only read into a {@link Data} via {@link #readRow(Cursor)} when it is
+ * bound. Recently read {@link Data}s are kept in a bounded least recently used cache keyed by row
+ * id.
+ * <p>
+ * A new {@link Cursor} is installed via {@link #changeCursor(Cursor)}. Its count and row ids are
+ * read on the diff {@link Executor}, which also fills the {@link Cursor} window off the main
+ * thread, and the differences to the previous {@link Cursor} are then dispatched as range
+ * notifications on the main thread. Rows are matched by {@link #getRowId(Cursor)} and considered
+ * changed when {@link #getRowHash(Cursor)} differs. A {@link Cursor} replacing an empty one is
+ * installed as soon as its count is known, and its row ids are read on the diff {@link Executor}
+ * after it is displayed, so that the {@link Cursor} after it can be diffed against them. Only a
+ * {@link Cursor} installed before its row ids have been read is displayed as a full change.
+ * <p>
+ * Since rows are not materialized, {@link SectionObserver}s are not notified of changes, and the
+ * mutating methods of {@link Section} throw an {@link UnsupportedOperationException}; change the
+ * underlying data and install a new {@link Cursor} instead.
+ */
+public abstract class CursorSection<Data, ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Data, ViewHolder> {
+
+    /**
+     * Default maximum number of cached {@link Data}s.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 100;
+
+    /**
+     * Number of rows read at once while holding {@link #cursorLock}, so that binding on the main
+     * thread is not blocked for long by rows being read in the background.
+     */
+    private static final int ROW_CHUNK_SIZE = 256;
+
+    @NonNull private final RowCache rowCache;
+
+    /**
+     * Guards the position of a displayed {@link Cursor}, which is moved both on the main thread
+     * and, while its row ids are being read, on the diff {@link Executor}.
+     */
+    @NonNull private final Object cursorLock = new Object();
+
+    @NonNull private Executor diffExecutor = SectionExecutors.background();
+
+    @Nullable private Cursor cursor;
+
+    /**
+     * Count of {@link #cursor}.
+     */
+    private int count;
+
+    /**
+     * Row ids and hashes of {@link #cursor}, read on the diff {@link Executor}, or null if they
+     * have not been read.
+     */
+    @Nullable private long[] rowIds;
+
+    @Nullable private int[] rowHashes;
+
+    /**
+     * Incremented on every call to {@link #changeCursor(Cursor)}, so that only the latest
+     * {@link Cursor} is installed.
+     */
+    private volatile int cursorGeneration;
+
+    public CursorSection() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize maximum number of {@link Data}s to keep in memory.
+     */
+    public CursorSection(int cacheSize) {
+        super();
+        this.rowCache = new RowCache(cacheSize);
+    }
+
+    /**
+     * Reads the row the {@param cursor} is positioned at into a {@link Data}. Called on the main
+     * thread.
+     */
+    @NonNull
+    protected abstract Data readRow(@NonNull Cursor cursor);
+
+    /**
+     * Binds a {@link ViewHolder} to the {@link Data} read from a row.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param data            {@link Data} read from the row at {@param sectionPosition}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            @NonNull Data data,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    /**
+     * Returns a stable id for the row the {@param cursor} is positioned at. Called on the diff
+     * {@link Executor}, and on the main thread for {@link Cursor}s whose row ids have not been
+     * read. Reads the "_id" column by default, or returns the position if there is none.
+     */
+    protected long getRowId(@NonNull Cursor cursor) {
+        int idColumn = cursor.getColumnIndex("_id");
+        return idColumn >= 0 ? cursor.getLong(idColumn) : cursor.getPosition();
+    }
+
+    /**
+     * Returns a hash of the displayed contents of the row the {@param cursor} is positioned at,
+     * used to tell whether a row with the same {@link #getRowId(Cursor)} has changed, for example
+     * by reading a version or last modified column. Called on the diff {@link Executor}. Return a
+     * constant only if rows never change while keeping their id.
+     */
+    protected abstract int getRowHash(@NonNull Cursor cursor);
+
+    /**
+     * Sets the {@link Executor} on which new {@link Cursor}s are read and diffed. Defaults to a
+     * shared background {@link Executor}. A synchronous {@link Executor} can be used in tests.
+     */
+    public void setDiffExecutor(@NonNull Executor diffExecutor) {
+        this.diffExecutor = diffExecutor;
+    }
+
+    /**
+     * Returns the {@link Cursor} currently displayed, or null.
+     */
+    @Nullable
+    public Cursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Installs {@param newCursor} once its differences to the current {@link Cursor} have been
+     * computed on the diff {@link Executor}, and closes the current {@link Cursor}. If this method
+     * is called again in the meantime, {@param newCursor} is closed without being installed. Must
+     * be called from the main thread.
+     *
+     * @param newCursor {@link Cursor} to display, or null to display nothing.
+     */
+    public void changeCursor(@Nullable final Cursor newCursor) {
+        final int generation = ++cursorGeneration;
+        final int oldCount = count;
+        final long[] oldIds = rowIds;
+        final int[] oldHashes = rowHashes;
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int newCount = newCursor != null ? newCursor.getCount() : 0;
+                long[] newIds = null;
+                int[] newHashes = null;
+                DiffUtil.DiffResult result = null;
+                if (oldCount > 0 && newCount > 0) {
+                    // Rows are only read if there is something to diff them against
+                    newIds = new long[newCount];
+                    newHashes = new int[newCount];
+                    for (int i = 0; i < newCount; i++) {
+                        if ((i & 0xFF) == 0 && generation != cursorGeneration) {
+                            // A newer Cursor has been requested
+                            break;
+                        }
+                        newCursor.moveToPosition(i);
+                        newIds[i] = getRowId(newCursor);
+                        newHashes[i] = getRowHash(newCursor);
+                    }
+                    if (oldIds != null && generation == cursorGeneration) {
+                        result = DiffUtil.calculateDiff(new RowDiffCallback(
+                                oldIds, oldHashes,
+                                newIds, newHashes
+                        ), false);
+                    }
+                }
+                final long[] finalNewIds = newIds;
+                final int[] finalNewHashes = newHashes;
+                final DiffUtil.DiffResult finalResult = result;
+                SectionExecutors.mainThread().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != cursorGeneration) {
+                            closeCursor(newCursor);
+                            return;
+                        }
+                        swapCursor(newCursor, newCount, finalNewIds, finalNewHashes, finalResult);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        bindViewHolder(holder, get(sectionPosition), sectionPosition, adapterPosition);
+    }
+
+    /**
+     * Returns the {@link Data} at {@param position}, reading it from the {@link Cursor} unless it
+     * is cached. Must be called from the main thread.
+     */
+    @NonNull
+    public Data get(int position) {
+        if (cursor == null || position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size is " + size());
+        }
+        if (rowIds != null) {
+            Data data = rowCache.get(rowIds[position]);
+            if (data != null) {
+                return data;
+            }
+        }
+        synchronized (cursorLock) {
+            cursor.moveToPosition(position);
+            long rowId = rowIds != null ? rowIds[position] : getRowId(cursor);
+            Data data = rowCache.get(rowId);
+            if (data == null) {
+                data = readRow(cursor);
+                rowCache.put(rowId, data);
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void add(@NonNull Data... datas) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void add(int position, @NonNull Data data) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(@NonNull Data data) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(int position) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void replace(@NonNull Data data, boolean notifyAdapter) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void replace(int position, @NonNull Data data, boolean notifyAdapter) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void clearAndAdd(Data... datas) {
+        throw new UnsupportedOperationException("Install a new Cursor instead");
+    }
+
+    @Override
+    public boolean contains(Data data) {
+        return data != null && firstIndexOf(data) >= 0;
+    }
+
+    /**
+     * Closes the current {@link Cursor} immediately and displays nothing. Any pending {@link
+     * Cursor} is closed without being installed.
+     */
+    @Override
+    public void clear() {
+        cursorGeneration++;
+        int oldSize = size();
+        Cursor oldCursor = cursor;
+        cursor = null;
+        count = 0;
+        rowIds = null;
+        rowHashes = null;
+        rowCache.clear();
+        updatePositionMapping();
+        _notifyItemRangeRemoved(0, oldSize);
+        closeCursor(oldCursor);
+    }
+
+    /**
+     * Reads every row until {@param data} is found, so it is meant for occasional use only.
+     */
+    @Override
+    public int firstIndexOf(@NonNull Data data) {
+        for (int i = 0; i < size(); i++) {
+            if (data.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads every row until {@param data} is found, so it is meant for occasional use only.
+     */
+    @Override
+    public int lastIndexOf(@NonNull Data data) {
+        for (int i = size() - 1; i >= 0; i--) {
+            if (data.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    @Override
+    protected Data getItemForDiff(int sectionPosition) {
+        return get(sectionPosition);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Installs {@param newCursor}, dispatching {@param result} if the rows of both {@link
+     * Cursor}s were diffed, or a change of all rows otherwise.
+     */
+    private void swapCursor(
+            @Nullable Cursor newCursor,
+            int newCount,
+            @Nullable long[] newIds,
+            @Nullable int[] newHashes,
+            @Nullable DiffUtil.DiffResult result
+    ) {
+        Cursor oldCursor = cursor;
+        int oldCount = count;
+        long[] oldIds = rowIds;
+        int[] oldHashes = rowHashes;
+        cursor = newCursor;
+        count = newCount;
+        rowIds = newIds;
+        rowHashes = newHashes;
+        if (result == null) {
+            rowCache.clear();
+            updatePositionMapping();
+            int changedCount = Math.min(oldCount, newCount);
+            if (changedCount > 0) {
+                _notifyItemRangeChanged(0, changedCount);
+            }
+            if (oldCount > newCount) {
+                _notifyItemRangeRemoved(newCount, oldCount - newCount);
+            } else if (newCount > oldCount) {
+                _notifyItemRangeInserted(oldCount, newCount - oldCount);
+            }
+        } else {
+            evictChangedRows(oldIds, oldHashes, newIds, newHashes);
+            updatePositionMapping();
+            dispatchRowUpdates(result);
+        }
+        if (oldCursor != newCursor) {
+            closeCursor(oldCursor);
+        }
+        if (newCursor != null && newIds == null && newCount > 0) {
+            readRowIds(newCursor, newCount);
+        }
+    }
+
+    /**
+     * Reads the row ids and hashes of the displayed {@param installedCursor} on the diff {@link
+     * Executor}, so that the next {@link Cursor} can be diffed against them. Gives up once
+     * another {@link Cursor} is requested.
+     */
+    private void readRowIds(@NonNull final Cursor installedCursor, final int installedCount) {
+        final int generation = cursorGeneration;
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long[] ids = new long[installedCount];
+                final int[] hashes = new int[installedCount];
+                for (int start = 0; start < installedCount; start += ROW_CHUNK_SIZE) {
+                    if (generation != cursorGeneration) {
+                        return;
+                    }
+                    int end = Math.min(start + ROW_CHUNK_SIZE, installedCount);
+                    synchronized (cursorLock) {
+                        if (installedCursor.isClosed()) {
+                            return;
+                        }
+                        for (int i = start; i < end; i++) {
+                            installedCursor.moveToPosition(i);
+                            ids[i] = getRowId(installedCursor);
+                            hashes[i] = getRowHash(installedCursor);
+                        }
+                    }
+                }
+                SectionExecutors.mainThread().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == cursorGeneration
+                                && cursor == installedCursor
+                                && rowIds == null) {
+                            rowIds = ids;
+                            rowHashes = hashes;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void dispatchRowUpdates(@NonNull DiffUtil.DiffResult result) {
+        result.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                _notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                _notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                // Moves are not detected
+                _notifyItemRemoved(fromPosition);
+                _notifyItemAdded(toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                _notifyItemRangeChanged(position, count);
+            }
+        });
+    }
+
+    /**
+     * Evicts cached {@link Data}s of rows which have been removed or whose hash has changed.
+     */
+    private void evictChangedRows(
+            @NonNull long[] oldIds,
+            @NonNull int[] oldHashes,
+            @NonNull long[] newIds,
+            @NonNull int[] newHashes
+    ) {
+        if (rowCache.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> newHashesById = new HashMap<>();
+        for (int i = 0; i < newIds.length; i++) {
+            if (rowCache.containsKey(newIds[i])) {
+                newHashesById.put(newIds[i], newHashes[i]);
+            }
+        }
+        for (int i = 0; i < oldIds.length; i++) {
+            Integer newHash = newHashesById.get(oldIds[i]);
+            if (newHash == null || newHash != oldHashes[i]) {
+                rowCache.remove(oldIds[i]);
+            }
+        }
+    }
+
+    private void closeCursor(@Nullable Cursor cursor) {
+        if (cursor != null) {
+            synchronized (cursorLock) {
+                if (!cursor.isClosed()) {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Diffs the row ids and hashes of two {@link Cursor}s.
+     */
+    private static class RowDiffCallback extends DiffUtil.Callback {
+
+        @NonNull private final long[] oldIds;
+
+        @NonNull private final int[] oldHashes;
+
+        @NonNull private final long[] newIds;
+
+        @NonNull private final int[] newHashes;
+
+        RowDiffCallback(
+                @NonNull long[] oldIds,
+                @NonNull int[] oldHashes,
+                @NonNull long[] newIds,
+                @NonNull int[] newHashes
+        ) {
+            this.oldIds = oldIds;
+            this.oldHashes = oldHashes;
+            this.newIds = newIds;
+            this.newHashes = newHashes;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldIds.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newIds.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldIds[oldPosition] == newIds[newPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return oldHashes[oldPosition] == newHashes[newPosition];
+        }
+    }
+
+    /**
+     * Least recently used cache of {@link Data}s by row id. Only accessed from the main thread.
+     */
+    private class RowCache extends LinkedHashMap<Long, Data> {
+
+        private final int maxSize;
+
+        RowCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Data> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
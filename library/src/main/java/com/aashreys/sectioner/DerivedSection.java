@@ -0,0 +1,674 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A read-only {@link Section} which displays a live view of the {@link Source}s of another {@link
+ * MultiItemSection}, without copying them. A view is any combination of:
+ * <ul>
+ * <li>a filter, which only keeps the {@link Source}s matched by an {@link ItemFilter},</li>
+ * <li>a window, which only keeps up to {@code limit} of the remaining {@link Source}s starting at
+ * {@code start}, such as a sublist or the first few items of a list,</li>
+ * <li>a {@link Mapper}, which converts every {@link Source} into the {@link Data} displayed.</li>
+ * </ul>
+ * Several {@link DerivedSection}s can project the same {@link MultiItemSection}, for example a
+ * "top 5" preview above the full list, while its {@link Source}s are stored only once.
+ * <p>
+ * Every change to the source {@link MultiItemSection} is translated into the smallest set of
+ * insertions, removals, moves and changes of this {@link Section}, so that the adapter animates
+ * exactly the affected items. Only the positions displayed by this {@link Section}, and the
+ * positions of the source matched by its filter, are held in memory. {@link Data}s are mapped
+ * every time they are accessed, so {@link Mapper}s should be cheap.
+ * <p>
+ * Changes which the source does not notify the adapter of, such as a {@link
+ * MultiItemSection#replace(int, Object, boolean)} without notification or a replacement coalesced
+ * in ticker mode, are reflected the next time an item is bound but do not re-evaluate the filter.
+ * All methods which modify {@link Data}s throw an {@link UnsupportedOperationException}; modify
+ * the source instead.
+ * <p>
+ * The source is only observed while this {@link Section} is part of a {@link SectionManager}, so
+ * that a removed {@link DerivedSection} can be garbage collected independently of its source. It
+ * is re-read when added to a {@link SectionManager} again.
+ */
+public abstract class DerivedSection<Source, Data, ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Data, ViewHolder> {
+
+    /**
+     * Converts a {@link Source} of the source {@link MultiItemSection} into the {@link Data}
+     * displayed by a {@link DerivedSection}.
+     */
+    public interface Mapper<Source, Data> {
+
+        @NonNull
+        Data map(@NonNull Source source);
+    }
+
+    private static final Mapper<Object, Object> IDENTITY = new Mapper<Object, Object>() {
+        @NonNull
+        @Override
+        public Object map(@NonNull Object source) {
+            return source;
+        }
+    };
+
+    private final Object writeLock = new Object();
+
+    @NonNull private final MultiItemSection<Source, ?> source;
+
+    private final int start;
+
+    private final int limit;
+
+    @Nullable private final ItemFilter<Source> filter;
+
+    @NonNull private final Mapper<Source, Data> mapper;
+
+    @NonNull private final SourceObserver sourceObserver = new SourceObserver();
+
+    private boolean isObserving;
+
+    /**
+     * Ascending positions in the source of the {@link Source}s matched by {@link #filter}, or null
+     * if there is no filter. Only the first {@link #filteredSize} entries are valid.
+     */
+    @Nullable private int[] filteredPositions;
+
+    private int filteredSize;
+
+    /**
+     * Size of the list the window is applied to, i.e. the number of filtered {@link Source}s, or
+     * the size of the source if there is no filter, as of the last notification.
+     */
+    private int listSize;
+
+    /**
+     * Number of items displayed, as of the last notification. Kept separately from the source so
+     * that the position mappings of the {@link SectionManager} only change when the adapter is
+     * notified of this {@link Section}'s own changes.
+     */
+    private int size;
+
+    /**
+     * Creates a {@link DerivedSection} displaying every {@link Source} of {@param source}
+     * converted by {@param mapper}.
+     */
+    public DerivedSection(
+            @NonNull MultiItemSection<Source, ?> source,
+            @NonNull Mapper<Source, Data> mapper
+    ) {
+        this(source, null, 0, Integer.MAX_VALUE, mapper);
+    }
+
+    /**
+     * Creates a {@link DerivedSection} displaying up to {@param limit} {@link Source}s of {@param
+     * source}, starting at position {@param start} of it.
+     */
+    public DerivedSection(
+            @NonNull MultiItemSection<Source, ?> source,
+            int start,
+            int limit,
+            @NonNull Mapper<Source, Data> mapper
+    ) {
+        this(source, null, start, limit, mapper);
+    }
+
+    /**
+     * Creates a {@link DerivedSection} displaying the {@link Source}s of {@param source} matched
+     * by {@param filter}.
+     */
+    public DerivedSection(
+            @NonNull MultiItemSection<Source, ?> source,
+            @NonNull ItemFilter<Source> filter,
+            @NonNull Mapper<Source, Data> mapper
+    ) {
+        this(source, filter, 0, Integer.MAX_VALUE, mapper);
+    }
+
+    /**
+     * Creates a {@link DerivedSection} which filters the {@link Source}s of {@param source}, then
+     * displays up to {@param limit} of the filtered {@link Source}s starting at position {@param
+     * start} of them.
+     *
+     * @param filter {@link ItemFilter} to apply, or null to keep every {@link Source}. Unlike
+     *               {@link MultiItemSection#filter(ItemFilter)}, it is evaluated on the thread
+     *               which modifies the source, so it must be cheap.
+     * @param start  first position of the filtered {@link Source}s to display
+     * @param limit  maximum number of items to display
+     * @param mapper {@link Mapper} converting {@link Source}s into displayed {@link Data}s, see
+     *               {@link #identity()}
+     */
+    public DerivedSection(
+            @NonNull MultiItemSection<Source, ?> source,
+            @Nullable ItemFilter<Source> filter,
+            int start,
+            int limit,
+            @NonNull Mapper<Source, Data> mapper
+    ) {
+        super();
+        if (start < 0 || limit < 0) {
+            throw new IllegalArgumentException("start and limit must not be negative");
+        }
+        this.source = source;
+        this.filter = filter;
+        this.start = start;
+        this.limit = limit;
+        this.mapper = mapper;
+        readSource();
+    }
+
+    /**
+     * Returns a {@link Mapper} which displays every {@link Source} as is, for {@link
+     * DerivedSection}s whose {@link Data} is the same as their {@link Source}.
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T> Mapper<T, T> identity() {
+        return (Mapper<T, T>) IDENTITY;
+    }
+
+    /**
+     * Binds the {@link android.view.View} associated with this {@link Section} to a {@link
+     * Data}.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param data            the {@link Data} displayed at {@param sectionPosition}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            @NonNull Data data,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        bindViewHolder(holder, get(sectionPosition), sectionPosition, adapterPosition);
+    }
+
+    @Override
+    void setManager(@Nullable SectionManager manager) {
+        super.setManager(manager);
+        // Only observe the source while there is a SectionManager to forward changes to
+        if (manager != null && !isObserving) {
+            readSource();
+            source.registerObserver(sourceObserver);
+            isObserving = true;
+        } else if (manager == null && isObserving) {
+            source.unregisterObserver(sourceObserver);
+            isObserving = false;
+        }
+    }
+
+    /**
+     * Reads the filtered positions and the size of this {@link Section} from the source, which
+     * may have changed while it was not observed.
+     */
+    private void readSource() {
+        synchronized (writeLock) {
+            if (filter != null) {
+                filteredPositions = new int[Math.max(16, source.size())];
+                filteredSize = 0;
+                for (int i = 0; i < source.size(); i++) {
+                    if (filter.matches(source.get(i))) {
+                        filteredPositions[filteredSize++] = i;
+                    }
+                }
+                listSize = filteredSize;
+            } else {
+                listSize = source.size();
+            }
+            size = getWindowSize(listSize);
+        }
+    }
+
+    /**
+     * Returns the {@link MultiItemSection} this {@link Section} is a view of.
+     */
+    @NonNull
+    public MultiItemSection<Source, ?> getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the {@link Data} displayed at a position in this {@link Section}.
+     *
+     * @param position position of the {@link Data}
+     * @throws IndexOutOfBoundsException if {@param position} is not found or invalid.
+     */
+    @NonNull
+    public Data get(int position) {
+        return mapper.map(source.get(getSourcePosition(position)));
+    }
+
+    /**
+     * Returns the position in the source of the {@link Source} displayed at {@param position}.
+     *
+     * @throws IndexOutOfBoundsException if {@param position} is invalid.
+     */
+    public int getSourcePosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+        int listPosition = start + position;
+        return filteredPositions != null ? filteredPositions[listPosition] : listPosition;
+    }
+
+    @Nullable
+    @Override
+    protected Data getItemForDiff(int sectionPosition) {
+        return get(sectionPosition);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Data data) {
+        return data != null && firstIndexOf(data) >= 0;
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Data data) {
+        for (int i = 0; i < size; i++) {
+            if (data.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Data data) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (data.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void add(@NonNull Data... datas) {
+        throw readOnly();
+    }
+
+    @Override
+    public void add(int position, @NonNull Data data) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(@NonNull Data data) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int position) {
+        throw readOnly();
+    }
+
+    @Override
+    public void replace(@NonNull Data data, boolean notifyAdapter) {
+        throw readOnly();
+    }
+
+    @Override
+    public void replace(int position, @NonNull Data data, boolean notifyAdapter) {
+        throw readOnly();
+    }
+
+    @Override
+    public void clearAndAdd(Data... datas) {
+        throw readOnly();
+    }
+
+    @Override
+    public void clear() {
+        throw readOnly();
+    }
+
+    @NonNull
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException(
+                "DerivedSection is read-only, modify its source section instead"
+        );
+    }
+
+    private int getWindowSize(int listSize) {
+        return Math.max(0, Math.min(listSize - start, limit));
+    }
+
+    // Filter, translating positions of the source into positions of the filtered list
+
+    /**
+     * Returns the index of the first filtered position which is not less than {@param
+     * sourcePosition}.
+     */
+    private int lowerBound(int sourcePosition) {
+        int low = 0, high = filteredSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (filteredPositions[mid] < sourcePosition) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void shiftFilteredPositions(int fromIndex, int delta) {
+        for (int i = fromIndex; i < filteredSize; i++) {
+            filteredPositions[i] += delta;
+        }
+    }
+
+    private void onSourceRangeInserted(int positionStart, int itemCount) {
+        if (filter == null) {
+            onListRangeInserted(positionStart, itemCount);
+            return;
+        }
+        int index = lowerBound(positionStart);
+        shiftFilteredPositions(index, itemCount);
+        int[] matched = null;
+        int matchedCount = 0;
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            if (filter.matches(source.get(i))) {
+                if (matched == null) {
+                    matched = new int[itemCount];
+                }
+                matched[matchedCount++] = i;
+            }
+        }
+        if (matchedCount > 0) {
+            ensureFilteredCapacity(filteredSize + matchedCount);
+            System.arraycopy(
+                    filteredPositions,
+                    index,
+                    filteredPositions,
+                    index + matchedCount,
+                    filteredSize - index
+            );
+            System.arraycopy(matched, 0, filteredPositions, index, matchedCount);
+            filteredSize += matchedCount;
+            onListRangeInserted(index, matchedCount);
+        }
+    }
+
+    private void onSourceRangeRemoved(int positionStart, int itemCount) {
+        if (filter == null) {
+            onListRangeRemoved(positionStart, itemCount);
+            return;
+        }
+        int fromIndex = lowerBound(positionStart);
+        int toIndex = lowerBound(positionStart + itemCount);
+        System.arraycopy(
+                filteredPositions,
+                toIndex,
+                filteredPositions,
+                fromIndex,
+                filteredSize - toIndex
+        );
+        filteredSize -= toIndex - fromIndex;
+        shiftFilteredPositions(fromIndex, -itemCount);
+        if (toIndex > fromIndex) {
+            onListRangeRemoved(fromIndex, toIndex - fromIndex);
+        }
+    }
+
+    private void onSourceRangeChanged(int positionStart, int itemCount) {
+        if (filter == null) {
+            onListRangeChanged(positionStart, itemCount);
+            return;
+        }
+        int changedStart = 0, changedCount = 0;
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            int index = lowerBound(i);
+            boolean wasMatched = index < filteredSize && filteredPositions[index] == i;
+            boolean isMatched = filter.matches(source.get(i));
+            if (wasMatched && isMatched) {
+                if (changedCount > 0 && changedStart + changedCount == index) {
+                    changedCount++;
+                } else {
+                    if (changedCount > 0) {
+                        onListRangeChanged(changedStart, changedCount);
+                    }
+                    changedStart = index;
+                    changedCount = 1;
+                }
+            } else if (wasMatched != isMatched) {
+                if (changedCount > 0) {
+                    onListRangeChanged(changedStart, changedCount);
+                    changedCount = 0;
+                }
+                if (wasMatched) {
+                    System.arraycopy(
+                            filteredPositions,
+                            index + 1,
+                            filteredPositions,
+                            index,
+                            filteredSize - index - 1
+                    );
+                    filteredSize--;
+                    onListRangeRemoved(index, 1);
+                } else {
+                    ensureFilteredCapacity(filteredSize + 1);
+                    System.arraycopy(
+                            filteredPositions,
+                            index,
+                            filteredPositions,
+                            index + 1,
+                            filteredSize - index
+                    );
+                    filteredPositions[index] = i;
+                    filteredSize++;
+                    onListRangeInserted(index, 1);
+                }
+            }
+        }
+        if (changedCount > 0) {
+            onListRangeChanged(changedStart, changedCount);
+        }
+    }
+
+    private void onSourceItemMoved(int fromPosition, int toPosition) {
+        if (filter == null) {
+            onListItemMoved(fromPosition, toPosition);
+            return;
+        }
+        int fromIndex = lowerBound(fromPosition);
+        boolean isMatched = fromIndex < filteredSize
+                && filteredPositions[fromIndex] == fromPosition;
+        if (isMatched) {
+            System.arraycopy(
+                    filteredPositions,
+                    fromIndex + 1,
+                    filteredPositions,
+                    fromIndex,
+                    filteredSize - fromIndex - 1
+            );
+            filteredSize--;
+        }
+        shiftFilteredPositions(fromIndex, -1);
+        int toIndex = lowerBound(toPosition);
+        shiftFilteredPositions(toIndex, 1);
+        if (isMatched) {
+            System.arraycopy(
+                    filteredPositions,
+                    toIndex,
+                    filteredPositions,
+                    toIndex + 1,
+                    filteredSize - toIndex
+            );
+            filteredPositions[toIndex] = toPosition;
+            filteredSize++;
+            if (fromIndex != toIndex) {
+                onListItemMoved(fromIndex, toIndex);
+            }
+        }
+    }
+
+    private void ensureFilteredCapacity(int capacity) {
+        if (filteredPositions.length < capacity) {
+            int[] newPositions = new int[Math.max(capacity, filteredPositions.length * 2)];
+            System.arraycopy(filteredPositions, 0, newPositions, 0, filteredSize);
+            filteredPositions = newPositions;
+        }
+    }
+
+    // Window, translating positions of the filtered list into positions of this section
+
+    private void onListRangeInserted(int listStart, int itemCount) {
+        int oldSize = size;
+        int newSize = getWindowSize(listSize + itemCount);
+        int offset = listStart - start;
+        // Displayed items before the insertion keep their position, those after it move down
+        int keptBefore = Math.min(Math.max(0, Math.min(oldSize, offset)), newSize);
+        int shiftedStart = Math.max(0, offset);
+        int keptAfter = Math.min(oldSize - shiftedStart, newSize - shiftedStart - itemCount);
+        listSize += itemCount;
+        dispatchWindowUpdate(
+                oldSize,
+                newSize,
+                keptBefore,
+                shiftedStart,
+                shiftedStart + itemCount,
+                Math.max(0, keptAfter)
+        );
+    }
+
+    private void onListRangeRemoved(int listStart, int itemCount) {
+        int oldSize = size;
+        int newSize = getWindowSize(listSize - itemCount);
+        int offset = listStart - start;
+        // Displayed items before the removal keep their position, those after it move up
+        int keptBefore = Math.min(Math.max(0, Math.min(oldSize, offset)), newSize);
+        int shiftedStart = itemCount + Math.max(0, offset);
+        int keptAfter = Math.min(oldSize - shiftedStart, newSize - shiftedStart + itemCount);
+        listSize -= itemCount;
+        dispatchWindowUpdate(
+                oldSize,
+                newSize,
+                keptBefore,
+                shiftedStart,
+                shiftedStart - itemCount,
+                Math.max(0, keptAfter)
+        );
+    }
+
+    private void onListRangeChanged(int listStart, int itemCount) {
+        int changedStart = Math.max(0, listStart - start);
+        int changedEnd = Math.min(size, listStart + itemCount - start);
+        if (changedEnd > changedStart) {
+            _notifyItemRangeChanged(changedStart, changedEnd - changedStart);
+        }
+    }
+
+    private void onListItemMoved(int fromListPosition, int toListPosition) {
+        int fromPosition = fromListPosition - start;
+        int toPosition = toListPosition - start;
+        if (fromPosition >= 0 && fromPosition < size && toPosition >= 0 && toPosition < size) {
+            _notifyItemMoved(fromPosition, toPosition);
+        } else {
+            // Moved into or out of the window, which shifts the items in between
+            onListRangeRemoved(fromListPosition, 1);
+            onListRangeInserted(toListPosition, 1);
+        }
+    }
+
+    /**
+     * Notifies the adapter of the difference between the old and the new window, given the two
+     * blocks of displayed items which are kept, in order, as their old position, new position and
+     * length. Every other old item has been removed, and every other new item inserted.
+     */
+    private void dispatchWindowUpdate(
+            int oldSize,
+            int newSize,
+            int keptBeforeCount,
+            int keptAfterOldStart,
+            int keptAfterNewStart,
+            int keptAfterCount
+    ) {
+        if (oldSize != newSize) {
+            synchronized (writeLock) {
+                size = newSize;
+                updatePositionMapping();
+            }
+        }
+        // Everything before the first block is kept, so start at its end
+        int position = keptBeforeCount;
+        int oldPosition = keptBeforeCount;
+        int newPosition = keptBeforeCount;
+        if (keptAfterCount > 0) {
+            if (keptAfterOldStart > oldPosition) {
+                _notifyItemRangeRemoved(position, keptAfterOldStart - oldPosition);
+            }
+            if (keptAfterNewStart > newPosition) {
+                _notifyItemRangeInserted(position, keptAfterNewStart - newPosition);
+                position += keptAfterNewStart - newPosition;
+            }
+            position += keptAfterCount;
+            oldPosition = keptAfterOldStart + keptAfterCount;
+            newPosition = keptAfterNewStart + keptAfterCount;
+        }
+        if (oldSize > oldPosition) {
+            _notifyItemRangeRemoved(position, oldSize - oldPosition);
+        }
+        if (newSize > newPosition) {
+            _notifyItemRangeInserted(position, newSize - newPosition);
+        }
+    }
+
+    /**
+     * Translates position changes of the source into changes of this {@link Section}.
+     */
+    private class SourceObserver extends SectionObserver<Source> {
+
+        @Override
+        public void onItemRangeInserted(
+                @NonNull Section<Source, ?> section,
+                int positionStart,
+                int itemCount
+        ) {
+            onSourceRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(
+                @NonNull Section<Source, ?> section,
+                int positionStart,
+                int itemCount
+        ) {
+            onSourceRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(
+                @NonNull Section<Source, ?> section,
+                int positionStart,
+                int itemCount
+        ) {
+            onSourceRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemMoved(
+                @NonNull Section<Source, ?> section,
+                int fromPosition,
+                int toPosition
+        ) {
+            onSourceItemMoved(fromPosition, toPosition);
+        }
+    }
+}
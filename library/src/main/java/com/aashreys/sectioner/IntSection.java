@@ -0,0 +1,352 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Section} of int values, such as ids which are resolved at bind time. Values are stored
+ * in a growable int array rather than a list of boxed {@link Integer}s, which takes a fraction of
+ * the memory and creates no garbage for large {@link Section}s.
+ * <p>
+ * The primitive methods - {@link #addInts(int...)}, {@link #addInt(int, int)}, {@link
+ * #replaceInt(int, int, boolean)} etc. - behave and notify the adapter exactly like their {@link
+ * Section} counterparts, which are also supported but box their arguments. {@link
+ * SectionObserver}s receive boxed values, and only if any are registered.
+ */
+public abstract class IntSection<ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Integer, ViewHolder> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final Object writeLock = new Object();
+
+    @NonNull private int[] values;
+
+    private int size;
+
+    /**
+     * Creates an empty {@link IntSection}.
+     */
+    public IntSection() {
+        super();
+        this.values = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Creates a new {@link IntSection} holding a copy of {@param values}. This does not trigger an
+     * animated addition in the {@link RecyclerView}.
+     */
+    public IntSection(@NonNull int[] values) {
+        super();
+        this.values = Arrays.copyOf(values, Math.max(values.length, DEFAULT_CAPACITY));
+        this.size = values.length;
+    }
+
+    /**
+     * Binds a {@link ViewHolder} to the value at a position.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param value           value at {@param sectionPosition}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            int value,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        bindViewHolder(holder, getInt(sectionPosition), sectionPosition, adapterPosition);
+    }
+
+    /**
+     * Returns the value at {@param position}.
+     *
+     * @throws IndexOutOfBoundsException if {@param position} is out of bounds.
+     */
+    public int getInt(int position) {
+        checkPosition(position, size);
+        return values[position];
+    }
+
+    /**
+     * Appends {@param newValues} to this {@link Section} and notifies the adapter.
+     */
+    public void addInts(@NonNull int... newValues) {
+        int oldSize;
+        synchronized (writeLock) {
+            oldSize = size;
+            ensureCapacity(size + newValues.length);
+            System.arraycopy(newValues, 0, values, size, newValues.length);
+            size += newValues.length;
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            for (int value : newValues) {
+                _dispatchDataAdded(value);
+            }
+        }
+        _notifyItemRangeInserted(oldSize, newValues.length);
+    }
+
+    /**
+     * Inserts {@param value} at {@param position} and notifies the adapter.
+     */
+    public void addInt(int position, int value) {
+        synchronized (writeLock) {
+            checkPosition(position, size + 1);
+            ensureCapacity(size + 1);
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            _dispatchDataAdded(value);
+        }
+        _notifyItemAdded(position);
+    }
+
+    /**
+     * Removes the first occurrence of {@param value}, if present, and notifies the adapter.
+     */
+    public void removeInt(int value) {
+        int position = firstIndexOfInt(value);
+        if (position >= 0) {
+            remove(position);
+        }
+    }
+
+    /**
+     * Replaces the first occurrence of {@param value} with itself, so that it is bound again.
+     */
+    public void replaceInt(int value, boolean notifyAdapter) {
+        int position = firstIndexOfInt(value);
+        if (position >= 0) {
+            replaceInt(position, value, notifyAdapter);
+        }
+    }
+
+    /**
+     * Replaces the value at {@param position} with {@param value}.
+     *
+     * @param notifyAdapter whether the adapter should be notified of the change.
+     */
+    public void replaceInt(int position, int value, boolean notifyAdapter) {
+        int oldValue;
+        synchronized (writeLock) {
+            checkPosition(position, size);
+            oldValue = values[position];
+            values[position] = value;
+        }
+        if (hasObservers()) {
+            _dispatchDataRemoved(oldValue);
+            _dispatchDataAdded(value);
+        }
+        if (notifyAdapter) {
+            _notifyItemReplaced(position);
+        } else {
+            _markDataChanged();
+        }
+    }
+
+    /**
+     * Replaces all values of this {@link Section} with {@param newValues} and notifies the adapter.
+     */
+    public void clearAndAddInts(@NonNull int... newValues) {
+        int oldSize, newSize;
+        int[] oldValues = null;
+        synchronized (writeLock) {
+            oldSize = size;
+            if (hasObservers()) {
+                oldValues = Arrays.copyOf(values, size);
+            }
+            values = Arrays.copyOf(newValues, Math.max(newValues.length, DEFAULT_CAPACITY));
+            size = newValues.length;
+            updatePositionMapping();
+            newSize = size;
+        }
+        if (oldValues != null) {
+            for (int value : oldValues) {
+                _dispatchDataRemoved(value);
+            }
+            for (int value : newValues) {
+                _dispatchDataAdded(value);
+            }
+        }
+        if (oldSize > newSize) {
+            _notifyItemRangeChanged(0, newSize);
+            _notifyItemRangeRemoved(newSize, oldSize - newSize);
+        } else if (newSize > oldSize) {
+            _notifyItemRangeChanged(0, oldSize);
+            _notifyItemRangeInserted(oldSize, newSize - oldSize);
+        } else {
+            _notifyItemRangeChanged(0, oldSize);
+        }
+    }
+
+    public boolean containsInt(int value) {
+        return firstIndexOfInt(value) >= 0;
+    }
+
+    public int firstIndexOfInt(int value) {
+        int[] values = this.values;
+        int size = Math.min(this.size, values.length);
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOfInt(int value) {
+        int[] values = this.values;
+        for (int i = Math.min(size, values.length) - 1; i >= 0; i--) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a copy of the values of this {@link Section}.
+     */
+    @NonNull
+    public int[] toIntArray() {
+        synchronized (writeLock) {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public void add(@NonNull Integer... datas) {
+        addInts(unbox(datas));
+    }
+
+    @Override
+    public void add(int position, @NonNull Integer data) {
+        addInt(position, data);
+    }
+
+    @Override
+    public void remove(@NonNull Integer data) {
+        removeInt(data);
+    }
+
+    @Override
+    public void remove(int position) {
+        int removedValue;
+        synchronized (writeLock) {
+            checkPosition(position, size);
+            removedValue = values[position];
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            _dispatchDataRemoved(removedValue);
+        }
+        _notifyItemRemoved(position);
+    }
+
+    @Override
+    public void replace(@NonNull Integer data, boolean notifyAdapter) {
+        replaceInt((int) data, notifyAdapter);
+    }
+
+    @Override
+    public void replace(int position, @NonNull Integer data, boolean notifyAdapter) {
+        replaceInt(position, data, notifyAdapter);
+    }
+
+    @Override
+    public void clearAndAdd(Integer... datas) {
+        clearAndAddInts(unbox(datas));
+    }
+
+    @Override
+    public boolean contains(Integer data) {
+        return data != null && containsInt(data);
+    }
+
+    @Override
+    public void clear() {
+        int oldSize;
+        int[] oldValues = null;
+        synchronized (writeLock) {
+            oldSize = size;
+            if (hasObservers()) {
+                oldValues = Arrays.copyOf(values, size);
+            }
+            values = new int[DEFAULT_CAPACITY];
+            size = 0;
+            updatePositionMapping();
+        }
+        if (oldValues != null) {
+            for (int value : oldValues) {
+                _dispatchDataRemoved(value);
+            }
+        }
+        _notifyItemRangeRemoved(0, oldSize);
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Integer data) {
+        return firstIndexOfInt(data);
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Integer data) {
+        return lastIndexOfInt(data);
+    }
+
+    @Nullable
+    @Override
+    protected Integer getItemForDiff(int sectionPosition) {
+        return getInt(sectionPosition);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Grows {@link #values} to hold at least {@param capacity} values. Must be called while
+     * holding {@link #writeLock}.
+     */
+    private void ensureCapacity(int capacity) {
+        if (values.length < capacity) {
+            int newCapacity = Math.max(capacity, values.length + (values.length >> 1));
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    private static void checkPosition(int position, int size) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size is " + size);
+        }
+    }
+
+    @NonNull
+    private static int[] unbox(@NonNull Integer[] datas) {
+        int[] values = new int[datas.length];
+        for (int i = 0; i < datas.length; i++) {
+            values[i] = datas[i];
+        }
+        return values;
+    }
+}
@@ -0,0 +1,33 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A predicate used to display a subset of a {@link MultiItemSection}'s {@link Data}s without
+ * copying them.
+ *
+ * @see MultiItemSection#filter(ItemFilter)
+ */
+public abstract class ItemFilter<Data> {
+
+    /**
+     * Checks if a {@link Data} should be displayed. Called on a background thread, so it must not
+     * touch any Views.
+     *
+     * @param data {@link Data} to check
+     * @return True if the {@link Data} should be displayed, False otherwise.
+     */
+    public abstract boolean matches(@NonNull Data data);
+
+    /**
+     * Checks if this filter only ever matches a subset of the {@link Data}s matched by {@param
+     * previous}, for example when a search query is extended by a character. If so, only the
+     * {@link Data}s displayed by {@param previous} are evaluated again. Returns false by default.
+     *
+     * @param previous filter currently applied to the {@link MultiItemSection}
+     * @return True if this filter narrows {@param previous}, False otherwise.
+     */
+    public boolean narrows(@NonNull ItemFilter<Data> previous) {
+        return false;
+    }
+}
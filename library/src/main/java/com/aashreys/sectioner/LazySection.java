@@ -0,0 +1,275 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A stand-in for a {@link Section} which is expensive to create or load, such as one of hundreds
+ * of {@link Section}s on a screen most of which are never scrolled to. A {@link LazySection}
+ * reserves an estimated number of positions, which are bound as placeholders. Once the visible
+ * items of the {@link RecyclerView} come within the load distance of it, the real {@link Section}
+ * is created by a {@link Factory} on a background thread and then replaces this {@link
+ * LazySection} in the {@link SectionManager}, with the difference between the estimated and the
+ * actual size applied as a single range update.
+ * <p>
+ * Visibility is followed through the {@link SectionManager#getVisibilityTracker()}, and on every
+ * change of the visible range only the {@link Section}s within the load distance are inspected.
+ * The mutating methods of {@link Section} throw an {@link UnsupportedOperationException}.
+ */
+public abstract class LazySection<ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Object, ViewHolder> {
+
+    /**
+     * Creates the real {@link Section}, including loading its data. Called on a background thread.
+     */
+    public interface Factory {
+
+        @NonNull
+        Section create();
+    }
+
+    /**
+     * Default distance, in items, from the visible items at which the real {@link Section} is
+     * created.
+     */
+    public static final int DEFAULT_LOAD_DISTANCE = 20;
+
+    @NonNull private final Factory factory;
+
+    private final int estimatedSize;
+
+    private int loadDistance = DEFAULT_LOAD_DISTANCE;
+
+    @NonNull private Executor executor = SectionExecutors.background();
+
+    private boolean isLoading;
+
+    /**
+     * @param estimatedSize number of placeholder positions to reserve until the real {@link
+     *                      Section} has been created.
+     * @param factory       {@link Factory} creating the real {@link Section}.
+     */
+    public LazySection(int estimatedSize, @NonNull Factory factory) {
+        super();
+        this.estimatedSize = estimatedSize;
+        this.factory = factory;
+    }
+
+    /**
+     * Binds a placeholder {@link android.view.View}, such as a skeleton, for a reserved position.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    @Override
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    /**
+     * Sets the distance, in items, from the visible items at which the real {@link Section} is
+     * created. Defaults to {@link #DEFAULT_LOAD_DISTANCE}.
+     */
+    public void setLoadDistance(int loadDistance) {
+        this.loadDistance = loadDistance;
+        SectionManager manager = getManager();
+        if (manager != null) {
+            manager.getLazySectionLoader().onLoadDistanceChanged(loadDistance);
+        }
+    }
+
+    /**
+     * Sets the {@link Executor} on which the {@link Factory} is called. Defaults to a shared
+     * background {@link Executor}.
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the real {@link Section} now, regardless of its distance from the visible items.
+     * Does nothing if it is already being created. Must be called from the main thread.
+     */
+    public void load() {
+        if (isLoading) {
+            return;
+        }
+        isLoading = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Section section = factory.create();
+                SectionExecutors.mainThread().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        SectionManager manager = getManager();
+                        if (manager != null) {
+                            manager.replace(manager.indexOf(LazySection.this), section);
+                        } else {
+                            // Removed from the SectionManager in the meantime
+                            isLoading = false;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Checks if the real {@link Section} is being created.
+     */
+    public boolean isLoading() {
+        return isLoading;
+    }
+
+    @Override
+    void setManager(@Nullable SectionManager manager) {
+        super.setManager(manager);
+        if (manager != null) {
+            manager.getLazySectionLoader().onLoadDistanceChanged(loadDistance);
+        }
+    }
+
+    @Override
+    public int size() {
+        return estimatedSize;
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void add(@NonNull Object... datas) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void add(int position, @NonNull Object data) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(@NonNull Object data) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(int position) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void replace(@NonNull Object data, boolean notifyAdapter) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void replace(int position, @NonNull Object data, boolean notifyAdapter) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void clearAndAdd(Object... datas) {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    @Override
+    public boolean contains(Object data) {
+        return false;
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("LazySection only holds placeholders");
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Object data) {
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Object data) {
+        return -1;
+    }
+
+    /**
+     * Loads the {@link LazySection}s of a {@link SectionManager} which come within their load
+     * distance of the visible items.
+     */
+    static class Loader extends SectionVisibilityTracker.Listener {
+
+        @NonNull private final SectionManager sectionManager;
+
+        /**
+         * Largest load distance of any {@link LazySection} added to the {@link SectionManager}.
+         */
+        private int maxLoadDistance;
+
+        Loader(@NonNull SectionManager sectionManager) {
+            this.sectionManager = sectionManager;
+            sectionManager.getVisibilityTracker().addListener(this);
+        }
+
+        /**
+         * Widens the range inspected on every change of the visible range. Newly added {@link
+         * LazySection}s are inspected once the {@link RecyclerView} has laid them out.
+         */
+        void onLoadDistanceChanged(int loadDistance) {
+            maxLoadDistance = Math.max(maxLoadDistance, loadDistance);
+        }
+
+        @Override
+        public void onVisibleRangeChanged(int firstVisiblePosition, int lastVisiblePosition) {
+            int itemCount = sectionManager.getItemCount();
+            if (firstVisiblePosition == RecyclerView.NO_POSITION || itemCount == 0) {
+                return;
+            }
+            int firstSection = sectionManager.getSectionPositionForAdapterPosition(
+                    Math.max(0, firstVisiblePosition - maxLoadDistance)
+            );
+            int lastSection = sectionManager.getSectionPositionForAdapterPosition(
+                    Math.min(itemCount - 1, lastVisiblePosition + maxLoadDistance)
+            );
+            for (int i = firstSection; i <= lastSection; i++) {
+                Section section = sectionManager.get(i);
+                if (section instanceof LazySection) {
+                    LazySection lazySection = (LazySection) section;
+                    if (!lazySection.isLoading()
+                            && sectionManager.getDistanceFromVisibleItems(lazySection)
+                            <= lazySection.loadDistance) {
+                        lazySection.load();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Section} of long values, such as ids which are resolved at bind time. Values are stored
+ * in a growable long array rather than a list of boxed {@link Long}s, which takes a fraction of
+ * the memory and creates no garbage for large {@link Section}s.
+ * <p>
+ * The primitive methods - {@link #addLongs(long...)}, {@link #addLong(int, long)}, {@link
+ * #replaceLong(int, long, boolean)} etc. - behave and notify the adapter exactly like their {@link
+ * Section} counterparts, which are also supported but box their arguments. {@link
+ * SectionObserver}s receive boxed values, and only if any are registered.
+ */
+public abstract class LongSection<ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Long, ViewHolder> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final Object writeLock = new Object();
+
+    @NonNull private long[] values;
+
+    private int size;
+
+    /**
+     * Creates an empty {@link LongSection}.
+     */
+    public LongSection() {
+        super();
+        this.values = new long[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Creates a new {@link LongSection} holding a copy of {@param values}. This does not trigger an
+     * animated addition in the {@link RecyclerView}.
+     */
+    public LongSection(@NonNull long[] values) {
+        super();
+        this.values = Arrays.copyOf(values, Math.max(values.length, DEFAULT_CAPACITY));
+        this.size = values.length;
+    }
+
+    /**
+     * Binds a {@link ViewHolder} to the value at a position.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param value           value at {@param sectionPosition}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            long value,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        bindViewHolder(holder, getLong(sectionPosition), sectionPosition, adapterPosition);
+    }
+
+    /**
+     * Returns the value at {@param position}.
+     *
+     * @throws IndexOutOfBoundsException if {@param position} is out of bounds.
+     */
+    public long getLong(int position) {
+        checkPosition(position, size);
+        return values[position];
+    }
+
+    /**
+     * Appends {@param newValues} to this {@link Section} and notifies the adapter.
+     */
+    public void addLongs(@NonNull long... newValues) {
+        int oldSize;
+        synchronized (writeLock) {
+            oldSize = size;
+            ensureCapacity(size + newValues.length);
+            System.arraycopy(newValues, 0, values, size, newValues.length);
+            size += newValues.length;
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            for (long value : newValues) {
+                _dispatchDataAdded(value);
+            }
+        }
+        _notifyItemRangeInserted(oldSize, newValues.length);
+    }
+
+    /**
+     * Inserts {@param value} at {@param position} and notifies the adapter.
+     */
+    public void addLong(int position, long value) {
+        synchronized (writeLock) {
+            checkPosition(position, size + 1);
+            ensureCapacity(size + 1);
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            _dispatchDataAdded(value);
+        }
+        _notifyItemAdded(position);
+    }
+
+    /**
+     * Removes the first occurrence of {@param value}, if present, and notifies the adapter.
+     */
+    public void removeLong(long value) {
+        int position = firstIndexOfLong(value);
+        if (position >= 0) {
+            remove(position);
+        }
+    }
+
+    /**
+     * Replaces the first occurrence of {@param value} with itself, so that it is bound again.
+     */
+    public void replaceLong(long value, boolean notifyAdapter) {
+        int position = firstIndexOfLong(value);
+        if (position >= 0) {
+            replaceLong(position, value, notifyAdapter);
+        }
+    }
+
+    /**
+     * Replaces the value at {@param position} with {@param value}.
+     *
+     * @param notifyAdapter whether the adapter should be notified of the change.
+     */
+    public void replaceLong(int position, long value, boolean notifyAdapter) {
+        long oldValue;
+        synchronized (writeLock) {
+            checkPosition(position, size);
+            oldValue = values[position];
+            values[position] = value;
+        }
+        if (hasObservers()) {
+            _dispatchDataRemoved(oldValue);
+            _dispatchDataAdded(value);
+        }
+        if (notifyAdapter) {
+            _notifyItemReplaced(position);
+        } else {
+            _markDataChanged();
+        }
+    }
+
+    /**
+     * Replaces all values of this {@link Section} with {@param newValues} and notifies the adapter.
+     */
+    public void clearAndAddLongs(@NonNull long... newValues) {
+        int oldSize, newSize;
+        long[] oldValues = null;
+        synchronized (writeLock) {
+            oldSize = size;
+            if (hasObservers()) {
+                oldValues = Arrays.copyOf(values, size);
+            }
+            values = Arrays.copyOf(newValues, Math.max(newValues.length, DEFAULT_CAPACITY));
+            size = newValues.length;
+            updatePositionMapping();
+            newSize = size;
+        }
+        if (oldValues != null) {
+            for (long value : oldValues) {
+                _dispatchDataRemoved(value);
+            }
+            for (long value : newValues) {
+                _dispatchDataAdded(value);
+            }
+        }
+        if (oldSize > newSize) {
+            _notifyItemRangeChanged(0, newSize);
+            _notifyItemRangeRemoved(newSize, oldSize - newSize);
+        } else if (newSize > oldSize) {
+            _notifyItemRangeChanged(0, oldSize);
+            _notifyItemRangeInserted(oldSize, newSize - oldSize);
+        } else {
+            _notifyItemRangeChanged(0, oldSize);
+        }
+    }
+
+    public boolean containsLong(long value) {
+        return firstIndexOfLong(value) >= 0;
+    }
+
+    public int firstIndexOfLong(long value) {
+        long[] values = this.values;
+        int size = Math.min(this.size, values.length);
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOfLong(long value) {
+        long[] values = this.values;
+        for (int i = Math.min(size, values.length) - 1; i >= 0; i--) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a copy of the values of this {@link Section}.
+     */
+    @NonNull
+    public long[] toLongArray() {
+        synchronized (writeLock) {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public void add(@NonNull Long... datas) {
+        addLongs(unbox(datas));
+    }
+
+    @Override
+    public void add(int position, @NonNull Long data) {
+        addLong(position, data);
+    }
+
+    @Override
+    public void remove(@NonNull Long data) {
+        removeLong(data);
+    }
+
+    @Override
+    public void remove(int position) {
+        long removedValue;
+        synchronized (writeLock) {
+            checkPosition(position, size);
+            removedValue = values[position];
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            _dispatchDataRemoved(removedValue);
+        }
+        _notifyItemRemoved(position);
+    }
+
+    @Override
+    public void replace(@NonNull Long data, boolean notifyAdapter) {
+        replaceLong((long) data, notifyAdapter);
+    }
+
+    @Override
+    public void replace(int position, @NonNull Long data, boolean notifyAdapter) {
+        replaceLong(position, data, notifyAdapter);
+    }
+
+    @Override
+    public void clearAndAdd(Long... datas) {
+        clearAndAddLongs(unbox(datas));
+    }
+
+    @Override
+    public boolean contains(Long data) {
+        return data != null && containsLong(data);
+    }
+
+    @Override
+    public void clear() {
+        int oldSize;
+        long[] oldValues = null;
+        synchronized (writeLock) {
+            oldSize = size;
+            if (hasObservers()) {
+                oldValues = Arrays.copyOf(values, size);
+            }
+            values = new long[DEFAULT_CAPACITY];
+            size = 0;
+            updatePositionMapping();
+        }
+        if (oldValues != null) {
+            for (long value : oldValues) {
+                _dispatchDataRemoved(value);
+            }
+        }
+        _notifyItemRangeRemoved(0, oldSize);
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Long data) {
+        return firstIndexOfLong(data);
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Long data) {
+        return lastIndexOfLong(data);
+    }
+
+    @Nullable
+    @Override
+    protected Long getItemForDiff(int sectionPosition) {
+        return getLong(sectionPosition);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Grows {@link #values} to hold at least {@param capacity} values. Must be called while
+     * holding {@link #writeLock}.
+     */
+    private void ensureCapacity(int capacity) {
+        if (values.length < capacity) {
+            int newCapacity = Math.max(capacity, values.length + (values.length >> 1));
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    private static void checkPosition(int position, int size) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size is " + size);
+        }
+    }
+
+    @NonNull
+    private static long[] unbox(@NonNull Long[] datas) {
+        long[] values = new long[datas.length];
+        for (int i = 0; i < datas.length; i++) {
+            values[i] = datas[i];
+        }
+        return values;
+    }
+}
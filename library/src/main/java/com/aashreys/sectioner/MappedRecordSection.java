@@ -0,0 +1,537 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-mostly {@link Section} whose items are records in a memory-mapped file rather than
+ * objects on the heap. Records are only decoded, through a {@link RecordCodec}, when they are
+ * bound or read via {@link #get(int)}, so the heap cost of this {@link Section} does not depend on
+ * the number of its items, and opening even a very large file only maps it without reading it.
+ * <p>
+ * Records of a fixed length are laid out back to back after a small header. Records of variable
+ * length additionally need an index file, holding the offset and length of every record, which is
+ * mapped the same way. Each file is mapped in a single {@link MappedByteBuffer}, so it is limited
+ * to 2GB. When a file grows, its previous mapping is released right away where the platform allows
+ * it, instead of when it is garbage collected, so decoded {@link Data}s must not refer to the
+ * bytes of their records, as described in {@link RecordCodec#decode(ByteBuffer)}.
+ * <p>
+ * Appending {@link Data}s and replacing them in place are supported and notify the adapter like
+ * {@link MultiItemSection} does. Inserting and removing {@link Data}s at arbitrary positions would
+ * require rewriting the file, and throws an {@link UnsupportedOperationException}. Lookups such as
+ * {@link #firstIndexOf(Object)} decode every record, and are meant for occasional use only.
+ */
+public abstract class MappedRecordSection<Data, ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Data, ViewHolder> implements Closeable {
+
+    private static final int MAGIC = 0x53524543;
+
+    /**
+     * Data file header: magic, record count and end of the record data.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    private static final int COUNT_OFFSET = 4;
+
+    private static final int DATA_END_OFFSET = 8;
+
+    /**
+     * Index file entry: offset and length of a record.
+     */
+    private static final int INDEX_ENTRY_SIZE = 8;
+
+    private static final int MIN_CAPACITY = 4096;
+
+    private final Object writeLock = new Object();
+
+    @NonNull private final RecordCodec<Data> codec;
+
+    private final int recordLength;
+
+    @NonNull private final MappedFile dataFile;
+
+    @Nullable private final MappedFile indexFile;
+
+    private volatile int size;
+
+    /**
+     * Opens or creates a file of fixed length records.
+     *
+     * @param file  file holding the records, created if it does not exist.
+     * @param codec {@link RecordCodec} whose {@link RecordCodec#getRecordLength()} is fixed.
+     * @throws IOException if the file cannot be opened or is not a record file.
+     */
+    public MappedRecordSection(@NonNull File file, @NonNull RecordCodec<Data> codec)
+            throws IOException {
+        this(file, null, codec);
+    }
+
+    /**
+     * Opens or creates a file of variable length records and its index.
+     *
+     * @param file      file holding the records, created if it does not exist.
+     * @param indexFile file holding the offset and length of every record, created if it does not
+     *                  exist. Required if {@param codec} is of {@link RecordCodec#VARIABLE_LENGTH}.
+     * @param codec     {@link RecordCodec} of the records.
+     * @throws IOException if the files cannot be opened or are not record files.
+     */
+    public MappedRecordSection(
+            @NonNull File file,
+            @Nullable File indexFile,
+            @NonNull RecordCodec<Data> codec
+    ) throws IOException {
+        super();
+        this.codec = codec;
+        this.recordLength = codec.getRecordLength();
+        if (recordLength == RecordCodec.VARIABLE_LENGTH && indexFile == null) {
+            throw new IllegalArgumentException("Variable length records require an index file");
+        }
+        this.dataFile = new MappedFile(file, HEADER_SIZE);
+        MappedFile openedIndexFile = null;
+        try {
+            ByteBuffer header = dataFile.buffer;
+            if (header.getInt(0) == 0) {
+                header.putInt(0, MAGIC);
+                header.putInt(COUNT_OFFSET, 0);
+                header.putLong(DATA_END_OFFSET, HEADER_SIZE);
+            } else if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a record file");
+            }
+            this.size = header.getInt(COUNT_OFFSET);
+            if (recordLength == RecordCodec.VARIABLE_LENGTH) {
+                openedIndexFile = new MappedFile(indexFile, (long) size * INDEX_ENTRY_SIZE);
+            }
+        } catch (IOException | RuntimeException e) {
+            dataFile.close();
+            throw e;
+        }
+        this.indexFile = openedIndexFile;
+    }
+
+    /**
+     * Binds a {@link ViewHolder} to a decoded {@link Data}.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param data            {@link Data} decoded from the record at {@param sectionPosition}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            @NonNull Data data,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        bindViewHolder(holder, get(sectionPosition), sectionPosition, adapterPosition);
+    }
+
+    /**
+     * Decodes and returns the {@link Data} at {@param position}.
+     *
+     * @throws IndexOutOfBoundsException if {@param position} is out of bounds.
+     */
+    @NonNull
+    public Data get(int position) {
+        synchronized (writeLock) {
+            if (position < 0 || position >= size) {
+                throw new IndexOutOfBoundsException("Position " + position + ", size is " + size);
+            }
+            // Decoded while holding the lock, since appending may unmap the record's buffer
+            return codec.decode(getRecord(position));
+        }
+    }
+
+    /**
+     * Writes all pending changes to the files and releases them. This {@link Section} must not be
+     * used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            dataFile.close();
+            if (indexFile != null) {
+                indexFile.close();
+            }
+        }
+    }
+
+    @Override
+    public void add(@NonNull Data... datas) {
+        int oldSize;
+        synchronized (writeLock) {
+            oldSize = size;
+            for (Data data : datas) {
+                appendRecord(data);
+            }
+            updatePositionMapping();
+        }
+        if (hasObservers()) {
+            for (Data data : datas) {
+                _dispatchDataAdded(data);
+            }
+        }
+        _notifyItemRangeInserted(oldSize, datas.length);
+    }
+
+    /**
+     * Only supports appending, i.e. {@param position} must be the size of this {@link Section}.
+     */
+    @Override
+    public void add(int position, @NonNull Data data) {
+        synchronized (writeLock) {
+            if (position != size) {
+                throw new UnsupportedOperationException("Records can only be appended");
+            }
+            appendRecord(data);
+            updatePositionMapping();
+        }
+        _dispatchDataAdded(data);
+        _notifyItemAdded(position);
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(@NonNull Data data) {
+        throw new UnsupportedOperationException("Records cannot be removed");
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove(int position) {
+        throw new UnsupportedOperationException("Records cannot be removed");
+    }
+
+    @Override
+    public void replace(@NonNull Data data, boolean notifyAdapter) {
+        int position = firstIndexOf(data);
+        if (position >= 0) {
+            replace(position, data, notifyAdapter);
+        }
+    }
+
+    /**
+     * Replaces the record at {@param position}. Fixed length records are overwritten in place.
+     * Variable length records are appended and the index is pointed at them, leaving the space of
+     * the old record unused.
+     */
+    @Override
+    public void replace(int position, @NonNull Data data, boolean notifyAdapter) {
+        Data oldData = null;
+        synchronized (writeLock) {
+            if (position < 0 || position >= size) {
+                throw new IndexOutOfBoundsException("Position " + position + ", size is " + size);
+            }
+            if (hasObservers()) {
+                oldData = codec.decode(getRecord(position));
+            }
+            if (indexFile == null) {
+                long offset = HEADER_SIZE + (long) position * recordLength;
+                codec.encode(data, dataFile.slice(offset, recordLength));
+            } else {
+                writeIndexEntry(position, writeData(data), codec.getEncodedLength(data));
+            }
+        }
+        if (oldData != null) {
+            _dispatchDataRemoved(oldData);
+            _dispatchDataAdded(data);
+        }
+        if (notifyAdapter) {
+            _notifyItemReplaced(position);
+        } else {
+            _markDataChanged();
+        }
+    }
+
+    @Override
+    public void clearAndAdd(Data... datas) {
+        int oldSize;
+        Object[] oldDatas;
+        int newSize = datas.length;
+        synchronized (writeLock) {
+            oldSize = size;
+            oldDatas = clearRecords();
+            for (Data data : datas) {
+                appendRecord(data);
+            }
+            updatePositionMapping();
+        }
+        dispatchDatasRemoved(oldDatas);
+        if (hasObservers()) {
+            for (Data data : datas) {
+                _dispatchDataAdded(data);
+            }
+        }
+        if (oldSize > newSize) {
+            _notifyItemRangeChanged(0, newSize);
+            _notifyItemRangeRemoved(newSize, oldSize - newSize);
+        } else if (newSize > oldSize) {
+            _notifyItemRangeChanged(0, oldSize);
+            _notifyItemRangeInserted(oldSize, newSize - oldSize);
+        } else {
+            _notifyItemRangeChanged(0, oldSize);
+        }
+    }
+
+    @Override
+    public boolean contains(Data data) {
+        return data != null && firstIndexOf(data) >= 0;
+    }
+
+    /**
+     * Removes all records. The files keep their size, and their space is reused by the {@link
+     * Data}s added afterwards.
+     */
+    @Override
+    public void clear() {
+        int oldSize;
+        Object[] oldDatas;
+        synchronized (writeLock) {
+            oldSize = size;
+            oldDatas = clearRecords();
+            updatePositionMapping();
+        }
+        dispatchDatasRemoved(oldDatas);
+        _notifyItemRangeRemoved(0, oldSize);
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Data data) {
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            if (data.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Data data) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (data.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    @Override
+    protected Data getItemForDiff(int sectionPosition) {
+        return get(sectionPosition);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a {@link ByteBuffer} spanning the record at {@param position}. Must be called while
+     * holding {@link #writeLock}, since appending may remap the files.
+     */
+    @NonNull
+    private ByteBuffer getRecord(int position) {
+        if (indexFile == null) {
+            return dataFile.slice(HEADER_SIZE + (long) position * recordLength, recordLength);
+        }
+        ByteBuffer index = indexFile.buffer;
+        int offset = index.getInt(position * INDEX_ENTRY_SIZE);
+        int length = index.getInt(position * INDEX_ENTRY_SIZE + 4);
+        return dataFile.slice(offset, length);
+    }
+
+    /**
+     * Points the index entry at {@param position} to a record. Must be called while holding {@link
+     * #writeLock}.
+     */
+    private void writeIndexEntry(int position, long offset, int length) {
+        indexFile.ensureCapacity((long) (position + 1) * INDEX_ENTRY_SIZE);
+        indexFile.buffer.putInt(position * INDEX_ENTRY_SIZE, (int) offset);
+        indexFile.buffer.putInt(position * INDEX_ENTRY_SIZE + 4, length);
+    }
+
+    /**
+     * Appends the record for {@param data} and updates the header. Must be called while holding
+     * {@link #writeLock}.
+     */
+    private void appendRecord(@NonNull Data data) {
+        long offset = writeData(data);
+        if (indexFile != null) {
+            writeIndexEntry(size, offset, codec.getEncodedLength(data));
+        }
+        size++;
+        dataFile.buffer.putInt(COUNT_OFFSET, size);
+    }
+
+    /**
+     * Writes the record for {@param data} at the end of the record data and returns its offset.
+     * Must be called while holding {@link #writeLock}.
+     */
+    private long writeData(@NonNull Data data) {
+        int length = indexFile == null ? recordLength : codec.getEncodedLength(data);
+        long offset = dataFile.buffer.getLong(DATA_END_OFFSET);
+        dataFile.ensureCapacity(offset + length);
+        codec.encode(data, dataFile.slice(offset, length));
+        dataFile.buffer.putLong(DATA_END_OFFSET, offset + length);
+        return offset;
+    }
+
+    /**
+     * Resets the header so that the files hold no records, and returns the removed {@link Data}s
+     * if there are observers to dispatch them to, or null otherwise. Must be called while holding
+     * {@link #writeLock}.
+     */
+    @Nullable
+    private Object[] clearRecords() {
+        Object[] oldDatas = null;
+        if (hasObservers()) {
+            oldDatas = new Object[size];
+            for (int i = 0; i < size; i++) {
+                oldDatas[i] = codec.decode(getRecord(i));
+            }
+        }
+        size = 0;
+        dataFile.buffer.putInt(COUNT_OFFSET, 0);
+        dataFile.buffer.putLong(DATA_END_OFFSET, HEADER_SIZE);
+        return oldDatas;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatchDatasRemoved(@Nullable Object[] oldDatas) {
+        if (oldDatas != null) {
+            for (Object data : oldDatas) {
+                _dispatchDataRemoved((Data) data);
+            }
+        }
+    }
+
+    /**
+     * A file mapped into memory in its entirety, grown by remapping it when more space is needed.
+     */
+    private static class MappedFile {
+
+        @NonNull private final RandomAccessFile file;
+
+        @NonNull private final FileChannel channel;
+
+        @NonNull MappedByteBuffer buffer;
+
+        MappedFile(@NonNull File file, long minCapacity) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+            this.channel = this.file.getChannel();
+            try {
+                long capacity = Math.max(this.file.length(), Math.max(minCapacity, MIN_CAPACITY));
+                this.buffer = map(capacity);
+            } catch (IOException | RuntimeException e) {
+                this.file.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Returns a {@link ByteBuffer} spanning {@param length} bytes from {@param offset}.
+         */
+        @NonNull
+        ByteBuffer slice(long offset, int length) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit((int) offset + length);
+            slice.position((int) offset);
+            return slice;
+        }
+
+        /**
+         * Remaps the file if it is smaller than {@param capacity}. Must be called while holding
+         * the lock of the {@link MappedRecordSection}, and no slice of the previous {@link
+         * #buffer} may be used afterwards, since it is unmapped. This is why {@link
+         * RecordCodec#decode(ByteBuffer)} must copy the bytes it needs.
+         */
+        void ensureCapacity(long capacity) {
+            if (buffer.capacity() < capacity) {
+                try {
+                    MappedByteBuffer oldBuffer = buffer;
+                    oldBuffer.force();
+                    buffer = map(Math.max(capacity, (long) oldBuffer.capacity() * 2));
+                    unmap(oldBuffer);
+                } catch (IOException e) {
+                    throw new RecordFileException(e);
+                }
+            }
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            unmap(buffer);
+            file.close();
+        }
+
+        /**
+         * Releases the mapping of {@param buffer} immediately, through the internal API of the
+         * platform: {@code NioUtils.freeDirectBuffer()} on Android and the buffer's cleaner on
+         * other JVMs. If neither is available the mapping is released once {@param buffer} is
+         * garbage collected, as it would be otherwise.
+         */
+        private static void unmap(@NonNull MappedByteBuffer buffer) {
+            try {
+                Class<?> nioUtils = Class.forName("java.nio.NioUtils");
+                nioUtils.getMethod("freeDirectBuffer", ByteBuffer.class).invoke(null, buffer);
+                return;
+            } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+                    | InvocationTargetException | RuntimeException ignored) {
+                // Not Android
+            }
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            } catch (NoSuchMethodException | IllegalAccessException
+                    | InvocationTargetException | RuntimeException ignored) {
+                // Left to the garbage collector
+            }
+        }
+
+        @NonNull
+        private MappedByteBuffer map(long capacity) throws IOException {
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Record files are limited to 2GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    /**
+     * Thrown when a record file cannot be grown while appending or replacing {@link Data}s.
+     */
+    public static class RecordFileException extends RuntimeException {
+
+        RecordFileException(@NonNull IOException cause) {
+            super(cause);
+        }
+    }
+}
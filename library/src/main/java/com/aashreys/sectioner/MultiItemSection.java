@@ -1,16 +1,30 @@
 package com.aashreys.sectioner;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * An implementation of {@link Section} designed to containing multiple data {@link Data}s
  * corresponding to a single View Type.
  * <p>
+ * A {@link MultiItemSection} can display a subset of its {@link Data}s by applying an {@link
+ * ItemFilter} via {@link #filter(ItemFilter)}. While a filter is applied, all positions used by
+ * this class refer to the displayed {@link Data}s, and {@link #get(int)} should be used to access
+ * the {@link Data} at a position instead of reading {@link #dataList} directly.
+ * <p>
+ * For {@link Data}s which are replaced many times per second, such as price tickers, {@link
+ * #setTickerMode(boolean)} coalesces replacements into one range notification per frame for the
+ * items which are currently bound.
+ * <p>
  * Created by aashreys on 20/03/16.
  */
 public abstract class MultiItemSection<Data, ViewHolder extends RecyclerView.ViewHolder> extends
@@ -20,6 +34,74 @@ public abstract class MultiItemSection<Data, ViewHolder extends RecyclerView.Vie
 
     @NonNull protected final List<Data> dataList;
 
+    @NonNull private Executor filterExecutor = SectionExecutors.background();
+
+    /**
+     * Filter requested via {@link #filter(ItemFilter)}, which may still be evaluating.
+     */
+    @Nullable private ItemFilter<Data> filter;
+
+    /**
+     * Filter which produced {@link #filteredPositions}.
+     */
+    @Nullable private ItemFilter<Data> appliedFilter;
+
+    /**
+     * Ascending positions in {@link #dataList} of the displayed {@link Data}s, or null if no filter
+     * is applied. Only the first {@link #filteredSize} entries are valid.
+     */
+    @Nullable private int[] filteredPositions;
+
+    private int filteredSize;
+
+    /**
+     * Filter evaluation which has not been published yet, or null. Guarded by {@link
+     * #writeLock}, and kept in step with every change to {@link #dataList}, so that it never has
+     * to be discarded because of concurrent changes. Replacing it cancels the previous one.
+     */
+    @Nullable private FilterEvaluation evaluation;
+
+    /**
+     * Number of {@link Data}s evaluated by a filter per acquisition of the write lock.
+     */
+    private static final int FILTER_CHUNK_SIZE = 256;
+
+    /**
+     * Payload of the change notifications dispatched in ticker mode, which can be checked for in
+     * {@link #bindViewHolder(RecyclerView.ViewHolder, int, int, List)} to update only the parts of
+     * a {@link android.view.View} which depend on ticking values.
+     *
+     * @see #setTickerMode(boolean)
+     */
+    public static final Object TICKER_PAYLOAD = new Object();
+
+    private boolean isTickerMode;
+
+    /**
+     * {@link ViewHolder}s currently bound to items of this {@link Section}, tracked in ticker mode
+     * only.
+     */
+    @Nullable private Set<ViewHolder> boundHolders;
+
+    /**
+     * Item keys of the {@link Data}s replaced since the last flush in ticker mode. Replacing the
+     * same item again before the flush only keeps the latest {@link Data}, which is held by
+     * {@link #dataList}.
+     *
+     * @see #getItemKey(Object)
+     */
+    @Nullable private Set<Object> pendingTickerKeys;
+
+    private boolean isTickerFlushScheduled;
+
+    @NonNull private final Runnable tickerFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isTickerFlushScheduled = false;
+            flushTickerUpdates();
+        }
+    };
+
     /**
      * Creates an empty {@link MultiItemSection}.
      */
@@ -39,81 +121,304 @@ public abstract class MultiItemSection<Data, ViewHolder extends RecyclerView.Vie
         this.dataList = dataList;
     }
 
+    /**
+     * Returns the {@link Data} displayed at a position in this {@link Section}.
+     *
+     * @param position position of the {@link Data}
+     * @throws IndexOutOfBoundsException if {@param position} is not found or invalid.
+     */
+    public Data get(int position) {
+        return dataList.get(getDataPosition(position));
+    }
+
     @Override
     public void add(@NonNull Data... datas) {
-        int oldSize;
+        addAll(Arrays.asList(datas));
+    }
+
+    /**
+     * Appends {@param datas} in a single range insertion, like {@link #add(Object[])}. Used by
+     * callers holding a {@link List}, since an array of {@link Data} cannot be created from it
+     * without casting an {@code Object[]}, which fails in subclasses binding {@link Data}.
+     */
+    void addAll(@NonNull List<? extends Data> datas) {
+        int oldSize, oldDataSize;
         synchronized (writeLock) {
             oldSize = size();
-            Collections.addAll(dataList, datas);
+            oldDataSize = dataList.size();
+            dataList.addAll(datas);
             updatePositionMapping();
         }
-        _notifyItemRangeInserted(oldSize, datas.length);
+        if (hasObservers()) {
+            for (int i = 0; i < datas.size(); i++) {
+                _dispatchDataAdded(datas.get(i));
+            }
+        }
+        if (!isFiltered()) {
+            _notifyItemRangeInserted(oldSize, datas.size());
+        }
+        // Appended data is evaluated in the background and published as an insertion
+        filterRange(oldDataSize, oldDataSize + datas.size());
+        _dispatchDataRangeInserted(oldDataSize, datas.size());
     }
 
     @Override
     public void add(int itemPosition, @NonNull Data data) {
-        synchronized (writeLock) {
-            dataList.add(itemPosition, data);
-            updatePositionMapping();
+        if (isFiltered()) {
+            int dataPosition;
+            synchronized (writeLock) {
+                dataPosition = itemPosition < filteredSize
+                        ? filteredPositions[itemPosition]
+                        : dataList.size();
+                dataList.add(dataPosition, data);
+                shiftFilteredPositions(itemPosition, dataPosition, 1);
+                if (evaluation != null) {
+                    evaluation.onInserted(dataPosition, 1);
+                }
+            }
+            _markDataChanged();
+            _dispatchDataAdded(data);
+            // Evaluated in the background and published as an insertion if it matches
+            filterRange(dataPosition, dataPosition + 1);
+            _dispatchDataRangeInserted(dataPosition, 1);
+        } else {
+            synchronized (writeLock) {
+                dataList.add(itemPosition, data);
+                if (evaluation != null) {
+                    evaluation.onInserted(itemPosition, 1);
+                }
+                updatePositionMapping();
+            }
+            _dispatchDataAdded(data);
+            _notifyItemAdded(itemPosition);
+            filterRange(itemPosition, itemPosition + 1);
+            _dispatchDataRangeInserted(itemPosition, 1);
         }
-        _notifyItemAdded(itemPosition);
     }
 
     @Override
     public void remove(@NonNull Data data) {
-        int itemPosition;
-        synchronized (writeLock) {
-            itemPosition = dataList.indexOf(data);
-            dataList.remove(data);
-            updatePositionMapping();
+        int itemPosition = firstIndexOf(data);
+        if (itemPosition >= 0) {
+            remove(itemPosition);
+        } else if (isFiltered()) {
+            // Data is hidden by the filter, remove it silently
+            Data removedData = null;
+            int dataPosition;
+            synchronized (writeLock) {
+                dataPosition = dataList.indexOf(data);
+                if (dataPosition >= 0) {
+                    removedData = dataList.remove(dataPosition);
+                    if (evaluation != null) {
+                        evaluation.onRemoved(dataPosition, 1);
+                    }
+                    shiftFilteredPositions(
+                            -binarySearchFilteredPositions(dataPosition) - 1,
+                            dataPosition,
+                            -1
+                    );
+                }
+            }
+            if (removedData != null) {
+                _markDataChanged();
+                _dispatchDataRemoved(removedData);
+                _dispatchDataRangeRemoved(dataPosition, 1);
+            }
         }
-        _notifyItemRemoved(itemPosition);
     }
 
     @Override
     public void remove(int itemPosition) {
+        Data removedData;
+        int dataPosition;
         synchronized (writeLock) {
-            dataList.remove(itemPosition);
+            dataPosition = getDataPosition(itemPosition);
+            removedData = dataList.remove(dataPosition);
+            if (evaluation != null) {
+                evaluation.onRemoved(dataPosition, 1);
+            }
+            if (isFiltered()) {
+                removeFilteredPosition(itemPosition);
+                shiftFilteredPositions(itemPosition, dataPosition, -1);
+            }
             updatePositionMapping();
         }
+        _dispatchDataRemoved(removedData);
         _notifyItemRemoved(itemPosition);
+        _dispatchDataRangeRemoved(dataPosition, 1);
     }
 
     @Override
     public void replace(@NonNull Data data, boolean notifyAdapter) {
-        int itemPosition;
-        synchronized (writeLock) {
-            itemPosition = dataList.indexOf(data);
-            dataList.remove(data);
-            dataList.add(itemPosition, data);
-        }
-        if (notifyAdapter) {
-            _notifyItemReplaced(itemPosition);
+        int itemPosition = firstIndexOf(data);
+        if (itemPosition >= 0) {
+            replace(itemPosition, data, notifyAdapter);
         }
     }
 
     @Override
     public void replace(int itemPosition, @NonNull Data data, boolean notifyAdapter) {
+        int dataPosition;
+        Data oldData;
         synchronized (writeLock) {
-            dataList.remove(itemPosition);
-            dataList.add(itemPosition, data);
+            dataPosition = getDataPosition(itemPosition);
+            oldData = dataList.set(dataPosition, data);
+            if (evaluation != null) {
+                evaluation.onChanged(dataPosition);
+            }
         }
-        if (notifyAdapter) {
+        _dispatchDataRemoved(oldData);
+        _dispatchDataAdded(data);
+        if (notifyAdapter && isTickerMode) {
+            _markDataChanged();
+            enqueueTickerUpdate(data);
+        } else if (notifyAdapter) {
             _notifyItemReplaced(itemPosition);
+        } else {
+            _markDataChanged();
+        }
+        // Evaluated in the background and published as a removal if it no longer matches
+        filterRange(dataPosition, dataPosition + 1);
+    }
+
+    /**
+     * Enables or disables ticker mode, for {@link Data}s which are replaced at a high frequency.
+     * In ticker mode, {@link #replace(int, Object, boolean)} and {@link #replace(Object, boolean)}
+     * update the {@link Data} immediately but defer notifying the adapter to the next frame. Only
+     * the latest replacement of each item, as identified by {@link #getItemKey(Object)}, is kept.
+     * At the next frame, the replaced items which are currently bound are notified as changed in
+     * coalesced ranges with {@link #TICKER_PAYLOAD}. Items which are not bound are not notified at
+     * all, and show their latest {@link Data} once they are bound again.
+     * <p>
+     * Enabling ticker mode while this {@link Section} is displayed rebinds its items once, so that
+     * the bound {@link ViewHolder}s become known. Must be called from the main thread.
+     */
+    public void setTickerMode(boolean isTickerMode) {
+        if (this.isTickerMode == isTickerMode) {
+            return;
+        }
+        this.isTickerMode = isTickerMode;
+        if (isTickerMode) {
+            boundHolders = new HashSet<>();
+            pendingTickerKeys = new HashSet<>();
+            if (getManager() != null) {
+                _notifyItemRangeChanged(0, size());
+            }
+        } else {
+            // Pending updates are already in the data list, rebind whatever may show stale values
+            boolean hadPendingUpdates = !pendingTickerKeys.isEmpty();
+            boundHolders = null;
+            pendingTickerKeys = null;
+            if (hadPendingUpdates) {
+                _notifyItemRangeChanged(0, size(), TICKER_PAYLOAD);
+            }
+        }
+    }
+
+    public boolean isTickerMode() {
+        return isTickerMode;
+    }
+
+    @Override
+    void onHolderBound(ViewHolder holder) {
+        if (boundHolders != null) {
+            boundHolders.add(holder);
+        }
+    }
+
+    @Override
+    void onHolderRecycled(ViewHolder holder) {
+        if (boundHolders != null) {
+            boundHolders.remove(holder);
+        }
+    }
+
+    private void enqueueTickerUpdate(@NonNull Data data) {
+        Object key = getItemKey(data);
+        pendingTickerKeys.add(key != null ? key : data);
+        SectionManager manager = getManager();
+        if (manager != null && !isTickerFlushScheduled) {
+            isTickerFlushScheduled = true;
+            manager.postOnAnimation(tickerFlushRunnable);
+        }
+    }
+
+    /**
+     * Notifies the adapter of the pending ticker updates of bound items, coalescing adjacent
+     * positions into ranges.
+     */
+    private void flushTickerUpdates() {
+        SectionManager manager = getManager();
+        if (!isTickerMode || manager == null || pendingTickerKeys.isEmpty()) {
+            return;
+        }
+        int firstPosition = manager.getFirstItemAdapterPositionForSection(this);
+        int size = size();
+        int[] positions = new int[boundHolders.size()];
+        int count = 0;
+        for (ViewHolder holder : boundHolders) {
+            int adapterPosition = holder.getAdapterPosition();
+            if (adapterPosition == RecyclerView.NO_POSITION) {
+                // Removed, or rebound in full at the next layout anyway
+                continue;
+            }
+            int sectionPosition = adapterPosition - firstPosition;
+            if (sectionPosition >= 0 && sectionPosition < size) {
+                Data data = get(sectionPosition);
+                Object key = getItemKey(data);
+                if (pendingTickerKeys.contains(key != null ? key : data)) {
+                    positions[count++] = sectionPosition;
+                }
+            }
+        }
+        pendingTickerKeys.clear();
+        Arrays.sort(positions, 0, count);
+        int rangeStart = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || positions[i] != positions[i - 1] + 1) {
+                _notifyItemRangeChanged(
+                        positions[rangeStart],
+                        positions[i - 1] - positions[rangeStart] + 1,
+                        TICKER_PAYLOAD
+                );
+                rangeStart = i;
+            }
         }
     }
 
     @Override
     public void clearAndAdd(Data... datas) {
-        int oldSize, newSize;
+        int oldSize, newSize, oldDataSize;
+        boolean filtered = isFiltered();
+        List<Data> oldDataList = null;
         synchronized (writeLock) {
-            oldSize = dataList.size();
+            oldSize = size();
+            oldDataSize = dataList.size();
+            if (hasObservers()) {
+                oldDataList = new ArrayList<>(dataList);
+            }
             dataList.clear();
             Collections.addAll(dataList, datas);
+            // Evaluated again below
+            evaluation = null;
+            if (filtered) {
+                // Old filtered positions are meaningless for the new data. Until the filter has
+                // been evaluated against it, the first new Datas take the place of the old ones.
+                filteredSize = Math.min(oldSize, dataList.size());
+                for (int i = 0; i < filteredSize; i++) {
+                    filteredPositions[i] = i;
+                }
+            }
             updatePositionMapping();
-            newSize = dataList.size();
+            newSize = size();
         }
-        if (oldSize > newSize) {
+        dispatchDataReplaced(oldDataList, datas);
+        if (filtered) {
+            _notifyItemRangeChanged(0, newSize);
+            if (oldSize > newSize) {
+                _notifyItemRangeRemoved(newSize, oldSize - newSize);
+            }
+        } else if (oldSize > newSize) {
             _notifyItemRangeChanged(0, newSize);
             _notifyItemRangeRemoved(newSize, oldSize - newSize);
         } else if (newSize > oldSize) {
@@ -122,36 +427,647 @@ public abstract class MultiItemSection<Data, ViewHolder extends RecyclerView.Vie
         } else {
             _notifyItemRangeChanged(0, oldSize);
         }
+        if (filter != null) {
+            runFilter(filter, DataRanges.of(0, datas.length));
+        }
+        // Like the items, the first new Datas take the place of the old ones
+        if (oldDataSize > datas.length) {
+            _dispatchDataRangeRemoved(datas.length, oldDataSize - datas.length);
+        } else if (datas.length > oldDataSize) {
+            _dispatchDataRangeInserted(oldDataSize, datas.length - oldDataSize);
+        }
     }
 
     @Override
     public boolean contains(Data data) {
-        return data != null && dataList.contains(data);
+        return data != null && firstIndexOf(data) >= 0;
     }
 
     @Override
     public void clear() {
-        int oldSize;
+        int oldSize, oldDataSize;
+        List<Data> oldDataList = null;
         synchronized (writeLock) {
-            oldSize = dataList.size();
+            oldSize = size();
+            oldDataSize = dataList.size();
+            if (hasObservers()) {
+                oldDataList = new ArrayList<>(dataList);
+            }
             dataList.clear();
+            evaluation = null;
+            filteredSize = 0;
             updatePositionMapping();
         }
+        dispatchDataReplaced(oldDataList, null);
         _notifyItemRangeRemoved(0, oldSize);
+        _dispatchDataRangeRemoved(0, oldDataSize);
     }
 
     @Override
     public int firstIndexOf(@NonNull Data data) {
-        return dataList.indexOf(data);
+        return getSectionPositionForDataPosition(dataList.indexOf(data));
     }
 
     @Override
     public int lastIndexOf(@NonNull Data data) {
-        return dataList.lastIndexOf(data);
+        return getSectionPositionForDataPosition(dataList.lastIndexOf(data));
+    }
+
+    @Nullable
+    @Override
+    protected Data getItemForDiff(int sectionPosition) {
+        return get(sectionPosition);
     }
 
     @Override
     public int size() {
+        return isFiltered() ? filteredSize : dataList.size();
+    }
+
+    @Override
+    protected int getDataCount() {
         return dataList.size();
     }
+
+    /**
+     * Notifies {@link SectionObserver}s of the removal of {@param oldDataList} and the addition of
+     * {@param newDatas}. {@param oldDataList} is only captured if observers are registered.
+     */
+    private void dispatchDataReplaced(@Nullable List<Data> oldDataList, @Nullable Data[] newDatas) {
+        if (oldDataList != null) {
+            for (int i = 0; i < oldDataList.size(); i++) {
+                _dispatchDataRemoved(oldDataList.get(i));
+            }
+        }
+        if (newDatas != null && hasObservers()) {
+            for (Data data : newDatas) {
+                _dispatchDataAdded(data);
+            }
+        }
+    }
+
+    /**
+     * Sets the {@link Executor} on which {@link ItemFilter}s are evaluated. Defaults to a shared
+     * background {@link Executor}.
+     */
+    public void setFilterExecutor(@NonNull Executor filterExecutor) {
+        this.filterExecutor = filterExecutor;
+    }
+
+    /**
+     * Checks if an {@link ItemFilter} is currently applied to this {@link Section}.
+     */
+    public boolean isFiltered() {
+        return filteredPositions != null;
+    }
+
+    /**
+     * Displays only the {@link Data}s matched by {@param filter}. The filter is evaluated on the
+     * filter {@link Executor} without copying any {@link Data}s, and the displayed items are then
+     * updated on the main thread with range notifications for the {@link Data}s which have been
+     * hidden or revealed. Calling this method again before the previous evaluation completes
+     * cancels the previous evaluation. If {@param filter} {@link ItemFilter#narrows(ItemFilter)}
+     * the currently applied filter, only the currently displayed {@link Data}s are evaluated.
+     * <p>
+     * While a filter is applied, {@link Data}s which are added or replaced are evaluated in the
+     * background too, and only shown or hidden once their evaluation completes. Changes made while
+     * an evaluation runs are applied to its partial result rather than restarting it, and the
+     * changed {@link Data}s are evaluated next, so results are published even while {@link
+     * Data}s change continuously. After {@link #clearAndAdd(Object[])}, the first new {@link
+     * Data}s are displayed in place of the old ones until the filter has been evaluated against
+     * all of them.
+     * <p>
+     * Must be called from the main thread.
+     *
+     * @param filter {@link ItemFilter} to apply, or null to display all {@link Data}s again.
+     * @see #setFilterExecutor(Executor)
+     */
+    public void filter(@Nullable ItemFilter<Data> filter) {
+        this.filter = filter;
+        if (filter != null) {
+            DataRanges dataRanges;
+            synchronized (writeLock) {
+                if (isFiltered() && evaluation == null && filter.narrows(appliedFilter)) {
+                    dataRanges = new DataRanges();
+                    for (int i = 0; i < filteredSize; i++) {
+                        dataRanges.add(filteredPositions[i], filteredPositions[i] + 1);
+                    }
+                } else {
+                    dataRanges = DataRanges.of(0, dataList.size());
+                }
+            }
+            runFilter(filter, dataRanges);
+        } else {
+            synchronized (writeLock) {
+                evaluation = null;
+            }
+            if (isFiltered()) {
+                int[] oldPositions = filteredPositions;
+                int oldSize = filteredSize;
+                synchronized (writeLock) {
+                    filteredPositions = null;
+                    filteredSize = 0;
+                    appliedFilter = null;
+                    updatePositionMapping();
+                }
+                dispatchFilterUpdates(oldPositions, oldSize, null, dataList.size());
+            }
+        }
+    }
+
+    /**
+     * Evaluates the requested filter against the {@link Data}s between {@param fromDataPosition}
+     * and {@param toDataPosition} in {@link #dataList}, keeping the displayed positions outside of
+     * that range. If an evaluation is still pending, the range is added to it instead.
+     */
+    private void filterRange(int fromDataPosition, int toDataPosition) {
+        ItemFilter<Data> filter = this.filter;
+        if (filter == null || fromDataPosition >= toDataPosition) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (evaluation != null) {
+                evaluation.pending.add(fromDataPosition, toDataPosition);
+                return;
+            }
+        }
+        runFilter(filter, DataRanges.of(fromDataPosition, toDataPosition));
+    }
+
+    /**
+     * Evaluates {@param filter} against the {@link Data}s at {@param dataRanges} on the filter
+     * {@link Executor}, cancelling any pending evaluation, and publishes the result on the main
+     * thread.
+     */
+    private void runFilter(@NonNull ItemFilter<Data> filter, @NonNull DataRanges dataRanges) {
+        FilterEvaluation evaluation = new FilterEvaluation(filter, dataRanges);
+        synchronized (writeLock) {
+            this.evaluation = evaluation;
+        }
+        filterExecutor.execute(evaluation);
+    }
+
+    /**
+     * Applies the result of {@param evaluation}, unless it has been cancelled. Displayed positions
+     * which have been evaluated are replaced by the matching ones, the others are kept. {@link
+     * Data}s changed since the evaluation completed are evaluated next.
+     */
+    private void publishFilterResult(@NonNull FilterEvaluation evaluation) {
+        int[] oldPositions;
+        int oldSize;
+        int[] newPositions;
+        int newSize;
+        FilterEvaluation nextEvaluation = null;
+        synchronized (writeLock) {
+            if (this.evaluation != evaluation) {
+                return;
+            }
+            int[] matches = evaluation.matches;
+            int matchCount = evaluation.matchCount;
+            Arrays.sort(matches, 0, matchCount);
+            DataRanges evaluated = evaluation.evaluated;
+            oldPositions = filteredPositions;
+            oldSize = size();
+            newPositions = new int[oldSize + matchCount];
+            newSize = 0;
+            int matchIndex = 0;
+            int rangeIndex = 0;
+            for (int i = 0; i < oldSize; i++) {
+                int dataPosition = positionAt(oldPositions, i);
+                while (rangeIndex < evaluated.size()
+                        && evaluated.getEnd(rangeIndex) <= dataPosition) {
+                    rangeIndex++;
+                }
+                if (rangeIndex < evaluated.size()
+                        && evaluated.getStart(rangeIndex) <= dataPosition) {
+                    continue;
+                }
+                while (matchIndex < matchCount && matches[matchIndex] < dataPosition) {
+                    newPositions[newSize++] = matches[matchIndex++];
+                }
+                newPositions[newSize++] = dataPosition;
+            }
+            while (matchIndex < matchCount) {
+                newPositions[newSize++] = matches[matchIndex++];
+            }
+            filteredPositions = newPositions;
+            filteredSize = newSize;
+            appliedFilter = evaluation.filter;
+            updatePositionMapping();
+            if (!evaluation.pending.isEmpty()) {
+                nextEvaluation = new FilterEvaluation(evaluation.filter, evaluation.pending);
+            }
+            this.evaluation = nextEvaluation;
+        }
+        dispatchFilterUpdates(oldPositions, oldSize, newPositions, newSize);
+        if (nextEvaluation != null) {
+            filterExecutor.execute(nextEvaluation);
+        }
+    }
+
+    /**
+     * Notifies the adapter of the difference between two ascending arrays of data positions with
+     * the minimum number of range notifications. A null array stands for all positions in {@link
+     * #dataList}.
+     */
+    private void dispatchFilterUpdates(
+            @Nullable int[] oldPositions,
+            int oldSize,
+            @Nullable int[] newPositions,
+            int newSize
+    ) {
+        int oldIndex = 0, newIndex = 0, itemPosition = 0;
+        while (oldIndex < oldSize || newIndex < newSize) {
+            int oldPosition = oldIndex < oldSize
+                    ? positionAt(oldPositions, oldIndex)
+                    : Integer.MAX_VALUE;
+            int newPosition = newIndex < newSize
+                    ? positionAt(newPositions, newIndex)
+                    : Integer.MAX_VALUE;
+            if (oldPosition == newPosition) {
+                oldIndex++;
+                newIndex++;
+                itemPosition++;
+            } else if (oldPosition < newPosition) {
+                int count = 0;
+                while (oldIndex < oldSize && positionAt(oldPositions, oldIndex) < newPosition) {
+                    oldIndex++;
+                    count++;
+                }
+                _notifyItemRangeRemoved(itemPosition, count);
+            } else {
+                int count = 0;
+                while (newIndex < newSize && positionAt(newPositions, newIndex) < oldPosition) {
+                    newIndex++;
+                    count++;
+                }
+                _notifyItemRangeInserted(itemPosition, count);
+                itemPosition += count;
+            }
+        }
+    }
+
+    private static int positionAt(@Nullable int[] positions, int index) {
+        return positions != null ? positions[index] : index;
+    }
+
+    @Override
+    boolean hasFilteredPositions() {
+        return true;
+    }
+
+    /**
+     * Converts a position in this {@link Section} to a position in {@link #dataList}.
+     */
+    @Override
+    protected int getDataPosition(int itemPosition) {
+        if (isFiltered()) {
+            if (itemPosition < 0 || itemPosition >= filteredSize) {
+                throw new IndexOutOfBoundsException(
+                        "Invalid position " + itemPosition + ", size is " + filteredSize);
+            }
+            return filteredPositions[itemPosition];
+        }
+        return itemPosition;
+    }
+
+    /**
+     * Converts a position in {@link #dataList} to a position in this {@link Section}.
+     *
+     * @return position in this {@link Section}, or -1 if the {@link Data} is not displayed.
+     */
+    @Override
+    protected int getSectionPositionForDataPosition(int dataPosition) {
+        if (dataPosition < 0 || !isFiltered()) {
+            return dataPosition;
+        }
+        int itemPosition = binarySearchFilteredPositions(dataPosition);
+        return itemPosition >= 0 ? itemPosition : -1;
+    }
+
+    private int binarySearchFilteredPositions(int dataPosition) {
+        return Arrays.binarySearch(filteredPositions, 0, filteredSize, dataPosition);
+    }
+
+    /**
+     * Offsets all filtered data positions from {@param fromIndex} onwards which are greater than
+     * or equal to {@param dataPosition} by {@param offset}.
+     */
+    private void shiftFilteredPositions(int fromIndex, int dataPosition, int offset) {
+        for (int i = fromIndex; i < filteredSize; i++) {
+            if (filteredPositions[i] >= dataPosition) {
+                filteredPositions[i] += offset;
+            }
+        }
+    }
+
+    private void removeFilteredPosition(int index) {
+        System.arraycopy(
+                filteredPositions,
+                index + 1,
+                filteredPositions,
+                index,
+                filteredSize - index - 1
+        );
+        filteredSize--;
+    }
+
+    /**
+     * An evaluation of an {@link ItemFilter} against ranges of {@link #dataList}, run a chunk at a
+     * time under {@link #writeLock}. Changes to {@link #dataList} are applied to its state as they
+     * happen, through {@link #onInserted(int, int)}, {@link #onRemoved(int, int)} and {@link
+     * #onChanged(int)}, so its positions always refer to the current {@link #dataList}.
+     */
+    private class FilterEvaluation implements Runnable {
+
+        @NonNull final ItemFilter<Data> filter;
+
+        /**
+         * Data positions which remain to be evaluated.
+         */
+        @NonNull final DataRanges pending;
+
+        /**
+         * Data positions which have been evaluated, and whose matches are in {@link #matches}.
+         */
+        @NonNull final DataRanges evaluated = new DataRanges();
+
+        @NonNull int[] matches = new int[16];
+
+        int matchCount;
+
+        FilterEvaluation(@NonNull ItemFilter<Data> filter, @NonNull DataRanges pending) {
+            this.filter = filter;
+            this.pending = pending;
+        }
+
+        /**
+         * Evaluates as many {@link Data}s as were pending when it started, and leaves those added
+         * since to the next evaluation, so that it completes even while {@link Data}s are added
+         * faster than they can be evaluated.
+         */
+        @Override
+        public void run() {
+            int remaining = -1;
+            while (true) {
+                synchronized (writeLock) {
+                    if (evaluation != this) {
+                        // Cancelled
+                        return;
+                    }
+                    if (remaining < 0) {
+                        remaining = pending.count();
+                    }
+                    if (pending.isEmpty() || remaining == 0) {
+                        break;
+                    }
+                    int start = pending.getStart(0);
+                    int end = Math.min(
+                            pending.getEnd(0),
+                            start + Math.min(FILTER_CHUNK_SIZE, remaining)
+                    );
+                    remaining -= end - start;
+                    for (int dataPosition = start; dataPosition < end; dataPosition++) {
+                        if (filter.matches(dataList.get(dataPosition))) {
+                            if (matchCount == matches.length) {
+                                matches = Arrays.copyOf(matches, matchCount * 2);
+                            }
+                            matches[matchCount++] = dataPosition;
+                        }
+                    }
+                    pending.remove(start, end);
+                    evaluated.add(start, end);
+                }
+            }
+            SectionExecutors.mainThread().post(new Runnable() {
+                @Override
+                public void run() {
+                    publishFilterResult(FilterEvaluation.this);
+                }
+            });
+        }
+
+        /**
+         * Called under {@link #writeLock} when {@param count} {@link Data}s have been inserted at
+         * {@param dataPosition}.
+         */
+        void onInserted(int dataPosition, int count) {
+            pending.insert(dataPosition, count);
+            evaluated.insert(dataPosition, count);
+            for (int i = 0; i < matchCount; i++) {
+                if (matches[i] >= dataPosition) {
+                    matches[i] += count;
+                }
+            }
+        }
+
+        /**
+         * Called under {@link #writeLock} when {@param count} {@link Data}s have been removed from
+         * {@param dataPosition}.
+         */
+        void onRemoved(int dataPosition, int count) {
+            pending.delete(dataPosition, count);
+            evaluated.delete(dataPosition, count);
+            int kept = 0;
+            for (int i = 0; i < matchCount; i++) {
+                if (matches[i] >= dataPosition + count) {
+                    matches[kept++] = matches[i] - count;
+                } else if (matches[i] < dataPosition) {
+                    matches[kept++] = matches[i];
+                }
+            }
+            matchCount = kept;
+        }
+
+        /**
+         * Called under {@link #writeLock} when the {@link Data} at {@param dataPosition} has been
+         * replaced, so that its result is discarded. It is added to {@link #pending} by {@link
+         * #filterRange(int, int)}.
+         */
+        void onChanged(int dataPosition) {
+            if (evaluated.contains(dataPosition)) {
+                evaluated.remove(dataPosition, dataPosition + 1);
+                int kept = 0;
+                for (int i = 0; i < matchCount; i++) {
+                    if (matches[i] != dataPosition) {
+                        matches[kept++] = matches[i];
+                    }
+                }
+                matchCount = kept;
+            }
+        }
+    }
+
+    /**
+     * Ascending, disjoint and non-adjacent ranges of data positions.
+     */
+    private static class DataRanges {
+
+        /**
+         * Start and end, exclusive, of every range in turn.
+         */
+        @NonNull private int[] bounds = new int[8];
+
+        private int size;
+
+        @NonNull
+        static DataRanges of(int start, int end) {
+            DataRanges ranges = new DataRanges();
+            ranges.add(start, end);
+            return ranges;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the number of positions in all ranges.
+         */
+        int count() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                count += getEnd(i) - getStart(i);
+            }
+            return count;
+        }
+
+        int getStart(int index) {
+            return bounds[index * 2];
+        }
+
+        int getEnd(int index) {
+            return bounds[index * 2 + 1];
+        }
+
+        boolean contains(int position) {
+            int index = indexOfFirstEndAfter(position);
+            return index < size && getStart(index) <= position;
+        }
+
+        /**
+         * Adds the range between {@param start} and {@param end}, merging it with the ranges it
+         * overlaps or touches. Takes constant time when appending.
+         */
+        void add(int start, int end) {
+            if (start >= end) {
+                return;
+            }
+            if (size > 0 && start >= getStart(size - 1)) {
+                if (start <= getEnd(size - 1)) {
+                    bounds[size * 2 - 1] = Math.max(end, getEnd(size - 1));
+                    return;
+                }
+            }
+            // First range which ends at or after start, and first range which starts after end
+            int first = indexOfFirstEndAfter(start - 1);
+            int last = first;
+            while (last < size && getStart(last) <= end) {
+                last++;
+            }
+            if (first < last) {
+                start = Math.min(start, getStart(first));
+                end = Math.max(end, getEnd(last - 1));
+            }
+            replace(first, last, new int[]{start, end}, 1);
+        }
+
+        /**
+         * Removes the positions between {@param start} and {@param end}, splitting the range
+         * which contains them if needed.
+         */
+        void remove(int start, int end) {
+            if (start >= end) {
+                return;
+            }
+            int first = indexOfFirstEndAfter(start);
+            int last = first;
+            while (last < size && getStart(last) < end) {
+                last++;
+            }
+            if (first == last) {
+                return;
+            }
+            int[] kept = new int[4];
+            int keptCount = 0;
+            if (getStart(first) < start) {
+                kept[keptCount * 2] = getStart(first);
+                kept[keptCount * 2 + 1] = start;
+                keptCount++;
+            }
+            if (getEnd(last - 1) > end) {
+                kept[keptCount * 2] = end;
+                kept[keptCount * 2 + 1] = getEnd(last - 1);
+                keptCount++;
+            }
+            replace(first, last, kept, keptCount);
+        }
+
+        /**
+         * Shifts the ranges for {@param count} positions inserted at {@param position}. The
+         * inserted positions are not part of any range.
+         */
+        void insert(int position, int count) {
+            int index = indexOfFirstEndAfter(position);
+            if (index < size && getStart(index) < position) {
+                // Split the range containing position
+                int end = getEnd(index);
+                replace(index, index + 1, new int[]{getStart(index), position, position, end}, 2);
+                index++;
+            }
+            for (int i = index * 2; i < size * 2; i++) {
+                bounds[i] += count;
+            }
+        }
+
+        /**
+         * Removes the {@param count} positions from {@param position} and shifts the ranges
+         * after them.
+         */
+        void delete(int position, int count) {
+            remove(position, position + count);
+            int index = indexOfFirstEndAfter(position);
+            for (int i = index * 2; i < size * 2; i++) {
+                bounds[i] -= count;
+            }
+            if (index > 0 && index < size && getEnd(index - 1) == getStart(index)) {
+                replace(index - 1, index + 1, new int[]{getStart(index - 1), getEnd(index)}, 1);
+            }
+        }
+
+        /**
+         * Returns the index of the first range which ends after {@param position}, or {@link
+         * #size} if there is none.
+         */
+        private int indexOfFirstEndAfter(int position) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (getEnd(mid) <= position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Replaces the ranges from index {@param first} up to {@param last}, exclusive, with the
+         * first {@param count} ranges in {@param newBounds}.
+         */
+        private void replace(int first, int last, @NonNull int[] newBounds, int count) {
+            int newSize = size - (last - first) + count;
+            if (newSize * 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, Math.max(newSize * 2, bounds.length * 2));
+            }
+            System.arraycopy(bounds, last * 2, bounds, (first + count) * 2, (size - last) * 2);
+            System.arraycopy(newBounds, 0, bounds, first * 2, count * 2);
+            size = newSize;
+        }
+    }
 }
@@ -0,0 +1,318 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies large mutations to the {@link Section}s of a {@link SectionManager} in chunks spread
+ * over several animation frames, so that adding thousands of {@link Section}s or items does not
+ * stall the main thread.
+ * <p>
+ * Each frame, queued mutations are applied in chunks until the frame budget is spent. Chunk sizes
+ * adapt to the measured cost per item. Mutations closest to the visible items of the {@link
+ * RecyclerView} are applied first, while mutations targeting the same {@link Section} are always
+ * applied in the order they were scheduled. Every chunk goes through the regular {@link
+ * MultiItemSection#add(Object[])} and {@link SectionManager#addAll(Section...)} paths, so the
+ * position mappings and the adapter are up to date between chunks.
+ * <p>
+ * All methods must be called from the main thread.
+ */
+public class MutationScheduler {
+
+    /**
+     * Invoked on the main thread once all chunks of a mutation have been applied.
+     */
+    public interface Callback {
+
+        void onComplete();
+    }
+
+    /**
+     * Default time, in milliseconds, spent applying mutations per frame.
+     */
+    public static final long DEFAULT_FRAME_BUDGET_MS = 4;
+
+    /**
+     * Minimum number of items applied in a single chunk.
+     */
+    private static final int MIN_CHUNK_SIZE = 8;
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final List<Task> tasks;
+
+    private long frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FRAME_BUDGET_MS);
+
+    /**
+     * Moving estimate of the time taken to apply a single item.
+     */
+    private long nanosPerItem;
+
+    private boolean isFrameScheduled;
+
+    @NonNull private final Runnable frameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isFrameScheduled = false;
+            doFrame();
+        }
+    };
+
+    public MutationScheduler(@NonNull SectionManager sectionManager) {
+        this.sectionManager = sectionManager;
+        this.tasks = new ArrayList<>();
+    }
+
+    /**
+     * Sets the time spent applying mutations per frame. Defaults to {@link
+     * #DEFAULT_FRAME_BUDGET_MS}.
+     */
+    public void setFrameBudget(long frameBudgetMillis) {
+        this.frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(frameBudgetMillis);
+    }
+
+    /**
+     * Schedules {@param datas} to be appended to {@param section} in chunks.
+     *
+     * @param section  {@link MultiItemSection} to add the {@link Data}s to
+     * @param datas    {@link Data}s to add. The list must not be modified until the returned
+     *                 {@link Task} completes.
+     * @param callback optional {@link Callback} invoked once all {@link Data}s have been added.
+     * @return {@link Task} which can be used to cancel the remaining chunks.
+     */
+    @NonNull
+    public <Data> Task add(
+            @NonNull MultiItemSection<Data, ?> section,
+            @NonNull List<Data> datas,
+            @Nullable Callback callback
+    ) {
+        return schedule(new AddItemsTask<>(section, datas, callback));
+    }
+
+    /**
+     * Schedules {@param sections} to be appended to the {@link SectionManager} in chunks.
+     *
+     * @param sections {@link Section}s to add, in order
+     * @param callback optional {@link Callback} invoked once all {@link Section}s have been added.
+     * @return {@link Task} which can be used to cancel the remaining chunks.
+     */
+    @NonNull
+    public Task addAll(@NonNull List<? extends Section> sections, @Nullable Callback callback) {
+        return schedule(new AddSectionsTask(sections, callback));
+    }
+
+    /**
+     * Cancels all scheduled mutations. Chunks which have already been applied are kept.
+     */
+    public void cancelAll() {
+        for (Task task : new ArrayList<>(tasks)) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Checks if any mutations are waiting to be applied.
+     */
+    public boolean hasPendingTasks() {
+        return !tasks.isEmpty();
+    }
+
+    @NonNull
+    private Task schedule(@NonNull Task task) {
+        tasks.add(task);
+        scheduleFrame();
+        return task;
+    }
+
+    private void scheduleFrame() {
+        if (!isFrameScheduled && !tasks.isEmpty()) {
+            isFrameScheduled = true;
+            sectionManager.postOnAnimation(frameRunnable);
+        }
+    }
+
+    private void doFrame() {
+        long frameStart = System.nanoTime();
+        long elapsed = 0;
+        while (!tasks.isEmpty() && elapsed < frameBudgetNanos) {
+            Task task = nextTask();
+            int chunkSize = MIN_CHUNK_SIZE;
+            if (nanosPerItem > 0) {
+                chunkSize = (int) Math.max(
+                        MIN_CHUNK_SIZE,
+                        Math.min(Integer.MAX_VALUE, (frameBudgetNanos - elapsed) / nanosPerItem)
+                );
+            }
+            long chunkStart = System.nanoTime();
+            int applied = task.applyChunk(chunkSize);
+            long chunkTime = System.nanoTime() - chunkStart;
+            if (applied > 0) {
+                long chunkNanosPerItem = Math.max(1, chunkTime / applied);
+                nanosPerItem = nanosPerItem == 0
+                        ? chunkNanosPerItem
+                        : (nanosPerItem + chunkNanosPerItem) / 2;
+            }
+            if (task.isDone()) {
+                tasks.remove(task);
+                task.complete();
+            }
+            elapsed = System.nanoTime() - frameStart;
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * Returns the earliest scheduled {@link Task} among those closest to the visible items.
+     */
+    @NonNull
+    private Task nextTask() {
+        Task nextTask = null;
+        int minDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            int distance = task.getDistanceFromVisibleItems();
+            if (distance < minDistance) {
+                minDistance = distance;
+                nextTask = task;
+            }
+        }
+        return nextTask != null ? nextTask : tasks.get(0);
+    }
+
+    /**
+     * A mutation scheduled on a {@link MutationScheduler}.
+     */
+    public abstract class Task {
+
+        @Nullable private final Callback callback;
+
+        private boolean isCancelled;
+
+        private Task(@Nullable Callback callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Cancels the chunks of this mutation which have not been applied yet.
+         */
+        public void cancel() {
+            if (!isCancelled && tasks.remove(this)) {
+                isCancelled = true;
+            }
+        }
+
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+
+        /**
+         * Checks if all chunks of this mutation have been applied.
+         */
+        public abstract boolean isDone();
+
+        /**
+         * Applies up to {@param maxItems} items and returns the number of items applied.
+         */
+        abstract int applyChunk(int maxItems);
+
+        /**
+         * Returns the distance, in items, between the position this mutation applies to and the
+         * visible items.
+         */
+        abstract int getDistanceFromVisibleItems();
+
+        private void complete() {
+            if (callback != null) {
+                callback.onComplete();
+            }
+        }
+    }
+
+    private class AddItemsTask<Data> extends Task {
+
+        @NonNull private final MultiItemSection<Data, ?> section;
+
+        @NonNull private final List<Data> datas;
+
+        private int nextIndex;
+
+        AddItemsTask(
+                @NonNull MultiItemSection<Data, ?> section,
+                @NonNull List<Data> datas,
+                @Nullable Callback callback
+        ) {
+            super(callback);
+            this.section = section;
+            this.datas = datas;
+        }
+
+        @Override
+        public boolean isDone() {
+            return nextIndex >= datas.size();
+        }
+
+        @Override
+        int applyChunk(int maxItems) {
+            int end = (int) Math.min((long) nextIndex + maxItems, datas.size());
+            int count = end - nextIndex;
+            if (count > 0) {
+                section.addAll(datas.subList(nextIndex, end));
+                nextIndex = end;
+            }
+            return count;
+        }
+
+        @Override
+        int getDistanceFromVisibleItems() {
+            return sectionManager.contains(section)
+                    ? sectionManager.getDistanceFromVisibleItems(section)
+                    : Integer.MAX_VALUE - 1;
+        }
+    }
+
+    private class AddSectionsTask extends Task {
+
+        @NonNull private final Section[] sections;
+
+        private int nextIndex;
+
+        AddSectionsTask(@NonNull List<? extends Section> sections, @Nullable Callback callback) {
+            super(callback);
+            this.sections = sections.toArray(new Section[sections.size()]);
+        }
+
+        @Override
+        public boolean isDone() {
+            return nextIndex >= sections.length;
+        }
+
+        @Override
+        int applyChunk(int maxItems) {
+            // Chunks are sized by items, so Sections are added until their items fill the chunk
+            int end = nextIndex;
+            int itemCount = 0;
+            while (end < sections.length && (end == nextIndex || itemCount < maxItems)) {
+                itemCount += sections[end].size();
+                end++;
+            }
+            sectionManager.addAll(Arrays.copyOfRange(sections, nextIndex, end));
+            nextIndex = end;
+            return Math.max(1, itemCount);
+        }
+
+        @Override
+        int getDistanceFromVisibleItems() {
+            int lastVisible = sectionManager.findLastVisibleItemPosition();
+            if (lastVisible == RecyclerView.NO_POSITION) {
+                return 0;
+            }
+            return Math.max(0, sectionManager.getItemCount() - lastVisible);
+        }
+    }
+}
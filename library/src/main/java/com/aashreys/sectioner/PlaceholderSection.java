@@ -0,0 +1,347 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Section} whose size is known before its {@link Data}s are. It reserves a number of
+ * positions up front, which are bound as placeholders until their {@link Data}s are filled in via
+ * {@link #fill(int, Object[])}. Filling is not a structural change: only the filled positions are
+ * notified as changed, so the {@link RecyclerView} does not re-layout and the {@link
+ * SectionManager} does not rebuild its position mappings.
+ */
+public abstract class PlaceholderSection<Data, ViewHolder extends RecyclerView.ViewHolder>
+        extends Section<Data, ViewHolder> {
+
+    private final Object writeLock = new Object();
+
+    /**
+     * {@link Data}s of this {@link Section}, null at positions which are placeholders.
+     */
+    @NonNull protected final List<Data> dataList;
+
+    /**
+     * Creates a {@link PlaceholderSection} with {@param placeholderCount} placeholders.
+     */
+    public PlaceholderSection(int placeholderCount) {
+        super();
+        this.dataList = new ArrayList<>(Collections.<Data>nCopies(placeholderCount, null));
+    }
+
+    /**
+     * Binds a placeholder {@link android.view.View}, such as a skeleton, for a position whose
+     * {@link Data} has not been filled in yet.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindPlaceholder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    /**
+     * Binds the {@link android.view.View} for a position whose {@link Data} has been filled in.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link
+     *                        #createViewHolder(android.view.ViewGroup)}
+     * @param data            {@link Data} at {@param sectionPosition}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     */
+    protected abstract void bindViewHolder(
+            ViewHolder holder,
+            @NonNull Data data,
+            int sectionPosition,
+            int adapterPosition
+    );
+
+    @Override
+    protected final void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition
+    ) {
+        Data data = dataList.get(sectionPosition);
+        if (data != null) {
+            bindViewHolder(holder, data, sectionPosition, adapterPosition);
+        } else {
+            bindPlaceholder(holder, sectionPosition, adapterPosition);
+        }
+    }
+
+    /**
+     * Returns the {@link Data} at a position, or null if the position is still a placeholder.
+     */
+    @Nullable
+    public Data get(int position) {
+        return dataList.get(position);
+    }
+
+    /**
+     * Checks if a position is still a placeholder.
+     */
+    public boolean isPlaceholder(int position) {
+        return dataList.get(position) == null;
+    }
+
+    /**
+     * Fills in {@link Data}s for consecutive positions, starting at {@param position}, and notifies
+     * the adapter that those positions have changed.
+     *
+     * @param position position of the first {@link Data}
+     * @param datas    {@link Data}s to fill in
+     * @throws IndexOutOfBoundsException if any of the positions are not reserved.
+     */
+    public void fill(int position, @NonNull Data... datas) {
+        fillAll(position, Arrays.asList(datas));
+    }
+
+    /**
+     * Fills in {@param datas} like {@link #fill(int, Object[])}. Used by callers holding a {@link
+     * List}, since an array of {@link Data} cannot be created from it without casting an {@code
+     * Object[]}, which fails in subclasses binding {@link Data}.
+     */
+    void fillAll(int position, @NonNull List<? extends Data> datas) {
+        if (position < 0 || position + datas.size() > dataList.size()) {
+            throw new IndexOutOfBoundsException("Cannot fill " + datas.size()
+                    + " items at position " + position + ", size is " + dataList.size());
+        }
+        List<Data> oldDatas = setRange(position, datas);
+        dispatchDataReplaced(oldDatas, datas);
+        _notifyItemRangeChanged(position, datas.size());
+    }
+
+    /**
+     * Turns every position back into a placeholder, keeping the size of this {@link Section}. The
+     * adapter is notified of a change to the positions which held {@link Data}s.
+     */
+    public void clearToPlaceholders() {
+        int firstFilled = -1, lastFilled = -1;
+        List<Data> oldDatas = new ArrayList<>();
+        synchronized (writeLock) {
+            for (int i = 0; i < dataList.size(); i++) {
+                Data data = dataList.get(i);
+                if (data != null) {
+                    oldDatas.add(data);
+                    dataList.set(i, null);
+                    firstFilled = firstFilled < 0 ? i : firstFilled;
+                    lastFilled = i;
+                }
+            }
+        }
+        for (int i = 0; i < oldDatas.size(); i++) {
+            _dispatchDataRemoved(oldDatas.get(i));
+        }
+        if (firstFilled >= 0) {
+            _notifyItemRangeChanged(firstFilled, lastFilled - firstFilled + 1);
+        }
+    }
+
+    /**
+     * Appends {@param count} placeholders to this {@link Section} and notifies the adapter.
+     */
+    public void addPlaceholders(int count) {
+        int oldSize;
+        synchronized (writeLock) {
+            oldSize = dataList.size();
+            dataList.addAll(Collections.<Data>nCopies(count, null));
+            updatePositionMapping();
+        }
+        _notifyItemRangeInserted(oldSize, count);
+    }
+
+    @Override
+    public void add(@NonNull Data... datas) {
+        int oldSize;
+        synchronized (writeLock) {
+            oldSize = dataList.size();
+            Collections.addAll(dataList, datas);
+            updatePositionMapping();
+        }
+        dispatchDataReplaced(null, Arrays.asList(datas));
+        _notifyItemRangeInserted(oldSize, datas.length);
+    }
+
+    @Override
+    public void add(int position, @NonNull Data data) {
+        synchronized (writeLock) {
+            dataList.add(position, data);
+            updatePositionMapping();
+        }
+        _dispatchDataAdded(data);
+        _notifyItemAdded(position);
+    }
+
+    @Override
+    public void remove(@NonNull Data data) {
+        int position = firstIndexOf(data);
+        if (position >= 0) {
+            remove(position);
+        }
+    }
+
+    @Override
+    public void remove(int position) {
+        Data removedData;
+        synchronized (writeLock) {
+            removedData = dataList.remove(position);
+            updatePositionMapping();
+        }
+        if (removedData != null) {
+            _dispatchDataRemoved(removedData);
+        }
+        _notifyItemRemoved(position);
+    }
+
+    @Override
+    public void replace(@NonNull Data data, boolean notifyAdapter) {
+        int position = firstIndexOf(data);
+        if (position >= 0) {
+            replace(position, data, notifyAdapter);
+        }
+    }
+
+    @Override
+    public void replace(int position, @NonNull Data data, boolean notifyAdapter) {
+        List<Data> newDatas = Collections.singletonList(data);
+        List<Data> oldDatas = setRange(position, newDatas);
+        dispatchDataReplaced(oldDatas, newDatas);
+        if (notifyAdapter) {
+            _notifyItemReplaced(position);
+        } else {
+            _markDataChanged();
+        }
+    }
+
+    @Override
+    public void clearAndAdd(Data... datas) {
+        clearAndAddAll(Arrays.asList(datas));
+    }
+
+    /**
+     * Replaces all {@link Data}s with {@param datas} like {@link #clearAndAdd(Object[])}, for
+     * callers holding a {@link List}.
+     */
+    void clearAndAddAll(@NonNull List<? extends Data> datas) {
+        int oldSize, newSize;
+        List<Data> oldDatas;
+        synchronized (writeLock) {
+            oldSize = dataList.size();
+            oldDatas = new ArrayList<>(dataList);
+            dataList.clear();
+            dataList.addAll(datas);
+            updatePositionMapping();
+            newSize = dataList.size();
+        }
+        for (int i = 0; i < oldDatas.size(); i++) {
+            if (oldDatas.get(i) != null) {
+                _dispatchDataRemoved(oldDatas.get(i));
+            }
+        }
+        dispatchDataReplaced(null, datas);
+        if (oldSize > newSize) {
+            _notifyItemRangeChanged(0, newSize);
+            _notifyItemRangeRemoved(newSize, oldSize - newSize);
+        } else if (newSize > oldSize) {
+            _notifyItemRangeChanged(0, oldSize);
+            _notifyItemRangeInserted(oldSize, newSize - oldSize);
+        } else {
+            _notifyItemRangeChanged(0, oldSize);
+        }
+    }
+
+    @Override
+    public boolean contains(Data data) {
+        return data != null && dataList.contains(data);
+    }
+
+    @Override
+    public void clear() {
+        int oldSize;
+        List<Data> oldDatas;
+        synchronized (writeLock) {
+            oldSize = dataList.size();
+            oldDatas = new ArrayList<>(dataList);
+            dataList.clear();
+            updatePositionMapping();
+        }
+        for (int i = 0; i < oldDatas.size(); i++) {
+            if (oldDatas.get(i) != null) {
+                _dispatchDataRemoved(oldDatas.get(i));
+            }
+        }
+        _notifyItemRangeRemoved(0, oldSize);
+    }
+
+    @Override
+    public int firstIndexOf(@NonNull Data data) {
+        return dataList.indexOf(data);
+    }
+
+    @Override
+    public int lastIndexOf(@NonNull Data data) {
+        return dataList.lastIndexOf(data);
+    }
+
+    @Nullable
+    @Override
+    protected Data getItemForDiff(int sectionPosition) {
+        return get(sectionPosition);
+    }
+
+    @Override
+    public int size() {
+        return dataList.size();
+    }
+
+    /**
+     * Sets consecutive positions to {@param datas} and returns the {@link Data}s they held.
+     */
+    @NonNull
+    private List<Data> setRange(int position, @NonNull List<? extends Data> datas) {
+        List<Data> oldDatas = new ArrayList<>(datas.size());
+        synchronized (writeLock) {
+            for (int i = 0; i < datas.size(); i++) {
+                oldDatas.add(dataList.set(position + i, datas.get(i)));
+            }
+        }
+        return oldDatas;
+    }
+
+    /**
+     * Notifies {@link SectionObserver}s of the removal of the non-null {@param oldDatas} and the
+     * addition of the non-null {@param newDatas}.
+     */
+    private void dispatchDataReplaced(
+            @Nullable List<? extends Data> oldDatas,
+            @Nullable List<? extends Data> newDatas
+    ) {
+        if (!hasObservers()) {
+            return;
+        }
+        if (oldDatas != null) {
+            for (int i = 0; i < oldDatas.size(); i++) {
+                if (oldDatas.get(i) != null) {
+                    _dispatchDataRemoved(oldDatas.get(i));
+                }
+            }
+        }
+        if (newDatas != null) {
+            for (int i = 0; i < newDatas.size(); i++) {
+                if (newDatas.get(i) != null) {
+                    _dispatchDataAdded(newDatas.get(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts {@link Data}s to and from the binary records stored by a {@link MappedRecordSection}.
+ */
+public interface RecordCodec<Data> {
+
+    /**
+     * Returned by {@link #getRecordLength()} by codecs whose records differ in length.
+     */
+    int VARIABLE_LENGTH = -1;
+
+    /**
+     * Returns the length, in bytes, of every record, or {@link #VARIABLE_LENGTH}. Records of a
+     * fixed length need no index and can be replaced in place.
+     */
+    int getRecordLength();
+
+    /**
+     * Returns the length, in bytes, of the record for {@param data}. Only called if {@link
+     * #getRecordLength()} returns {@link #VARIABLE_LENGTH}.
+     */
+    int getEncodedLength(@NonNull Data data);
+
+    /**
+     * Decodes a {@link Data} from {@param record}, whose position and limit span exactly one
+     * record. May be called from any thread. The returned {@link Data} must copy the bytes it
+     * needs and must not keep a reference to {@param record} or to a slice or view of it, such as
+     * for lazy decoding: the mapping behind it is released as soon as the file grows or is
+     * closed, and reading it afterwards crashes the process.
+     */
+    @NonNull
+    Data decode(@NonNull ByteBuffer record);
+
+    /**
+     * Encodes {@param data} into {@param record}, whose position and limit span exactly as many
+     * bytes as the record occupies. Must not keep a reference to {@param record}.
+     */
+    void encode(@NonNull Data data, @NonNull ByteBuffer record);
+}
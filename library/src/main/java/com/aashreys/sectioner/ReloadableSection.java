@@ -0,0 +1,216 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link PlaceholderSection} whose {@link Data}s can be loaded again at any time, such as from a
+ * database or a disk cache, and which can therefore drop them under memory pressure. Releasing
+ * turns every position back into a placeholder, keeping the size of this {@link Section} and
+ * hence the position mappings of the {@link SectionManager}.
+ * <p>
+ * {@link ReloadableSection}s are released by {@link SectionManager#trimMemory(int)} and reloaded
+ * transparently once the visible items of the {@link RecyclerView} come within the reload
+ * distance of them.
+ */
+public abstract class ReloadableSection<Data, ViewHolder extends RecyclerView.ViewHolder>
+        extends PlaceholderSection<Data, ViewHolder> {
+
+    /**
+     * Default distance, in items, from the visible items within which released {@link Data}s are
+     * reloaded. {@link Section}s within this distance are never released.
+     */
+    public static final int DEFAULT_RELOAD_DISTANCE = 20;
+
+    /**
+     * Default estimated memory held by a single {@link Data}, in bytes.
+     */
+    public static final int DEFAULT_ESTIMATED_ITEM_BYTES = 1024;
+
+    private int reloadDistance = DEFAULT_RELOAD_DISTANCE;
+
+    private int estimatedItemBytes = DEFAULT_ESTIMATED_ITEM_BYTES;
+
+    @NonNull private Executor executor = SectionExecutors.background();
+
+    private boolean isReleased;
+
+    private boolean isReloading;
+
+    /**
+     * Incremented on every release so that reloads started before it are discarded.
+     */
+    private int releaseGeneration;
+
+    /**
+     * Creates a {@link ReloadableSection} with {@param placeholderCount} placeholders.
+     *
+     * @see PlaceholderSection#PlaceholderSection(int)
+     */
+    public ReloadableSection(int placeholderCount) {
+        super(placeholderCount);
+    }
+
+    /**
+     * Loads the {@link Data}s of every position of this {@link Section} again. Called on a
+     * background thread after this {@link Section} has been released.
+     *
+     * @return {@link Data}s in order. If their number differs from {@link #size()} the adapter is
+     * notified of the difference.
+     */
+    @NonNull
+    protected abstract List<Data> reloadData();
+
+    /**
+     * Sets the distance, in items, from the visible items within which released {@link Data}s are
+     * reloaded. Defaults to {@link #DEFAULT_RELOAD_DISTANCE}.
+     */
+    public void setReloadDistance(int reloadDistance) {
+        this.reloadDistance = reloadDistance;
+        SectionManager manager = getManager();
+        if (manager != null) {
+            manager.getReloadableSectionReloader().onReloadDistanceChanged(reloadDistance);
+        }
+    }
+
+    public int getReloadDistance() {
+        return reloadDistance;
+    }
+
+    /**
+     * Sets the estimated memory held by a single {@link Data}, used to decide how many {@link
+     * Section}s {@link SectionManager#trimMemory(int)} releases. Defaults to {@link
+     * #DEFAULT_ESTIMATED_ITEM_BYTES}.
+     */
+    public void setEstimatedItemBytes(int estimatedItemBytes) {
+        this.estimatedItemBytes = estimatedItemBytes;
+    }
+
+    /**
+     * Returns the estimated memory released by {@link #release()}, in bytes. Override for a more
+     * precise estimate, for example one based on the {@link Data}s themselves.
+     */
+    protected long getEstimatedBytes() {
+        return isReleased ? 0 : (long) estimatedItemBytes * size();
+    }
+
+    /**
+     * Sets the {@link Executor} on which {@link #reloadData()} is called. Defaults to a shared
+     * background {@link Executor}.
+     */
+    public void setReloadExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Checks if the {@link Data}s of this {@link Section} have been released and not reloaded yet.
+     */
+    public boolean isReleased() {
+        return isReleased;
+    }
+
+    /**
+     * Drops all {@link Data}s, keeping the size of this {@link Section}. Must be called from the
+     * main thread.
+     */
+    public void release() {
+        if (isReleased) {
+            return;
+        }
+        isReleased = true;
+        isReloading = false;
+        releaseGeneration++;
+        clearToPlaceholders();
+        SectionManager manager = getManager();
+        if (manager != null) {
+            manager.getReloadableSectionReloader().onReloadDistanceChanged(reloadDistance);
+        }
+    }
+
+    /**
+     * Reloads the {@link Data}s of this {@link Section} if it has been released. Does nothing if
+     * they are already being reloaded. Must be called from the main thread.
+     */
+    public void reload() {
+        if (!isReleased || isReloading) {
+            return;
+        }
+        isReloading = true;
+        final int generation = releaseGeneration;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Data> datas = reloadData();
+                SectionExecutors.mainThread().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == releaseGeneration && isReloading) {
+                            publishReloadedData(datas);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void publishReloadedData(@NonNull List<Data> datas) {
+        isReloading = false;
+        isReleased = false;
+        if (datas.size() == size()) {
+            fillAll(0, datas);
+        } else {
+            clearAndAddAll(datas);
+        }
+    }
+
+    /**
+     * Reloads the released {@link ReloadableSection}s of a {@link SectionManager} which come
+     * within their reload distance of the visible items.
+     */
+    static class Reloader extends SectionVisibilityTracker.Listener {
+
+        @NonNull private final SectionManager sectionManager;
+
+        /**
+         * Largest reload distance of any released {@link ReloadableSection}.
+         */
+        private int maxReloadDistance;
+
+        Reloader(@NonNull SectionManager sectionManager) {
+            this.sectionManager = sectionManager;
+            sectionManager.getVisibilityTracker().addListener(this);
+        }
+
+        void onReloadDistanceChanged(int reloadDistance) {
+            maxReloadDistance = Math.max(maxReloadDistance, reloadDistance);
+        }
+
+        @Override
+        public void onVisibleRangeChanged(int firstVisiblePosition, int lastVisiblePosition) {
+            int itemCount = sectionManager.getItemCount();
+            if (firstVisiblePosition == RecyclerView.NO_POSITION || itemCount == 0) {
+                return;
+            }
+            int firstSection = sectionManager.getSectionPositionForAdapterPosition(
+                    Math.max(0, firstVisiblePosition - maxReloadDistance)
+            );
+            int lastSection = sectionManager.getSectionPositionForAdapterPosition(
+                    Math.min(itemCount - 1, lastVisiblePosition + maxReloadDistance)
+            );
+            for (int i = firstSection; i <= lastSection; i++) {
+                Section section = sectionManager.get(i);
+                if (section instanceof ReloadableSection) {
+                    ReloadableSection reloadableSection = (ReloadableSection) section;
+                    if (reloadableSection.isReleased()
+                            && sectionManager.getDistanceFromVisibleItems(reloadableSection)
+                            <= reloadableSection.getReloadDistance()) {
+                        reloadableSection.reload();
+                    }
+                }
+            }
+        }
+    }
+}
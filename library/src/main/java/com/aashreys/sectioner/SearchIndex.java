@@ -0,0 +1,664 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A prefix index over the {@link Data}s of several {@link MultiItemSection}s, used to search
+ * across all of them at once. Text is extracted from each {@link Data} via a {@link
+ * TextExtractor} and split into lower case words, each of which is stored in a sorted map so that
+ * all words starting with a query term are found in logarithmic time.
+ * <p>
+ * The initial index is built in parallel on a background {@link Executor} via {@link
+ * #build(Runnable)}. Afterwards the index is updated incrementally as {@link Data}s are added to,
+ * removed from or replaced in the indexed {@link Section}s. Removed {@link Data}s are only marked
+ * as such and purged from the word lists in a single pass once they outnumber the indexed ones, so
+ * that clearing a large {@link Section} does not scan the word lists once per {@link Data}. Query
+ * results can be displayed by a {@link SearchResultsSection}.
+ */
+public class SearchIndex {
+
+    /**
+     * Extracts the searchable text from a {@link Data}. Called on background threads.
+     */
+    public interface TextExtractor<Data> {
+
+        @Nullable
+        String getText(@NonNull Data data);
+    }
+
+    /**
+     * A single search result, pairing a {@link Data} with the {@link Section} it belongs to and
+     * its score for the query which returned it.
+     */
+    public static class Result {
+
+        @NonNull private final MultiItemSection section;
+
+        @NonNull private final Object data;
+
+        private final int textLength;
+
+        private final int score;
+
+        private Result(@NonNull Entry entry, int score) {
+            this.section = entry.section;
+            this.data = entry.data;
+            this.textLength = entry.textLength;
+            this.score = score;
+        }
+
+        /**
+         * Returns the {@link Section} containing {@link #getData()}, useful for choosing how to
+         * display this result.
+         */
+        @NonNull
+        public MultiItemSection getSection() {
+            return section;
+        }
+
+        @NonNull
+        public Object getData() {
+            return data;
+        }
+
+        /**
+         * Returns the score of this result for the query which returned it. Exact word matches
+         * score higher than prefix matches.
+         */
+        public int getScore() {
+            return score;
+        }
+    }
+
+    private static final int SCORE_PREFIX_MATCH = 1;
+
+    private static final int SCORE_EXACT_MATCH = 2;
+
+    /**
+     * Number of {@link Data}s tokenized by a single build task.
+     */
+    private static final int BUILD_CHUNK_SIZE = 2048;
+
+    private static final Comparator<Result> RESULT_COMPARATOR = new Comparator<Result>() {
+        @Override
+        public int compare(Result lhs, Result rhs) {
+            if (lhs.score != rhs.score) {
+                return lhs.score > rhs.score ? -1 : 1;
+            }
+            return lhs.textLength < rhs.textLength ? -1
+                    : (lhs.textLength == rhs.textLength ? 0 : 1);
+        }
+    };
+
+    private final Object lock = new Object();
+
+    @NonNull private final Map<MultiItemSection, TextExtractor> extractors;
+
+    @NonNull private final Map<MultiItemSection, IndexingObserver> observers;
+
+    /**
+     * Maps each indexed word to the {@link Entry}s whose text contains it, including removed
+     * {@link Entry}s which have not been purged yet.
+     */
+    @NonNull private TreeMap<String, List<Entry>> wordIndex;
+
+    /**
+     * Maps each indexed {@link Data} to the first of its {@link Entry}s, which are chained via
+     * {@link Entry#nextWithSameData} when equal {@link Data}s are indexed more than once.
+     */
+    @NonNull private Map<Object, Entry> entriesByData;
+
+    private int entryCount;
+
+    private int removedEntryCount;
+
+    /**
+     * Updates received while the index is being built, applied once the latest build completes.
+     */
+    @Nullable private List<PendingUpdate> pendingUpdates;
+
+    /**
+     * Incremented on every call to {@link #build(Runnable)}, so that only the latest build is
+     * installed.
+     */
+    private int buildGeneration;
+
+    /**
+     * Callbacks of the builds which have not completed yet, invoked once the latest one has been
+     * installed. Only accessed from the main thread.
+     */
+    @NonNull private final List<Runnable> onBuiltCallbacks = new ArrayList<>();
+
+    @NonNull private Executor executor = SectionExecutors.background();
+
+    public SearchIndex() {
+        this.extractors = new HashMap<>();
+        this.observers = new HashMap<>();
+        this.wordIndex = new TreeMap<>();
+        this.entriesByData = new HashMap<>();
+    }
+
+    /**
+     * Sets the {@link Executor} used to build the index. Defaults to a shared background {@link
+     * Executor}.
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a {@link MultiItemSection} to this index. Its {@link Data}s are indexed on the next call
+     * to {@link #build(Runnable)}, and changes to it are indexed as they happen from then on.
+     *
+     * @param section   {@link MultiItemSection} to index
+     * @param extractor {@link TextExtractor} for the {@link Data}s in {@param section}
+     */
+    public <Data> void addSection(
+            @NonNull MultiItemSection<Data, ?> section,
+            @NonNull TextExtractor<? super Data> extractor
+    ) {
+        synchronized (lock) {
+            extractors.put(section, extractor);
+        }
+    }
+
+    /**
+     * Removes a {@link MultiItemSection} and all of its {@link Data}s from this index.
+     */
+    @SuppressWarnings("unchecked")
+    public void removeSection(@NonNull MultiItemSection section) {
+        IndexingObserver observer;
+        synchronized (lock) {
+            extractors.remove(section);
+            observer = observers.remove(section);
+            Iterator<Map.Entry<Object, Entry>> iterator = entriesByData.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Object, Entry> mapEntry = iterator.next();
+                Entry head = null, tail = null;
+                for (Entry entry = mapEntry.getValue(); entry != null; ) {
+                    Entry next = entry.nextWithSameData;
+                    entry.nextWithSameData = null;
+                    if (entry.section == section) {
+                        markRemoved(entry);
+                    } else if (tail == null) {
+                        head = tail = entry;
+                    } else {
+                        tail.nextWithSameData = entry;
+                        tail = entry;
+                    }
+                    entry = next;
+                }
+                if (head != null) {
+                    mapEntry.setValue(head);
+                } else {
+                    iterator.remove();
+                }
+            }
+            purgeRemovedEntries();
+        }
+        // Observers are registered and unregistered outside the lock, since they are invoked while
+        // the Section holds its own observer lock
+        if (observer != null) {
+            section.unregisterObserver(observer);
+        }
+    }
+
+    /**
+     * Builds the index from the current {@link Data}s of all added {@link MultiItemSection}s.
+     * Tokenizing is split across the build {@link Executor} by {@link Section} and, for large
+     * {@link Section}s, by ranges of {@link Data}s. Must be called from the main thread, which is
+     * where {@param onBuilt} is invoked once the index is ready. If this method is called again
+     * before a build completes, the earlier build is never installed, and its callback is invoked
+     * along with the callback of the latest build once that one is installed.
+     *
+     * @param onBuilt optional callback invoked when the build completes.
+     */
+    @SuppressWarnings("unchecked")
+    public void build(@Nullable Runnable onBuilt) {
+        if (onBuilt != null) {
+            onBuiltCallbacks.add(onBuilt);
+        }
+        final List<BuildTask> tasks = new ArrayList<>();
+        final int generation;
+        Map<MultiItemSection, IndexingObserver> newObservers = new HashMap<>();
+        synchronized (lock) {
+            for (Map.Entry<MultiItemSection, TextExtractor> entry : extractors.entrySet()) {
+                if (!observers.containsKey(entry.getKey())) {
+                    newObservers.put(entry.getKey(), new IndexingObserver(entry.getValue()));
+                }
+            }
+        }
+        // Registered outside the lock, see removeSection(). New observers ignore updates until
+        // they are added to the observers map below, along with capturing the Data references.
+        for (Map.Entry<MultiItemSection, IndexingObserver> entry : newObservers.entrySet()) {
+            entry.getKey().registerObserver(entry.getValue());
+        }
+        List<MultiItemSection> removedSections = new ArrayList<>();
+        synchronized (lock) {
+            for (Map.Entry<MultiItemSection, IndexingObserver> entry : newObservers.entrySet()) {
+                if (extractors.containsKey(entry.getKey())) {
+                    observers.put(entry.getKey(), entry.getValue());
+                } else {
+                    // Removed from this index in the meantime
+                    removedSections.add(entry.getKey());
+                }
+            }
+            // Updates made until now are captured below, only later ones need to be applied
+            pendingUpdates = new ArrayList<>();
+            generation = ++buildGeneration;
+            for (Map.Entry<MultiItemSection, TextExtractor> entry : extractors.entrySet()) {
+                MultiItemSection section = entry.getKey();
+                // Data references are captured on this thread since the Sections may be modified
+                // while the build runs
+                Object[] datas = section.dataList.toArray();
+                for (int start = 0; start < datas.length; start += BUILD_CHUNK_SIZE) {
+                    tasks.add(new BuildTask(
+                            section,
+                            entry.getValue(),
+                            datas,
+                            start,
+                            Math.min(start + BUILD_CHUNK_SIZE, datas.length)
+                    ));
+                }
+            }
+        }
+        for (MultiItemSection section : removedSections) {
+            section.unregisterObserver(newObservers.get(section));
+        }
+        if (tasks.isEmpty()) {
+            completeBuild(
+                    generation,
+                    new TreeMap<String, List<Entry>>(),
+                    new HashMap<Object, Entry>(),
+                    0
+            );
+            return;
+        }
+        final AtomicInteger remainingTasks = new AtomicInteger(tasks.size());
+        for (final BuildTask task : tasks) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    task.run();
+                    if (remainingTasks.decrementAndGet() == 0) {
+                        // Last task to finish merges the partial indices
+                        final TreeMap<String, List<Entry>> index = new TreeMap<>();
+                        final Map<Object, Entry> byData = new HashMap<>();
+                        int count = 0;
+                        for (BuildTask finishedTask : tasks) {
+                            mergeInto(index, finishedTask.partialIndex);
+                            for (Entry entry : finishedTask.entries) {
+                                entry.nextWithSameData = byData.put(entry.data, entry);
+                            }
+                            count += finishedTask.entries.size();
+                        }
+                        final int entryCount = count;
+                        SectionExecutors.mainThread().post(new Runnable() {
+                            @Override
+                            public void run() {
+                                completeBuild(generation, index, byData, entryCount);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Installs the index built by the build of {@param generation}, unless a later build has been
+     * started since, and applies the updates received while it was built.
+     */
+    private void completeBuild(
+            int generation,
+            @NonNull TreeMap<String, List<Entry>> index,
+            @NonNull Map<Object, Entry> byData,
+            int count
+    ) {
+        synchronized (lock) {
+            if (generation != buildGeneration) {
+                // Superseded, the pending updates are kept for the latest build
+                return;
+            }
+            wordIndex = index;
+            entriesByData = byData;
+            entryCount = count;
+            removedEntryCount = 0;
+            List<PendingUpdate> updates = pendingUpdates;
+            pendingUpdates = null;
+            if (updates != null) {
+                for (PendingUpdate update : updates) {
+                    applyUpdate(update.section, update.extractor, update.data, update.added);
+                }
+            }
+        }
+        Runnable[] callbacks = onBuiltCallbacks.toArray(new Runnable[onBuiltCallbacks.size()]);
+        onBuiltCallbacks.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Searches the index for {@link Data}s containing words which start with every term in
+     * {@param query}. Results are ranked by the number of exact word matches, then by the length
+     * of their text.
+     *
+     * @param query      search query, split into terms the same way indexed text is.
+     * @param maxResults maximum number of results to return
+     * @return ranked {@link Result}s, empty if the query contains no terms.
+     */
+    @NonNull
+    public List<Result> search(@NonNull String query, int maxResults) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Entry, Integer> scores = null;
+        synchronized (lock) {
+            for (String term : terms) {
+                Map<Entry, Integer> termScores = new HashMap<>();
+                SortedMap<String, List<Entry>> matches
+                        = wordIndex.subMap(term, term + Character.MAX_VALUE);
+                for (Map.Entry<String, List<Entry>> match : matches.entrySet()) {
+                    int score = match.getKey().length() == term.length()
+                            ? SCORE_EXACT_MATCH
+                            : SCORE_PREFIX_MATCH;
+                    for (Entry entry : match.getValue()) {
+                        if (entry.isRemoved
+                                || (scores != null && !scores.containsKey(entry))) {
+                            // Removed, or did not match a previous term
+                            continue;
+                        }
+                        Integer termScore = termScores.get(entry);
+                        if (termScore == null || termScore < score) {
+                            termScores.put(entry, score);
+                        }
+                    }
+                }
+                if (scores != null) {
+                    for (Map.Entry<Entry, Integer> entry : termScores.entrySet()) {
+                        entry.setValue(entry.getValue() + scores.get(entry.getKey()));
+                    }
+                }
+                scores = termScores;
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        List<Result> results = new ArrayList<>(scores.size());
+        for (Map.Entry<Entry, Integer> entry : scores.entrySet()) {
+            results.add(new Result(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(results, RESULT_COMPARATOR);
+        return results.size() > maxResults ? results.subList(0, maxResults) : results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyUpdate(
+            @NonNull MultiItemSection section,
+            @NonNull TextExtractor extractor,
+            @NonNull Object data,
+            boolean added
+    ) {
+        if (added) {
+            String text = extractor.getText(data);
+            if (text == null) {
+                return;
+            }
+            Entry entry = new Entry(section, data, text.length());
+            for (String word : new LinkedHashSet<>(tokenize(text))) {
+                List<Entry> entries = wordIndex.get(word);
+                if (entries == null) {
+                    entries = new ArrayList<>(1);
+                    wordIndex.put(word, entries);
+                }
+                entries.add(entry);
+            }
+            entry.nextWithSameData = entriesByData.put(data, entry);
+            entryCount++;
+        } else {
+            Entry previous = null;
+            for (Entry entry = entriesByData.get(data); entry != null;
+                    entry = entry.nextWithSameData) {
+                if (entry.section == section) {
+                    if (previous != null) {
+                        previous.nextWithSameData = entry.nextWithSameData;
+                    } else if (entry.nextWithSameData != null) {
+                        entriesByData.put(data, entry.nextWithSameData);
+                    } else {
+                        entriesByData.remove(data);
+                    }
+                    entry.nextWithSameData = null;
+                    markRemoved(entry);
+                    if (removedEntryCount > entryCount) {
+                        purgeRemovedEntries();
+                    }
+                    return;
+                }
+                previous = entry;
+            }
+        }
+    }
+
+    private void markRemoved(@NonNull Entry entry) {
+        entry.isRemoved = true;
+        entryCount--;
+        removedEntryCount++;
+    }
+
+    /**
+     * Drops removed {@link Entry}s from every word list in a single pass.
+     */
+    private void purgeRemovedEntries() {
+        if (removedEntryCount == 0) {
+            return;
+        }
+        Iterator<List<Entry>> iterator = wordIndex.values().iterator();
+        while (iterator.hasNext()) {
+            List<Entry> entries = iterator.next();
+            int kept = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (!entry.isRemoved) {
+                    entries.set(kept++, entry);
+                }
+            }
+            if (kept == 0) {
+                iterator.remove();
+            } else {
+                entries.subList(kept, entries.size()).clear();
+            }
+        }
+        removedEntryCount = 0;
+    }
+
+    private static void mergeInto(
+            @NonNull TreeMap<String, List<Entry>> index,
+            @NonNull Map<String, List<Entry>> partialIndex
+    ) {
+        for (Map.Entry<String, List<Entry>> mapEntry : partialIndex.entrySet()) {
+            List<Entry> entries = index.get(mapEntry.getKey());
+            if (entries == null) {
+                index.put(mapEntry.getKey(), mapEntry.getValue());
+            } else {
+                entries.addAll(mapEntry.getValue());
+            }
+        }
+    }
+
+    /**
+     * A {@link Data} indexed under each of the words in its text.
+     */
+    private static class Entry {
+
+        @NonNull final MultiItemSection section;
+
+        @NonNull final Object data;
+
+        final int textLength;
+
+        boolean isRemoved;
+
+        @Nullable Entry nextWithSameData;
+
+        Entry(@NonNull MultiItemSection section, @NonNull Object data, int textLength) {
+            this.section = section;
+            this.data = data;
+            this.textLength = textLength;
+        }
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits.
+     */
+    @NonNull
+    static List<String> tokenize(@NonNull String text) {
+        List<String> words = new ArrayList<>();
+        String lowerCaseText = text.toLowerCase(Locale.getDefault());
+        int wordStart = -1;
+        for (int i = 0; i <= lowerCaseText.length(); i++) {
+            boolean isWordChar = i < lowerCaseText.length()
+                    && Character.isLetterOrDigit(lowerCaseText.charAt(i));
+            if (isWordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!isWordChar && wordStart >= 0) {
+                words.add(lowerCaseText.substring(wordStart, i));
+                wordStart = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Tokenizes a range of a {@link Section}'s {@link Data}s into a partial index.
+     */
+    private static class BuildTask implements Runnable {
+
+        @NonNull private final MultiItemSection section;
+
+        @NonNull private final TextExtractor extractor;
+
+        @NonNull private final Object[] datas;
+
+        private final int start, end;
+
+        @NonNull private final Map<String, List<Entry>> partialIndex = new HashMap<>();
+
+        @NonNull private final List<Entry> entries = new ArrayList<>();
+
+        BuildTask(
+                @NonNull MultiItemSection section,
+                @NonNull TextExtractor extractor,
+                @NonNull Object[] datas,
+                int start,
+                int end
+        ) {
+            this.section = section;
+            this.extractor = extractor;
+            this.datas = datas;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            Set<String> words = new LinkedHashSet<>();
+            for (int i = start; i < end; i++) {
+                String text = extractor.getText(datas[i]);
+                if (text == null) {
+                    continue;
+                }
+                Entry entry = new Entry(section, datas[i], text.length());
+                entries.add(entry);
+                words.clear();
+                words.addAll(tokenize(text));
+                for (String word : words) {
+                    List<Entry> wordEntries = partialIndex.get(word);
+                    if (wordEntries == null) {
+                        wordEntries = new ArrayList<>(1);
+                        partialIndex.put(word, wordEntries);
+                    }
+                    wordEntries.add(entry);
+                }
+            }
+        }
+    }
+
+    private static class PendingUpdate {
+
+        @NonNull final MultiItemSection section;
+
+        @NonNull final TextExtractor extractor;
+
+        @NonNull final Object data;
+
+        final boolean added;
+
+        PendingUpdate(
+                @NonNull MultiItemSection section,
+                @NonNull TextExtractor extractor,
+                @NonNull Object data,
+                boolean added
+        ) {
+            this.section = section;
+            this.extractor = extractor;
+            this.data = data;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Keeps the index in sync with a single indexed {@link Section}.
+     */
+    private class IndexingObserver extends SectionObserver {
+
+        @NonNull private final TextExtractor extractor;
+
+        IndexingObserver(@NonNull TextExtractor extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public void onDataAdded(@NonNull Section section, @NonNull Object data) {
+            update((MultiItemSection) section, data, true);
+        }
+
+        @Override
+        public void onDataRemoved(@NonNull Section section, @NonNull Object data) {
+            update((MultiItemSection) section, data, false);
+        }
+
+        private void update(@NonNull MultiItemSection section, @NonNull Object data, boolean added) {
+            synchronized (lock) {
+                if (observers.get(section) != this) {
+                    // Not added to, or already removed from, this index
+                    return;
+                }
+                if (pendingUpdates != null) {
+                    pendingUpdates.add(new PendingUpdate(section, extractor, data, added));
+                } else {
+                    applyUpdate(section, extractor, data, added);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * A {@link MultiItemSection} which displays the ranked {@link SearchIndex.Result}s of a query
+ * made against a {@link SearchIndex}. Use {@link SearchIndex.Result#getSection()} in {@link
+ * #bindViewHolder(RecyclerView.ViewHolder, int, int)} to tell apart results from different
+ * {@link Section}s.
+ */
+public abstract class SearchResultsSection<ViewHolder extends RecyclerView.ViewHolder>
+        extends MultiItemSection<SearchIndex.Result, ViewHolder> {
+
+    /**
+     * Default maximum number of results displayed.
+     */
+    public static final int DEFAULT_MAX_RESULTS = 50;
+
+    @NonNull private final SearchIndex searchIndex;
+
+    private final int maxResults;
+
+    public SearchResultsSection(@NonNull SearchIndex searchIndex) {
+        this(searchIndex, DEFAULT_MAX_RESULTS);
+    }
+
+    /**
+     * @param searchIndex {@link SearchIndex} to query
+     * @param maxResults  maximum number of results to display
+     */
+    public SearchResultsSection(@NonNull SearchIndex searchIndex, int maxResults) {
+        super();
+        this.searchIndex = searchIndex;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Queries the {@link SearchIndex} and replaces the displayed results with the new ones.
+     *
+     * @param query search query, an empty query clears the results.
+     * @see SearchIndex#search(String, int)
+     */
+    public void search(@NonNull String query) {
+        List<SearchIndex.Result> results = searchIndex.search(query, maxResults);
+        clearAndAdd(results.toArray(new SearchIndex.Result[results.size()]));
+    }
+}
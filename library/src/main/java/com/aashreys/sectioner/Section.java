@@ -3,9 +3,14 @@ package com.aashreys.sectioner;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A Section represents a collection of data items - {@link Data} - which correspond to a single
  * View Type in the RecyclerView Adapter.
@@ -20,10 +25,135 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
 
     private boolean isEnabled = true;
 
+    /**
+     * Number of columns this {@link Section}'s items are laid out in when displayed in a grid.
+     *
+     * @see #setColumnCount(int)
+     */
+    private int columnCount = COLUMN_COUNT_DEFAULT;
+
+    /**
+     * Incremented every time this {@link Section} notifies the adapter of a change, or writes its
+     * {@link Data}s without notifying. Used by caches such as {@link SectionSpanSizeLookup} and
+     * {@link SectionSnapshotCache} to invalidate only the entries belonging to this {@link
+     * Section}.
+     */
+    private volatile int changeCount;
+
+    @NonNull private final List<SectionObserver<Data>> observers = new ArrayList<>();
+
+    /**
+     * Column count which lets items occupy a single span each.
+     */
+    public static final int COLUMN_COUNT_DEFAULT = 0;
+
+    /**
+     * Item extent of {@link Section}s whose items have neither been given a fixed extent nor been
+     * measured yet.
+     */
+    public static final int EXTENT_UNKNOWN = -1;
+
+    /**
+     * Fixed extent of every item in pixels, or {@link #EXTENT_UNKNOWN}.
+     */
+    private int itemExtent = EXTENT_UNKNOWN;
+
+    /**
+     * Extents of items measured after layout, by section position, or null if none have been
+     * measured. Only used to average measurements without counting re-measured items twice. Not
+     * tracked for {@link Section}s with a fixed {@link #itemExtent}.
+     */
+    @Nullable private SparseIntArray measuredExtents;
+
+    private long measuredExtentSum;
+
+    /**
+     * Average measured extent before the last structural change, or {@link #EXTENT_UNKNOWN}.
+     */
+    private int previousAverageExtent = EXTENT_UNKNOWN;
+
+    /**
+     * Text drawn above the first item of this {@link Section} by a {@link SectionLabelDecoration}.
+     */
+    @Nullable private CharSequence label;
+
     public Section() {}
 
     void setManager(@Nullable SectionManager manager) {
+        RecyclerView oldRecyclerView = this.manager != null ? this.manager.getRecyclerView() : null;
         this.manager = manager;
+        RecyclerView newRecyclerView = manager != null ? manager.getRecyclerView() : null;
+        if (oldRecyclerView != newRecyclerView) {
+            if (oldRecyclerView != null) {
+                onDetachedFromRecyclerView(oldRecyclerView);
+            }
+            if (newRecyclerView != null) {
+                onAttachedToRecyclerView(newRecyclerView);
+            }
+        }
+    }
+
+    @Nullable
+    SectionManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Returns a key identifying the kind of {@link ViewHolder}s this {@link Section} creates.
+     * {@link Section}s with equal keys share an adapter view type, so that their {@link
+     * ViewHolder}s are recycled across them and any of them may bind a {@link ViewHolder} created
+     * by another. Returns this {@link Section} itself by default, so every instance has view
+     * types of its own.
+     * <p>
+     * Override to share {@link ViewHolder}s between instances which create identical ones, for
+     * example by returning the class of this {@link Section}, or the class together with the
+     * layout id the {@link ViewHolder}s are inflated from.
+     */
+    @NonNull
+    protected Object getViewTypeKey() {
+        return this;
+    }
+
+    /**
+     * Returns a key identifying this {@link Section} across different instances, used by {@link
+     * SectionManager#setSections(List)} to match the {@link Section}s of a new layout with the
+     * ones currently displayed. Returns this {@link Section} itself by default, so only the same
+     * instance is matched. Override to return a stable value such as a server provided id.
+     */
+    @NonNull
+    public Object getKey() {
+        return this;
+    }
+
+    /**
+     * Returns the {@link Data} at a position, used by {@link SectionManager#setSections(List)}
+     * to diff the items of matched {@link Section}s. Returns null by default, in which case items
+     * are matched by position and always treated as changed.
+     *
+     * @param sectionPosition position of the {@link Data} in this {@link Section}.
+     */
+    @Nullable
+    protected Data getItemForDiff(int sectionPosition) {
+        return null;
+    }
+
+    /**
+     * Returns a key identifying {@param data} across different instances, used to tell whether two
+     * {@link Data}s represent the same item when diffing. Returns {@param data} itself by default.
+     * Override to return an id, so that updated {@link Data}s are treated as changes rather than
+     * a removal and an insertion.
+     */
+    @Nullable
+    protected Object getItemKey(@NonNull Data data) {
+        return data;
+    }
+
+    /**
+     * Checks if two {@link Data}s with the same {@link #getItemKey(Object)} are displayed the same
+     * way, used when diffing. Uses {@link Object#equals(Object)} by default.
+     */
+    protected boolean areContentsTheSame(@NonNull Data oldData, @NonNull Data newData) {
+        return oldData.equals(newData);
     }
 
     /**
@@ -36,6 +166,27 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      */
     protected abstract ViewHolder createViewHolder(ViewGroup parent);
 
+    /**
+     * Returns the view type of the item at {@param sectionPosition}, for {@link Section}s which
+     * display more than one kind of {@link View}. View types only need to be unique within this
+     * {@link Section}; the {@link SectionManager} maps them to adapter view types which do not
+     * clash with those of other {@link Section}s. Returns 0 by default.
+     */
+    protected int getItemViewType(int sectionPosition) {
+        return 0;
+    }
+
+    /**
+     * Creates a {@link ViewHolder} for items of {@param itemViewType}, as returned by {@link
+     * #getItemViewType(int)}. Calls {@link #createViewHolder(ViewGroup)} by default.
+     *
+     * @param parent       - the parent RecyclerView.
+     * @param itemViewType - view type of this {@link Section} to create a {@link ViewHolder} for.
+     */
+    protected ViewHolder createViewHolder(ViewGroup parent, int itemViewType) {
+        return createViewHolder(parent);
+    }
+
     /**
      * Binds the {@link View} associated with this {@link Section}.
      *
@@ -49,6 +200,81 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
             int adapterPosition
     );
 
+    /**
+     * Binds the {@link View} associated with this {@link Section}, with the payloads of the changes
+     * which caused it to be rebound. Override to update only part of the {@link View} for known
+     * payloads. Calls {@link #bindViewHolder(RecyclerView.ViewHolder, int, int)} by default.
+     *
+     * @param holder          the {@link ViewHolder} created in {@link #createViewHolder(ViewGroup)}
+     * @param sectionPosition the position of {@link ViewHolder} in this section.
+     * @param adapterPosition the position of this {@link ViewHolder} in the adapter.
+     * @param payloads        payloads passed to {@link #_notifyItemRangeChanged(int, int, Object)},
+     *                        or an empty list if the {@link View} must be bound in full.
+     */
+    protected void bindViewHolder(
+            ViewHolder holder,
+            int sectionPosition,
+            int adapterPosition,
+            @NonNull List<Object> payloads
+    ) {
+        bindViewHolder(holder, sectionPosition, adapterPosition);
+    }
+
+    /**
+     * Called when a {@link ViewHolder} of this {@link Section} is recycled, for example to release
+     * resources held by its {@link View}.
+     */
+    protected void onViewRecycled(ViewHolder holder) {}
+
+    /**
+     * Called when the {@link View} of a {@link ViewHolder} of this {@link Section} has been
+     * attached to the window.
+     */
+    protected void onViewAttachedToWindow(ViewHolder holder) {}
+
+    /**
+     * Called when the {@link View} of a {@link ViewHolder} of this {@link Section} has been
+     * detached from the window.
+     */
+    protected void onViewDetachedFromWindow(ViewHolder holder) {}
+
+    /**
+     * Called when a {@link ViewHolder} of this {@link Section} cannot be recycled because of its
+     * transient state, such as a running animation.
+     *
+     * @return true to recycle it anyway, false to discard it. Returns false by default.
+     * @see RecyclerView.Adapter#onFailedToRecycleView(RecyclerView.ViewHolder)
+     */
+    protected boolean onFailedToRecycleView(ViewHolder holder) {
+        return false;
+    }
+
+    /**
+     * Called when this {@link Section} starts being displayed by {@param recyclerView}, either
+     * because it has been added to a {@link SectionManager} whose adapter is attached to it, or
+     * because that adapter has been attached.
+     */
+    protected void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {}
+
+    /**
+     * Called when this {@link Section} stops being displayed by {@param recyclerView}.
+     *
+     * @see #onAttachedToRecyclerView(RecyclerView)
+     */
+    protected void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {}
+
+    /**
+     * Called by the adapter before {@param holder} is bound. Used by implementations which need to
+     * know which {@link ViewHolder}s are currently bound.
+     */
+    void onHolderBound(ViewHolder holder) {}
+
+    /**
+     * Called by the adapter after {@param holder} has been recycled, or discarded because it could
+     * not be recycled.
+     */
+    void onHolderRecycled(ViewHolder holder) {}
+
     /**
      * Adds data {@link Data}s to the end of this {@link Section} and notifies the adapter.
      *
@@ -178,13 +404,359 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
         if (this.isEnabled != isEnabled) {
             this.isEnabled = isEnabled;
             updatePositionMapping();
+            // The items themselves are unchanged, so observers are not notified
             if (isEnabled) {
-                _notifyItemRangeInserted(0, size());
+                notifyAdapterItemRangeInserted(0, size());
             } else {
-                _notifyItemRangeRemoved(0, size());
+                notifyAdapterItemRangeRemoved(0, size());
+            }
+        }
+
+    }
+
+    /**
+     * Getter
+     *
+     * @return the number of columns set via {@link #setColumnCount(int)}, or {@link
+     * #COLUMN_COUNT_DEFAULT} if none was set.
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Sets the number of columns this {@link Section}'s items are laid out in when the {@link
+     * RecyclerView} uses a {@link android.support.v7.widget.GridLayoutManager} along with a {@link
+     * SectionSpanSizeLookup}. A column count of 1 makes every item span the full width of the
+     * grid, which is useful for headers and separators.
+     *
+     * @param columnCount number of columns, or {@link #COLUMN_COUNT_DEFAULT} for one span per item.
+     */
+    public void setColumnCount(int columnCount) {
+        if (this.columnCount != columnCount) {
+            this.columnCount = columnCount;
+            _notifyItemRangeChanged(0, size());
+        }
+    }
+
+    /**
+     * Returns the number of spans occupied by the item at a given position in this {@link
+     * Section} when displayed in a grid. The default implementation divides the spans equally
+     * between the columns set via {@link #setColumnCount(int)}. Override to vary the span size per
+     * item.
+     *
+     * @param sectionPosition position of the item in this {@link Section}.
+     * @param spanCount       total number of spans in the grid.
+     * @return number of spans occupied by the item, between 1 and {@param spanCount}.
+     * @see SectionSpanSizeLookup
+     */
+    protected int getSpanSize(int sectionPosition, int spanCount) {
+        return columnCount > 0 ? Math.max(1, spanCount / columnCount) : 1;
+    }
+
+    /**
+     * Sets a text label drawn above the first item of this {@link Section} by a {@link
+     * SectionLabelDecoration}, as a lightweight alternative to a header {@link Section} for
+     * headers which only display text. The label is not an item, so it needs neither a {@link
+     * View} nor an adapter position.
+     *
+     * @param label text of the label, or null for none.
+     */
+    public void setLabel(@Nullable CharSequence label) {
+        if (!TextUtils.equals(this.label, label)) {
+            this.label = label;
+            RecyclerView recyclerView = manager != null ? manager.getRecyclerView() : null;
+            if (recyclerView != null && !recyclerView.isComputingLayout()) {
+                // Offsets of the first item depend on the label
+                recyclerView.invalidateItemDecorations();
+            }
+        }
+    }
+
+    /**
+     * Returns the label set via {@link #setLabel(CharSequence)}, or null.
+     */
+    @Nullable
+    public CharSequence getLabel() {
+        return label;
+    }
+
+    /**
+     * Declares that every item of this {@link Section} has the same extent - its height in a
+     * vertical list or its width in a horizontal one - so that scroll offsets can be computed
+     * without measuring its items.
+     *
+     * @param itemExtent extent of every item in pixels, or {@link #EXTENT_UNKNOWN} to have items
+     *                   measured by a {@link SectionLinearLayoutManager} instead.
+     */
+    public void setItemExtent(int itemExtent) {
+        if (this.itemExtent != itemExtent) {
+            this.itemExtent = itemExtent;
+            measuredExtents = null;
+            measuredExtentSum = 0;
+            previousAverageExtent = EXTENT_UNKNOWN;
+            if (manager != null) {
+                manager.invalidateExtents();
+            }
+        }
+    }
+
+    /**
+     * Returns the extent set via {@link #setItemExtent(int)}, or {@link #EXTENT_UNKNOWN}.
+     */
+    public int getItemExtent() {
+        return itemExtent;
+    }
+
+    /**
+     * Records the measured extent of the item at {@param sectionPosition}, unless this {@link
+     * Section} has a fixed item extent.
+     *
+     * @return true if the recorded extents have changed.
+     */
+    boolean recordMeasuredExtent(int sectionPosition, int extent) {
+        if (itemExtent != EXTENT_UNKNOWN) {
+            return false;
+        }
+        if (measuredExtents == null) {
+            measuredExtents = new SparseIntArray();
+        }
+        int index = measuredExtents.indexOfKey(sectionPosition);
+        if (index >= 0) {
+            int oldExtent = measuredExtents.valueAt(index);
+            if (oldExtent == extent) {
+                return false;
+            }
+            measuredExtentSum -= oldExtent;
+        }
+        measuredExtents.put(sectionPosition, extent);
+        measuredExtentSum += extent;
+        return true;
+    }
+
+    /**
+     * Returns the extent of items which have not been measured: the fixed extent, the average
+     * measured extent, or {@param defaultExtent} if no item has been measured.
+     */
+    int getEstimatedItemExtent(int defaultExtent) {
+        if (itemExtent != EXTENT_UNKNOWN) {
+            return itemExtent;
+        }
+        if (measuredExtents != null && measuredExtents.size() > 0) {
+            return (int) (measuredExtentSum / measuredExtents.size());
+        }
+        return previousAverageExtent != EXTENT_UNKNOWN ? previousAverageExtent : defaultExtent;
+    }
+
+    /**
+     * Returns the total extent of this {@link Section}'s items. Items are treated as having the
+     * fixed or average extent, so that offsets within this {@link Section} are proportional to
+     * positions and can be converted in constant time.
+     */
+    long getExtent(int defaultExtent) {
+        return (long) getEstimatedItemExtent(defaultExtent) * size();
+    }
+
+    long getMeasuredExtentSum() {
+        return itemExtent != EXTENT_UNKNOWN ? 0 : measuredExtentSum;
+    }
+
+    int getMeasuredExtentCount() {
+        return itemExtent != EXTENT_UNKNOWN || measuredExtents == null
+                ? 0
+                : measuredExtents.size();
+    }
+
+    /**
+     * Discards measured extents, whose positions are no longer valid after a structural change
+     * within this {@link Section}, keeping their average as an estimate.
+     */
+    private void clearMeasuredExtents() {
+        if (measuredExtents != null) {
+            if (measuredExtents.size() > 0) {
+                previousAverageExtent = (int) (measuredExtentSum / measuredExtents.size());
+            }
+            measuredExtents = null;
+            measuredExtentSum = 0;
+        }
+    }
+
+    /**
+     * Returns the number of changes this {@link Section} has notified the adapter of or marked
+     * with {@link #_markDataChanged()} so far.
+     */
+    int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Helper method to record that the {@link Data}s of this {@link Section} have been written
+     * without notifying the adapter, such as by {@link #replace(int, Object, boolean)} with {@code
+     * notifyAdapter} false, so that caches keyed by the change count do not keep stale entries.
+     */
+    protected void _markDataChanged() {
+        changeCount++;
+    }
+
+    /**
+     * Registers a {@link SectionObserver} to be notified of changes to this {@link Section}'s
+     * {@link Data}s.
+     */
+    public void registerObserver(@NonNull SectionObserver<Data> observer) {
+        synchronized (observers) {
+            if (!observers.contains(observer)) {
+                observers.add(observer);
+            }
+        }
+    }
+
+    /**
+     * Unregisters a {@link SectionObserver} registered via {@link
+     * #registerObserver(SectionObserver)}.
+     */
+    public void unregisterObserver(@NonNull SectionObserver<Data> observer) {
+        synchronized (observers) {
+            observers.remove(observer);
+        }
+    }
+
+    /**
+     * Checks if any {@link SectionObserver}s are registered, so that implementations can skip
+     * work which is only needed to dispatch observer callbacks.
+     */
+    protected boolean hasObservers() {
+        return !observers.isEmpty();
+    }
+
+    /**
+     * Helper method to notify registered {@link SectionObserver}s that a {@link Data} has been
+     * added to this {@link Section}.
+     */
+    protected void _dispatchDataAdded(@NonNull Data data) {
+        synchronized (observers) {
+            for (int i = 0; i < observers.size(); i++) {
+                observers.get(i).onDataAdded(this, data);
+            }
+        }
+    }
+
+    /**
+     * Helper method to notify registered {@link SectionObserver}s that a {@link Data} has been
+     * removed from this {@link Section}.
+     */
+    protected void _dispatchDataRemoved(@NonNull Data data) {
+        synchronized (observers) {
+            for (int i = 0; i < observers.size(); i++) {
+                observers.get(i).onDataRemoved(this, data);
+            }
+        }
+    }
+
+    /**
+     * Helper method to notify registered {@link SectionObserver}s that {@link Data}s have been
+     * inserted at {@param dataPositionStart} among all {@link Data}s of this {@link Section}. Only
+     * needed by {@link Section}s which {@link #hasFilteredPositions()}, it is called by the
+     * {@code _notify} methods otherwise.
+     */
+    protected void _dispatchDataRangeInserted(int dataPositionStart, int itemCount) {
+        if (hasObservers()) {
+            synchronized (observers) {
+                for (int i = 0; i < observers.size(); i++) {
+                    observers.get(i).onDataRangeInserted(this, dataPositionStart, itemCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to notify registered {@link SectionObserver}s that {@link Data}s have been
+     * removed at {@param dataPositionStart} among all {@link Data}s of this {@link Section}.
+     *
+     * @see #_dispatchDataRangeInserted(int, int)
+     */
+    protected void _dispatchDataRangeRemoved(int dataPositionStart, int itemCount) {
+        if (hasObservers()) {
+            synchronized (observers) {
+                for (int i = 0; i < observers.size(); i++) {
+                    observers.get(i).onDataRangeRemoved(this, dataPositionStart, itemCount);
+                }
             }
         }
+    }
 
+    private void dispatchItemRangeInserted(int positionStart, int itemCount) {
+        if (hasObservers()) {
+            synchronized (observers) {
+                for (int i = 0; i < observers.size(); i++) {
+                    observers.get(i).onItemRangeInserted(this, positionStart, itemCount);
+                }
+            }
+            if (!hasFilteredPositions()) {
+                _dispatchDataRangeInserted(positionStart, itemCount);
+            }
+        }
+    }
+
+    private void dispatchItemRangeRemoved(int positionStart, int itemCount) {
+        if (hasObservers()) {
+            synchronized (observers) {
+                for (int i = 0; i < observers.size(); i++) {
+                    observers.get(i).onItemRangeRemoved(this, positionStart, itemCount);
+                }
+            }
+            if (!hasFilteredPositions()) {
+                _dispatchDataRangeRemoved(positionStart, itemCount);
+            }
+        }
+    }
+
+    /**
+     * Checks if the positions of this {@link Section} may differ from the positions of its {@link
+     * Data}s, for example because a filter hides some of them. Such {@link Section}s report the
+     * positions of their {@link Data}s to {@link SectionObserver}s themselves, via {@link
+     * #_dispatchDataRangeInserted(int, int)} and {@link #_dispatchDataRangeRemoved(int, int)}.
+     */
+    boolean hasFilteredPositions() {
+        return false;
+    }
+
+    /**
+     * Converts a position in this {@link Section} to the position of its {@link Data} among all
+     * {@link Data}s of this {@link Section}, including those hidden by a filter. Positions are the
+     * same unless this {@link Section} {@link #hasFilteredPositions()}.
+     */
+    protected int getDataPosition(int sectionPosition) {
+        return sectionPosition;
+    }
+
+    /**
+     * Converts the position of a {@link Data} among all {@link Data}s of this {@link Section} to
+     * its position in this {@link Section}, or returns -1 if it is hidden.
+     *
+     * @see #getDataPosition(int)
+     */
+    protected int getSectionPositionForDataPosition(int dataPosition) {
+        return dataPosition;
+    }
+
+    /**
+     * Returns the number of {@link Data}s of this {@link Section}, including those hidden by a
+     * filter.
+     *
+     * @see #getDataPosition(int)
+     */
+    protected int getDataCount() {
+        return size();
+    }
+
+    private void dispatchItemRangeChanged(int positionStart, int itemCount) {
+        if (hasObservers()) {
+            synchronized (observers) {
+                for (int i = 0; i < observers.size(); i++) {
+                    observers.get(i).onItemRangeChanged(this, positionStart, itemCount);
+                }
+            }
+        }
     }
 
     /**
@@ -205,6 +777,13 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      * @param itemCount            number of items that were inserted
      */
     protected void _notifyItemRangeInserted(int sectionStartPosition, int itemCount) {
+        notifyAdapterItemRangeInserted(sectionStartPosition, itemCount);
+        dispatchItemRangeInserted(sectionStartPosition, itemCount);
+    }
+
+    private void notifyAdapterItemRangeInserted(int sectionStartPosition, int itemCount) {
+        changeCount++;
+        clearMeasuredExtents();
         if (manager != null) {
             manager.getAdapter().notifyItemRangeInserted(
                     manager.getFirstItemAdapterPositionForSection(this) + sectionStartPosition,
@@ -221,6 +800,13 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      * @param itemCount            number of items that were removed
      */
     protected void _notifyItemRangeRemoved(int sectionStartPosition, int itemCount) {
+        notifyAdapterItemRangeRemoved(sectionStartPosition, itemCount);
+        dispatchItemRangeRemoved(sectionStartPosition, itemCount);
+    }
+
+    private void notifyAdapterItemRangeRemoved(int sectionStartPosition, int itemCount) {
+        changeCount++;
+        clearMeasuredExtents();
         if (manager != null) {
             manager.getAdapter().notifyItemRangeRemoved(
                     manager.getFirstItemAdapterPositionForSection(this) + sectionStartPosition,
@@ -237,12 +823,68 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      * @param itemCount            number of items that have changed
      */
     protected void _notifyItemRangeChanged(int sectionStartPosition, int itemCount) {
+        changeCount++;
         if (manager != null) {
             manager.getAdapter().notifyItemRangeChanged(
                     manager.getFirstItemAdapterPositionForSection(this) + sectionStartPosition,
                     itemCount
             );
         }
+        dispatchItemRangeChanged(sectionStartPosition, itemCount);
+    }
+
+    /**
+     * Helper method to notify the adapter for this {@link Section} that a range of {@link Data}s
+     * has been changed, with a payload for partial rebinding.
+     *
+     * @param sectionStartPosition section position of the first item that has changed
+     * @param itemCount            number of items that have changed
+     * @param payload              optional payload passed on to the adapter
+     */
+    protected void _notifyItemRangeChanged(
+            int sectionStartPosition,
+            int itemCount,
+            @Nullable Object payload
+    ) {
+        changeCount++;
+        if (manager != null) {
+            manager.getAdapter().notifyItemRangeChanged(
+                    manager.getFirstItemAdapterPositionForSection(this) + sectionStartPosition,
+                    itemCount,
+                    payload
+            );
+        }
+        dispatchItemRangeChanged(sectionStartPosition, itemCount);
+    }
+
+    /**
+     * Helper method to notify the adapter for this {@link Section} that an {@link Data} has been
+     * moved within this {@link Section}.
+     *
+     * @param fromPosition previous position of the {@link Data}.
+     * @param toPosition   new position of the {@link Data}.
+     */
+    protected void _notifyItemMoved(int fromPosition, int toPosition) {
+        changeCount++;
+        clearMeasuredExtents();
+        if (manager != null) {
+            int firstPosition = manager.getFirstItemAdapterPositionForSection(this);
+            manager.getAdapter().notifyItemMoved(
+                    firstPosition + fromPosition,
+                    firstPosition + toPosition
+            );
+        }
+        if (hasObservers()) {
+            boolean isDataMove = !hasFilteredPositions();
+            synchronized (observers) {
+                for (int i = 0; i < observers.size(); i++) {
+                    observers.get(i).onItemMoved(this, fromPosition, toPosition);
+                    if (isDataMove) {
+                        observers.get(i).onDataMoved(this, fromPosition, toPosition);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -252,11 +894,14 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      * @param itemPosition Position at which the {@link Data} was added.
      */
     protected void _notifyItemAdded(int itemPosition) {
+        changeCount++;
+        clearMeasuredExtents();
         if (manager != null) {
             manager.getAdapter().notifyItemInserted(
                     manager.getFirstItemAdapterPositionForSection(this) + itemPosition
             );
         }
+        dispatchItemRangeInserted(itemPosition, 1);
     }
 
     /**
@@ -266,11 +911,14 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      * @param itemPosition Position from which the {@link Data} was removed.
      */
     protected void _notifyItemRemoved(int itemPosition) {
+        changeCount++;
+        clearMeasuredExtents();
         if (manager != null) {
             manager.getAdapter().notifyItemRemoved(
                     manager.getFirstItemAdapterPositionForSection(this) + itemPosition
             );
         }
+        dispatchItemRangeRemoved(itemPosition, 1);
     }
 
     /**
@@ -280,11 +928,13 @@ public abstract class Section<Data, ViewHolder extends RecyclerView.ViewHolder>
      * @param itemPosition Position at which the {@link Data} was replaced.
      */
     protected void _notifyItemReplaced(int itemPosition) {
+        changeCount++;
         if (manager != null) {
             manager.getAdapter().notifyItemChanged(
                     manager.getFirstItemAdapterPositionForSection(this) + itemPosition
             );
         }
+        dispatchItemRangeChanged(itemPosition, 1);
     }
 
 }
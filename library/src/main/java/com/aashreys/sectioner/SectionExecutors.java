@@ -0,0 +1,100 @@
+package com.aashreys.sectioner;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the default {@link Executor}s used by {@link Section}s which do their work off the main
+ * thread. Background threads run at {@link Process#THREAD_PRIORITY_BACKGROUND} so that they do not
+ * compete with the UI thread.
+ */
+final class SectionExecutors {
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final int POOL_SIZE = Math.max(2, Math.min(CPU_COUNT - 1, 4));
+
+    private static Executor backgroundExecutor;
+
+    private static Handler mainThreadHandler;
+
+    private SectionExecutors() {}
+
+    /**
+     * Returns the shared background {@link Executor}.
+     */
+    @NonNull
+    static synchronized Executor background() {
+        if (backgroundExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    POOL_SIZE,
+                    POOL_SIZE,
+                    30,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new BackgroundThreadFactory()
+            );
+            executor.allowCoreThreadTimeOut(true);
+            backgroundExecutor = executor;
+        }
+        return backgroundExecutor;
+    }
+
+    /**
+     * Returns the number of threads in the shared background {@link Executor}. Useful for
+     * splitting work into as many parallel tasks.
+     */
+    static int backgroundParallelism() {
+        return POOL_SIZE;
+    }
+
+    /**
+     * Returns a {@link Handler} bound to the main thread.
+     */
+    @NonNull
+    static synchronized Handler mainThread() {
+        if (mainThreadHandler == null) {
+            mainThreadHandler = new Handler(Looper.getMainLooper());
+        }
+        return mainThreadHandler;
+    }
+
+    /**
+     * Runs {@param runnable} immediately if called from the main thread, else posts it to the main
+     * thread.
+     */
+    static void runOnMainThread(@NonNull Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainThread().post(runnable);
+        }
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "Sectioner #" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
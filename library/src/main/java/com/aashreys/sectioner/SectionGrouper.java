@@ -0,0 +1,440 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns a flat list of {@link Data}s into groups of {@link Section}s in a {@link SectionManager},
+ * such as a list of songs grouped under date or letter headers. Each group consists of an optional
+ * header {@link Section} followed by a {@link MultiItemSection} holding the group's {@link Data}s,
+ * and groups are ordered by their {@link Key}.
+ * <p>
+ * {@link #build(List, Callback)} partitions the {@link Data}s by {@link Key} and sorts every group
+ * in parallel on a background {@link Executor}, then creates all {@link Section}s and adds them to
+ * the {@link SectionManager} in a single batch, so the position mappings are built once. Afterwards
+ * {@link #add(Object[])} routes new {@link Data}s to the group of their {@link Key}, inserting
+ * them at their sorted position and creating the group if needed, without regrouping anything
+ * else.
+ * <p>
+ * All methods must be called from the main thread, and the {@link Section}s of the groups must
+ * not be moved within the {@link SectionManager} by other means.
+ */
+public class SectionGrouper<Data, Key> {
+
+    /**
+     * Returns the {@link Key} of the group a {@link Data} belongs to. Called on background threads.
+     */
+    public interface KeyExtractor<Data, Key> {
+
+        @NonNull
+        Key getKey(@NonNull Data data);
+    }
+
+    /**
+     * Creates the {@link Section}s of a group.
+     */
+    public interface SectionFactory<Data, Key> {
+
+        /**
+         * Creates the header of the group of {@param key}, or returns null if the group has none.
+         */
+        @Nullable
+        Section createHeaderSection(@NonNull Key key);
+
+        /**
+         * Creates the {@link MultiItemSection} holding the {@link Data}s of a group.
+         *
+         * @param key   {@link Key} of the group.
+         * @param datas sorted {@link Data}s of the group, which the returned {@link Section} may
+         *              keep as its data list.
+         */
+        @NonNull
+        MultiItemSection<Data, ?> createBodySection(@NonNull Key key, @NonNull List<Data> datas);
+    }
+
+    /**
+     * Invoked on the main thread once a build has been applied to the {@link SectionManager}.
+     */
+    public interface Callback {
+
+        void onComplete();
+    }
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final KeyExtractor<Data, Key> keyExtractor;
+
+    @NonNull private final Comparator<? super Key> keyComparator;
+
+    @Nullable private final Comparator<? super Data> dataComparator;
+
+    @NonNull private final SectionFactory<Data, Key> sectionFactory;
+
+    @NonNull private Executor executor = SectionExecutors.background();
+
+    /**
+     * Groups currently in the {@link SectionManager}, ordered by {@link Key}.
+     */
+    @NonNull private final TreeMap<Key, Group<Data>> groups;
+
+    /**
+     * Incremented on every build, so that only the latest build is applied.
+     */
+    private int buildGeneration;
+
+    /**
+     * @param sectionManager {@link SectionManager} to add the groups to.
+     * @param keyExtractor   returns the group {@link Key} of each {@link Data}.
+     * @param keyComparator  orders the groups.
+     * @param dataComparator orders the {@link Data}s within each group, or null to keep them in
+     *                       the order they were added in.
+     * @param sectionFactory creates the {@link Section}s of each group.
+     */
+    public SectionGrouper(
+            @NonNull SectionManager sectionManager,
+            @NonNull KeyExtractor<Data, Key> keyExtractor,
+            @NonNull Comparator<? super Key> keyComparator,
+            @Nullable Comparator<? super Data> dataComparator,
+            @NonNull SectionFactory<Data, Key> sectionFactory
+    ) {
+        this.sectionManager = sectionManager;
+        this.keyExtractor = keyExtractor;
+        this.keyComparator = keyComparator;
+        this.dataComparator = dataComparator;
+        this.sectionFactory = sectionFactory;
+        this.groups = new TreeMap<>(keyComparator);
+    }
+
+    /**
+     * Sets the {@link Executor} on which {@link Data}s are grouped and sorted. Defaults to a shared
+     * background {@link Executor}.
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Groups and sorts {@param datas} in parallel and replaces all groups created by this {@link
+     * SectionGrouper} with the result. If this method is called again before the result has been
+     * applied, the result is discarded.
+     *
+     * @param datas    {@link Data}s to group. The list must not be modified until the build has
+     *                 been applied.
+     * @param callback optional {@link Callback} invoked once the groups have been added.
+     */
+    public void build(@NonNull final List<Data> datas, @Nullable final Callback callback) {
+        final int generation = ++buildGeneration;
+        int parallelism = SectionExecutors.backgroundParallelism();
+        final int chunkCount = Math.max(1, Math.min(parallelism, datas.size() / 1024));
+        final List<Map<Key, List<Data>>> partitions = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            partitions.add(null);
+        }
+        final AtomicInteger remainingChunks = new AtomicInteger(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final int chunk = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    int start = (int) ((long) datas.size() * chunk / chunkCount);
+                    int end = (int) ((long) datas.size() * (chunk + 1) / chunkCount);
+                    Map<Key, List<Data>> partition = new HashMap<>();
+                    for (int j = start; j < end; j++) {
+                        Data data = datas.get(j);
+                        Key key = keyExtractor.getKey(data);
+                        List<Data> groupDatas = partition.get(key);
+                        if (groupDatas == null) {
+                            groupDatas = new ArrayList<>();
+                            partition.put(key, groupDatas);
+                        }
+                        groupDatas.add(data);
+                    }
+                    synchronized (partitions) {
+                        partitions.set(chunk, partition);
+                    }
+                    // The last partition to finish merges all of them
+                    if (remainingChunks.decrementAndGet() == 0) {
+                        List<Map<Key, List<Data>>> completedPartitions;
+                        synchronized (partitions) {
+                            completedPartitions = new ArrayList<>(partitions);
+                        }
+                        sortGroups(generation, mergePartitions(completedPartitions), callback);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds {@param datas} to the groups of their {@link Key}s, creating groups which do not exist
+     * yet. Each {@link Data} is inserted at its sorted position if a {@link Data} comparator has
+     * been set, or appended to its group otherwise.
+     */
+    public void add(@NonNull Data... datas) {
+        Map<Key, List<Data>> newGroups = new LinkedHashMap<>();
+        for (Data data : datas) {
+            Key key = keyExtractor.getKey(data);
+            Group<Data> group = groups.get(key);
+            if (group != null) {
+                insert(group.body, data);
+            } else {
+                List<Data> groupDatas = newGroups.get(key);
+                if (groupDatas == null) {
+                    groupDatas = new ArrayList<>();
+                    newGroups.put(key, groupDatas);
+                }
+                groupDatas.add(data);
+            }
+        }
+        for (Map.Entry<Key, List<Data>> entry : newGroups.entrySet()) {
+            if (dataComparator != null) {
+                Collections.sort(entry.getValue(), dataComparator);
+            }
+            addGroup(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the {@link MultiItemSection} holding the {@link Data}s of {@param key}, or null if
+     * there is no such group.
+     */
+    @Nullable
+    public MultiItemSection<Data, ?> getBodySection(@NonNull Key key) {
+        Group<Data> group = groups.get(key);
+        return group != null ? group.body : null;
+    }
+
+    /**
+     * Removes all groups created by this {@link SectionGrouper} from the {@link SectionManager}
+     * in one batch and cancels any pending build.
+     */
+    public void clear() {
+        buildGeneration++;
+        if (groups.isEmpty()) {
+            return;
+        }
+        int position = getFirstSectionPosition();
+        if (position >= 0) {
+            sectionManager.removeRange(position, position + getGroupSections().size());
+        } else {
+            for (Section section : getGroupSections()) {
+                sectionManager.remove(section);
+            }
+        }
+        groups.clear();
+    }
+
+    /**
+     * Returns the {@link Section}s of all groups, in order.
+     */
+    @NonNull
+    private List<Section> getGroupSections() {
+        List<Section> sections = new ArrayList<>(groups.size() * 2);
+        for (Group<Data> group : groups.values()) {
+            if (group.header != null) {
+                sections.add(group.header);
+            }
+            sections.add(group.body);
+        }
+        return sections;
+    }
+
+    /**
+     * Returns the position in the {@link SectionManager} of the first {@link Section} of the
+     * groups, or -1 if their {@link Section}s are not contiguous, which only happens if other
+     * {@link Section}s have been inserted between them.
+     */
+    private int getFirstSectionPosition() {
+        List<Section> sections = getGroupSections();
+        int position = sectionManager.indexOf(sections.get(0));
+        if (position < 0 || position + sections.size() > sectionManager.getSectionCount()) {
+            return -1;
+        }
+        for (int i = 1; i < sections.size(); i++) {
+            if (sectionManager.get(position + i) != sections.get(i)) {
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    @NonNull
+    private Map<Key, List<Data>> mergePartitions(@NonNull List<Map<Key, List<Data>>> partitions) {
+        Map<Key, List<Data>> merged = partitions.get(0);
+        for (int i = 1; i < partitions.size(); i++) {
+            for (Map.Entry<Key, List<Data>> entry : partitions.get(i).entrySet()) {
+                List<Data> groupDatas = merged.get(entry.getKey());
+                if (groupDatas == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    groupDatas.addAll(entry.getValue());
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Sorts the {@link Data}s of every group in parallel, then applies the groups on the main
+     * thread.
+     */
+    private void sortGroups(
+            final int generation,
+            @NonNull final Map<Key, List<Data>> groupDatas,
+            @Nullable final Callback callback
+    ) {
+        final List<List<Data>> groupLists = new ArrayList<>(groupDatas.values());
+        if (dataComparator == null || groupLists.isEmpty()) {
+            postGroups(generation, groupDatas, callback);
+            return;
+        }
+        final int chunkCount
+                = Math.min(SectionExecutors.backgroundParallelism(), groupLists.size());
+        final AtomicInteger remainingChunks = new AtomicInteger(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final int chunk = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = chunk; j < groupLists.size(); j += chunkCount) {
+                        Collections.sort(groupLists.get(j), dataComparator);
+                    }
+                    if (remainingChunks.decrementAndGet() == 0) {
+                        postGroups(generation, groupDatas, callback);
+                    }
+                }
+            });
+        }
+    }
+
+    private void postGroups(
+            final int generation,
+            @NonNull final Map<Key, List<Data>> groupDatas,
+            @Nullable final Callback callback
+    ) {
+        final TreeMap<Key, List<Data>> sortedGroups = new TreeMap<>(keyComparator);
+        sortedGroups.putAll(groupDatas);
+        SectionExecutors.mainThread().post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != buildGeneration) {
+                    return;
+                }
+                applyGroups(sortedGroups);
+                if (callback != null) {
+                    callback.onComplete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the current groups with {@param sortedGroups}, replacing the range of their {@link
+     * Section}s in one batch.
+     */
+    private void applyGroups(@NonNull TreeMap<Key, List<Data>> sortedGroups) {
+        int fromPosition = sectionManager.getSectionCount();
+        int toPosition = fromPosition;
+        if (!groups.isEmpty()) {
+            fromPosition = getFirstSectionPosition();
+            if (fromPosition >= 0) {
+                toPosition = fromPosition + getGroupSections().size();
+            } else {
+                // Not contiguous, remove them one by one and insert where the first one was
+                Group<Data> firstGroup = groups.firstEntry().getValue();
+                fromPosition = sectionManager.indexOf(
+                        firstGroup.header != null ? firstGroup.header : firstGroup.body
+                );
+                clear();
+                toPosition = fromPosition;
+            }
+            groups.clear();
+        }
+        for (Map.Entry<Key, List<Data>> entry : sortedGroups.entrySet()) {
+            createGroup(entry.getKey(), entry.getValue());
+        }
+        List<Section> sections = getGroupSections();
+        sectionManager.replaceRange(
+                fromPosition,
+                toPosition,
+                sections.toArray(new Section[sections.size()])
+        );
+    }
+
+    /**
+     * Creates a group and inserts its {@link Section}s after those of the preceding group.
+     */
+    private void addGroup(@NonNull Key key, @NonNull List<Data> datas) {
+        Map.Entry<Key, Group<Data>> nextEntry = groups.higherEntry(key);
+        Map.Entry<Key, Group<Data>> previousEntry = groups.lowerEntry(key);
+        int position;
+        if (nextEntry != null) {
+            Group<Data> next = nextEntry.getValue();
+            position = sectionManager.indexOf(next.header != null ? next.header : next.body);
+        } else if (previousEntry != null) {
+            position = sectionManager.indexOf(previousEntry.getValue().body) + 1;
+        } else {
+            position = sectionManager.getSectionCount();
+        }
+        Group<Data> group = createGroup(key, datas);
+        if (group.header != null) {
+            sectionManager.addAll(position, group.header, group.body);
+        } else {
+            sectionManager.addAll(position, group.body);
+        }
+    }
+
+    @NonNull
+    private Group<Data> createGroup(@NonNull Key key, @NonNull List<Data> datas) {
+        Group<Data> group = new Group<>(
+                sectionFactory.createHeaderSection(key),
+                sectionFactory.createBodySection(key, datas)
+        );
+        groups.put(key, group);
+        return group;
+    }
+
+    /**
+     * Inserts {@param data} into {@param body} at its sorted position, after any equal {@link
+     * Data}s, or appends it if there is no {@link Data} comparator.
+     */
+    private void insert(@NonNull MultiItemSection<Data, ?> body, @NonNull Data data) {
+        if (dataComparator == null) {
+            body.addAll(Collections.singletonList(data));
+            return;
+        }
+        int low = 0, high = body.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dataComparator.compare(body.get(mid), data) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        body.add(low, data);
+    }
+
+    private static class Group<Data> {
+
+        @Nullable final Section header;
+
+        @NonNull final MultiItemSection<Data, ?> body;
+
+        Group(@Nullable Section header, @NonNull MultiItemSection<Data, ?> body) {
+            this.header = header;
+            this.body = body;
+        }
+    }
+}
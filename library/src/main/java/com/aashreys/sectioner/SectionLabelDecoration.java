@@ -0,0 +1,245 @@
+package com.aashreys.sectioner;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.View;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A {@link RecyclerView.ItemDecoration} which draws the label of every {@link Section}, set via
+ * {@link Section#setLabel(CharSequence)}, in space reserved above its first item. Compared to a
+ * header {@link Section}, labels add no items, {@link View}s or {@link RecyclerView.ViewHolder}s,
+ * and do not shift adapter positions.
+ * <p>
+ * The text of every label is laid out once into a {@link StaticLayout}, which is cached per
+ * {@link Section} and only laid out again when the label or the available width changes. The item
+ * offsets are invalidated whenever an item becomes or stops being the first item of a labeled
+ * {@link Section}. Only vertical lists are supported.
+ */
+public class SectionLabelDecoration extends RecyclerView.ItemDecoration {
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final TextPaint textPaint;
+
+    private int paddingLeft, paddingTop, paddingRight, paddingBottom;
+
+    @NonNull private final Map<Section, LabelLayout> labelLayouts = new HashMap<>();
+
+    @NonNull private final SectionManager.OnSectionsChangedListener sectionsChangedListener
+            = new SectionManager.OnSectionsChangedListener() {
+        @Override
+        public void onSectionsChanged(@NonNull SectionManager sectionManager) {
+            removeDetachedSections();
+        }
+    };
+
+    /**
+     * Invalidates the cached item offsets when an item becomes or stops being the first item of a
+     * labeled {@link Section}, since RecyclerView only computes them again for rebound items.
+     */
+    @NonNull private final RecyclerView.AdapterDataObserver firstItemObserver
+            = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            invalidateItemDecorations();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            // The inserted item may have replaced the previous first item
+            invalidateIfFirstOfLabeledSection(positionStart);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            // The item after the removed ones may have become the first item
+            invalidateIfFirstOfLabeledSection(positionStart);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (!invalidateIfFirstOfLabeledSection(fromPosition)) {
+                invalidateIfFirstOfLabeledSection(toPosition);
+            }
+        }
+    };
+
+    /**
+     * @param textPaint {@link TextPaint} labels are drawn with. Call {@link #invalidate()} after
+     *                  changing it.
+     */
+    public SectionLabelDecoration(
+            @NonNull SectionManager sectionManager,
+            @NonNull TextPaint textPaint
+    ) {
+        this.sectionManager = sectionManager;
+        this.textPaint = textPaint;
+        sectionManager.addOnSectionsChangedListener(sectionsChangedListener);
+        sectionManager.getAdapter().registerAdapterDataObserver(firstItemObserver);
+    }
+
+    /**
+     * Sets the space around the text of every label, in pixels.
+     */
+    public void setLabelPadding(int left, int top, int right, int bottom) {
+        this.paddingLeft = left;
+        this.paddingTop = top;
+        this.paddingRight = right;
+        this.paddingBottom = bottom;
+        invalidate();
+    }
+
+    /**
+     * Discards the cached label layouts, for example after the {@link TextPaint} has changed.
+     * Call {@link RecyclerView#invalidateItemDecorations()} afterwards to apply the change.
+     */
+    public void invalidate() {
+        labelLayouts.clear();
+    }
+
+    /**
+     * Stops tracking the {@link Section}s of the {@link SectionManager}. This decoration must be
+     * removed from its {@link RecyclerView} beforehand.
+     */
+    public void release() {
+        sectionManager.removeOnSectionsChangedListener(sectionsChangedListener);
+        sectionManager.getAdapter().unregisterAdapterDataObserver(firstItemObserver);
+        labelLayouts.clear();
+    }
+
+    @Override
+    public void getItemOffsets(
+            Rect outRect,
+            View view,
+            RecyclerView parent,
+            RecyclerView.State state
+    ) {
+        Layout layout = getLabelLayout(view, parent);
+        if (layout != null) {
+            outRect.top = layout.getHeight() + paddingTop + paddingBottom;
+        }
+    }
+
+    @Override
+    public void onDraw(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            Layout layout = getLabelLayout(child, parent);
+            if (layout != null) {
+                int saveCount = canvas.save();
+                canvas.translate(
+                        parent.getPaddingLeft() + paddingLeft,
+                        child.getTop() + ViewCompat.getTranslationY(child) - paddingBottom
+                                - layout.getHeight()
+                );
+                layout.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            }
+        }
+    }
+
+    /**
+     * Returns the laid out label to draw above {@param child}, or null if it is not the first item
+     * of a {@link Section} with a label.
+     */
+    @Nullable
+    private Layout getLabelLayout(@NonNull View child, @NonNull RecyclerView parent) {
+        int adapterPosition = parent.getChildAdapterPosition(child);
+        if (adapterPosition == RecyclerView.NO_POSITION
+                || adapterPosition >= sectionManager.getItemCount()
+                || sectionManager.getItemSectionPosition(adapterPosition) != 0) {
+            return null;
+        }
+        Section section = sectionManager.getSectionForAdapterPosition(adapterPosition);
+        CharSequence label = section.getLabel();
+        if (label == null) {
+            return null;
+        }
+        int width = Math.max(0, parent.getWidth() - parent.getPaddingLeft()
+                - parent.getPaddingRight() - paddingLeft - paddingRight);
+        LabelLayout labelLayout = labelLayouts.get(section);
+        if (labelLayout == null
+                || labelLayout.width != width
+                || !TextUtils.equals(labelLayout.label, label)) {
+            labelLayout = new LabelLayout(
+                    label,
+                    width,
+                    new StaticLayout(
+                            label,
+                            textPaint,
+                            width,
+                            Layout.Alignment.ALIGN_NORMAL,
+                            1f,
+                            0f,
+                            false
+                    )
+            );
+            labelLayouts.put(section, labelLayout);
+        }
+        return labelLayout.layout;
+    }
+
+    /**
+     * Invalidates the item offsets if the item at {@param adapterPosition} is the first item of a
+     * {@link Section} with a label. Returns whether they have been invalidated.
+     */
+    private boolean invalidateIfFirstOfLabeledSection(int adapterPosition) {
+        if (adapterPosition < 0
+                || adapterPosition >= sectionManager.getItemCount()
+                || sectionManager.getItemSectionPosition(adapterPosition) != 0) {
+            return false;
+        }
+        Section section = sectionManager.getSectionForAdapterPosition(adapterPosition);
+        if (section.getLabel() == null) {
+            return false;
+        }
+        invalidateItemDecorations();
+        return true;
+    }
+
+    private void invalidateItemDecorations() {
+        RecyclerView recyclerView = sectionManager.getRecyclerView();
+        if (recyclerView != null && !recyclerView.isComputingLayout()) {
+            recyclerView.invalidateItemDecorations();
+        }
+    }
+
+    private void removeDetachedSections() {
+        Iterator<Section> iterator = labelLayouts.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!sectionManager.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A label laid out for a given width.
+     */
+    private static class LabelLayout {
+
+        @NonNull final CharSequence label;
+
+        final int width;
+
+        @NonNull final Layout layout;
+
+        LabelLayout(@NonNull CharSequence label, int width, @NonNull Layout layout) {
+            this.label = label;
+            this.width = width;
+            this.layout = layout;
+        }
+    }
+}
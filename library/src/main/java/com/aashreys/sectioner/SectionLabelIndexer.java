@@ -0,0 +1,161 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.SectionIndexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link SectionIndexer} for fast scrollers, which groups the {@link Section}s of a {@link
+ * SectionManager} under labels such as the letters of an alphabetical list. Consecutive {@link
+ * Section}s with the same label, or without a label, are grouped under the label of the first of
+ * them.
+ * <p>
+ * The labels are only collected again after {@link Section}s have been added, removed or replaced,
+ * and not when their items change. Jumping to a label and finding the label of an adapter position
+ * both take logarithmic time in the number of {@link Section}s, so they are cheap enough to be
+ * called on every drag event of a fast scroller. Must be used from the main thread.
+ */
+public class SectionLabelIndexer implements SectionIndexer {
+
+    /**
+     * Provides the label of a {@link Section}.
+     */
+    public interface LabelProvider {
+
+        /**
+         * Returns the label of {@param section}, or null to group it under the label of the
+         * {@link Section} preceding it.
+         */
+        @Nullable
+        String getLabel(@NonNull Section section);
+    }
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final LabelProvider labelProvider;
+
+    @NonNull private String[] labels = new String[0];
+
+    /**
+     * Position in the {@link SectionManager} of the first {@link Section} of each label.
+     */
+    @NonNull private int[] labelSectionPositions = new int[0];
+
+    private boolean isIndexValid;
+
+    @NonNull private final SectionManager.OnSectionsChangedListener sectionsChangedListener
+            = new SectionManager.OnSectionsChangedListener() {
+        @Override
+        public void onSectionsChanged(@NonNull SectionManager sectionManager) {
+            isIndexValid = false;
+        }
+    };
+
+    public SectionLabelIndexer(
+            @NonNull SectionManager sectionManager,
+            @NonNull LabelProvider labelProvider
+    ) {
+        this.sectionManager = sectionManager;
+        this.labelProvider = labelProvider;
+        sectionManager.addOnSectionsChangedListener(sectionsChangedListener);
+    }
+
+    /**
+     * Stops tracking changes to the {@link Section}s of the {@link SectionManager}. This indexer
+     * must not be used afterwards.
+     */
+    public void release() {
+        sectionManager.removeOnSectionsChangedListener(sectionsChangedListener);
+    }
+
+    /**
+     * Marks the labels as outdated, for example after the label of a {@link Section} has changed
+     * without it being replaced.
+     */
+    public void invalidate() {
+        isIndexValid = false;
+    }
+
+    /**
+     * Returns the labels, in order.
+     */
+    @Override
+    public Object[] getSections() {
+        ensureIndex();
+        return labels;
+    }
+
+    /**
+     * Returns the adapter position of the first item of the label at {@param labelIndex}. Indices
+     * beyond the last label return the position of the last label.
+     */
+    @Override
+    public int getPositionForSection(int labelIndex) {
+        ensureIndex();
+        if (labels.length == 0) {
+            return 0;
+        }
+        int index = Math.max(0, Math.min(labelIndex, labels.length - 1));
+        return sectionManager.getFirstItemAdapterPositionForSectionPosition(
+                labelSectionPositions[index]
+        );
+    }
+
+    /**
+     * Returns the index of the label of the item at {@param adapterPosition}.
+     */
+    @Override
+    public int getSectionForPosition(int adapterPosition) {
+        ensureIndex();
+        if (labels.length == 0 || sectionManager.getItemCount() == 0) {
+            return 0;
+        }
+        int position = Math.max(0, Math.min(adapterPosition, sectionManager.getItemCount() - 1));
+        int sectionPosition = sectionManager.getSectionPositionForAdapterPosition(position);
+        // Find the last label starting at or before the Section
+        int low = 0, high = labelSectionPositions.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (labelSectionPositions[mid] <= sectionPosition) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the label of the item at {@param adapterPosition}, for example to display in the
+     * thumb of a fast scroller, or null if there are no labels.
+     */
+    @Nullable
+    public String getLabelForPosition(int adapterPosition) {
+        ensureIndex();
+        return labels.length > 0 ? labels[getSectionForPosition(adapterPosition)] : null;
+    }
+
+    private void ensureIndex() {
+        if (isIndexValid) {
+            return;
+        }
+        List<String> labelList = new ArrayList<>();
+        int[] positions = new int[sectionManager.getSectionCount()];
+        String previousLabel = null;
+        for (int i = 0; i < sectionManager.getSectionCount(); i++) {
+            String label = labelProvider.getLabel(sectionManager.get(i));
+            if (label != null && !label.equals(previousLabel)) {
+                positions[labelList.size()] = i;
+                labelList.add(label);
+                previousLabel = label;
+            }
+        }
+        labels = labelList.toArray(new String[labelList.size()]);
+        labelSectionPositions = new int[labels.length];
+        System.arraycopy(positions, 0, labelSectionPositions, 0, labels.length);
+        isIndexValid = true;
+    }
+}
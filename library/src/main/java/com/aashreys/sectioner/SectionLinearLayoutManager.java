@@ -0,0 +1,198 @@
+package com.aashreys.sectioner;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * A {@link LinearLayoutManager} which computes scroll offsets and scrollbars from the item extents
+ * of a {@link SectionManager} instead of from the laid out children, and which can jump directly to
+ * a {@link Section} or a pixel offset.
+ * <p>
+ * After every layout, and whenever scrolling lays out new items, the extents of the laid out
+ * items are recorded with the {@link SectionManager}, unless their {@link Section} declares a
+ * fixed extent via {@link Section#setItemExtent(int)}. Items which have not been measured are
+ * assumed to have the average extent of their {@link Section}, or of all measured items.
+ * Converting between pixel offsets and adapter positions takes logarithmic time in the number of
+ * {@link Section}s.
+ */
+public class SectionLinearLayoutManager extends LinearLayoutManager {
+
+    @NonNull private final SectionManager sectionManager;
+
+    // Range of adapter positions whose extents were recorded since the last layout
+    private int recordedFirstPosition = RecyclerView.NO_POSITION;
+
+    private int recordedLastPosition = RecyclerView.NO_POSITION;
+
+    public SectionLinearLayoutManager(Context context, @NonNull SectionManager sectionManager) {
+        super(context);
+        this.sectionManager = sectionManager;
+    }
+
+    public SectionLinearLayoutManager(
+            Context context,
+            @NonNull SectionManager sectionManager,
+            int orientation,
+            boolean reverseLayout
+    ) {
+        super(context, orientation, reverseLayout);
+        this.sectionManager = sectionManager;
+    }
+
+    /**
+     * Scrolls so that the first item of {@param section} is displayed {@param offset} pixels from
+     * the start of the {@link RecyclerView}. Does nothing if {@param section} has no items.
+     */
+    public void scrollToSection(@NonNull Section section, int offset) {
+        if (section.isEnabled() && section.size() > 0 && sectionManager.contains(section)) {
+            scrollToPositionWithOffset(
+                    sectionManager.getFirstItemAdapterPositionForSection(section),
+                    offset
+            );
+        }
+    }
+
+    /**
+     * Scrolls so that the content at {@param offset} pixels from the start of the first item is
+     * displayed at the start of the {@link RecyclerView}, as estimated from the item extents.
+     */
+    public void scrollToOffset(long offset) {
+        int position = sectionManager.getAdapterPositionForOffset(offset);
+        if (position != RecyclerView.NO_POSITION) {
+            long positionOffset = sectionManager.getOffsetForAdapterPosition(position);
+            scrollToPositionWithOffset(position, (int) (positionOffset - offset));
+        }
+    }
+
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+        recordedFirstPosition = RecyclerView.NO_POSITION;
+        recordedLastPosition = RecyclerView.NO_POSITION;
+        recordChildExtents();
+    }
+
+    @Override
+    public int scrollVerticallyBy(
+            int dy,
+            RecyclerView.Recycler recycler,
+            RecyclerView.State state
+    ) {
+        int scrolled = super.scrollVerticallyBy(dy, recycler, state);
+        recordChildExtents();
+        return scrolled;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(
+            int dx,
+            RecyclerView.Recycler recycler,
+            RecyclerView.State state
+    ) {
+        int scrolled = super.scrollHorizontallyBy(dx, recycler, state);
+        recordChildExtents();
+        return scrolled;
+    }
+
+    /**
+     * Records the extents of the children which are outside the range of positions recorded
+     * since the last layout, which after a scroll are only the children it laid out.
+     */
+    private void recordChildExtents() {
+        int itemCount = sectionManager.getItemCount();
+        boolean isVertical = getOrientation() == VERTICAL;
+        int firstPosition = recordedFirstPosition;
+        int lastPosition = recordedLastPosition;
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int position = getPosition(child);
+            if (position < 0 || position >= itemCount) {
+                continue;
+            }
+            if (recordedFirstPosition == RecyclerView.NO_POSITION
+                    || position < recordedFirstPosition
+                    || position > recordedLastPosition) {
+                sectionManager.recordItemExtent(
+                        position,
+                        isVertical ? getDecoratedMeasuredHeight(child)
+                                : getDecoratedMeasuredWidth(child)
+                );
+            }
+            firstPosition = firstPosition == RecyclerView.NO_POSITION
+                    ? position
+                    : Math.min(firstPosition, position);
+            lastPosition = Math.max(lastPosition, position);
+        }
+        recordedFirstPosition = firstPosition;
+        recordedLastPosition = lastPosition;
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return getOrientation() == VERTICAL
+                ? computeScrollOffset()
+                : super.computeVerticalScrollOffset(state);
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        return getOrientation() == VERTICAL
+                ? computeScrollRange()
+                : super.computeVerticalScrollRange(state);
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return getOrientation() == VERTICAL
+                ? getHeight() - getPaddingTop() - getPaddingBottom()
+                : super.computeVerticalScrollExtent(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(RecyclerView.State state) {
+        return getOrientation() == HORIZONTAL
+                ? computeScrollOffset()
+                : super.computeHorizontalScrollOffset(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(RecyclerView.State state) {
+        return getOrientation() == HORIZONTAL
+                ? computeScrollRange()
+                : super.computeHorizontalScrollRange(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(RecyclerView.State state) {
+        return getOrientation() == HORIZONTAL
+                ? getWidth() - getPaddingLeft() - getPaddingRight()
+                : super.computeHorizontalScrollExtent(state);
+    }
+
+    /**
+     * Returns the estimated offset of the start of the {@link RecyclerView} from the start of the
+     * first item.
+     */
+    private int computeScrollOffset() {
+        if (getChildCount() == 0 || sectionManager.getItemCount() == 0) {
+            return 0;
+        }
+        View child = getChildAt(0);
+        int position = getPosition(child);
+        if (position < 0 || position >= sectionManager.getItemCount()) {
+            return 0;
+        }
+        int childStart = getOrientation() == VERTICAL
+                ? getDecoratedTop(child) - getPaddingTop()
+                : getDecoratedLeft(child) - getPaddingLeft();
+        long offset = sectionManager.getOffsetForAdapterPosition(position) - childStart;
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, offset));
+    }
+
+    private int computeScrollRange() {
+        return (int) Math.min(Integer.MAX_VALUE, sectionManager.getTotalExtent());
+    }
+}
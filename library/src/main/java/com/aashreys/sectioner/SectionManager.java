@@ -1,10 +1,23 @@
 package com.aashreys.sectioner;
 
+import android.content.ComponentCallbacks2;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.ViewGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -17,8 +30,25 @@ import java.util.TreeMap;
  */
 public class SectionManager {
 
+    /**
+     * Notified on the thread which changed the {@link Section}s of a {@link SectionManager} after
+     * {@link Section}s have been added, removed or replaced. Changes to the items of a {@link
+     * Section} are not reported.
+     */
+    public interface OnSectionsChangedListener {
+
+        void onSectionsChanged(@NonNull SectionManager sectionManager);
+    }
+
     private static final String TAG = SectionManager.class.getSimpleName();
 
+    /**
+     * Number of times {@link #setSectionsAsync(List, Runnable)} recomputes a diff made stale by
+     * structural changes before computing it on the main thread instead, so that it is applied
+     * even while items are added or removed continuously.
+     */
+    private static final int MAX_ASYNC_DIFF_ATTEMPTS = 3;
+
     private final Object writeLock = new Object();
 
     /**
@@ -42,6 +72,91 @@ public class SectionManager {
      */
     @NonNull private TreeMap<Integer, Integer> sectionPosToItemPosMap;
 
+    /**
+     * Maps the view type of each {@link Section} to the first {@link Section} using it, which
+     * creates the {@link RecyclerView.ViewHolder}s of that view type.
+     *
+     * @see #sectionViewTypes
+     */
+    @NonNull private SparseArray<Section> viewTypeToSectionMap;
+
+    /**
+     * View types of the {@link Section}s currently in {@link #sections}, keyed by {@link
+     * Section#getViewTypeKey()}, so that {@link Section}s with equal keys share their {@link
+     * RecyclerView.ViewHolder}s.
+     */
+    @NonNull private final Map<Object, Integer> viewTypesByKey = new HashMap<>();
+
+    /**
+     * View type of each {@link Section} in {@link #sections}, by position.
+     */
+    @NonNull private int[] sectionViewTypes = new int[0];
+
+    /**
+     * Next view type to be allocated. View types are never reused, so that {@link
+     * RecyclerView.ViewHolder}s of view types which are no longer used never reach a {@link
+     * Section} they were not created by.
+     */
+    private int nextViewType;
+
+    @NonNull private final List<OnSectionsChangedListener> sectionsChangedListeners
+            = new ArrayList<>();
+
+    /**
+     * Maps each {@link Section} to its position in {@link #sections}, so that the adapter position
+     * of a {@link Section} can be found without searching {@link #sections}.
+     */
+    @NonNull private Map<Section, Integer> sectionPositions;
+
+    /**
+     * Total extent of the items of each {@link Section}. Only valid while {@link
+     * #areExtentsValid}.
+     *
+     * @see Section#setItemExtent(int)
+     */
+    @NonNull private long[] sectionExtents = new long[0];
+
+    /**
+     * Fenwick tree over {@link #sectionExtents}, indexed from 1, so that the extent before a
+     * {@link Section} can be read and a single {@link Section}'s extent updated in logarithmic
+     * time. Only valid while {@link #areExtentsValid}.
+     */
+    @NonNull private long[] extentTree = new long[1];
+
+    private boolean areExtentsValid;
+
+    /**
+     * Extent assumed for items of {@link Section}s which have neither a fixed nor a measured
+     * extent: the average of all measured items when the extents were last rebuilt.
+     */
+    private int defaultItemExtent;
+
+    /**
+     * Sum and number of the measured extents of all {@link Section}s, kept up to date as items
+     * are measured.
+     */
+    private long measuredExtentSum, measuredExtentCount;
+
+    /**
+     * Adapter view types of the non-zero item view types of {@link Section}s, keyed by the view
+     * type of the {@link Section} in the upper and the item view type in the lower 32 bits. Entries
+     * are removed along with the view type of their {@link Section}.
+     *
+     * @see Section#getItemViewType(int)
+     */
+    @NonNull private final Map<Long, Integer> adapterViewTypes = new HashMap<>();
+
+    /**
+     * Maps the adapter view types in {@link #adapterViewTypes} to the view type of their {@link
+     * Section}.
+     */
+    @NonNull private final SparseIntArray itemViewTypeSections = new SparseIntArray();
+
+    /**
+     * Maps the adapter view types in {@link #adapterViewTypes} to their item view type.
+     */
+    @NonNull private final SparseIntArray itemViewTypes = new SparseIntArray();
+
     /**
      * Represents the cumulative number of items contained in all {@link Section}s of this {@link
      * SectionManager}. Size does not include {@link Section}s which have been disabled via the
@@ -49,6 +164,29 @@ public class SectionManager {
      */
     private int itemsSize;
 
+    /**
+     * Immutable copy of the structure captured by the last call to {@link
+     * #createItemSectionMappings()}.
+     */
+    @NonNull private volatile SectionsSnapshot snapshot = SectionsSnapshot.EMPTY;
+
+    /**
+     * The {@link RecyclerView} the {@link #adapter} is attached to, if any.
+     */
+    @Nullable private RecyclerView recyclerView;
+
+    @Nullable private SectionVisibilityTracker visibilityTracker;
+
+    @Nullable private LazySection.Loader lazySectionLoader;
+
+    @Nullable private ReloadableSection.Reloader reloadableSectionReloader;
+
+    /**
+     * Incremented on every call to {@link #setSectionsAsync(List, Runnable)}, so that only the
+     * latest call is applied.
+     */
+    private int setSectionsGeneration;
+
     /**
      * Creates a {@link SectionManager} and binds it to a {@link SectionedRecyclerViewAdapter}.
      *
@@ -59,6 +197,8 @@ public class SectionManager {
         this.adapter = adapter;
         this.itemPosToSectionPosMap = new TreeMap<>();
         this.sectionPosToItemPosMap = new TreeMap<>();
+        this.viewTypeToSectionMap = new SparseArray<>();
+        this.sectionPositions = new HashMap<>();
     }
 
     /**
@@ -69,6 +209,214 @@ public class SectionManager {
         return adapter;
     }
 
+    /**
+     * Returns the {@link RecyclerView} the {@link #adapter} is currently attached to, or null if
+     * it is not attached.
+     */
+    @Nullable
+    public RecyclerView getRecyclerView() {
+        return recyclerView;
+    }
+
+    void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        if (visibilityTracker != null) {
+            visibilityTracker.attach(recyclerView);
+        }
+        for (Section section : sectionPositions.keySet()) {
+            section.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        if (this.recyclerView == recyclerView) {
+            this.recyclerView = null;
+            if (visibilityTracker != null) {
+                visibilityTracker.detach();
+            }
+            for (Section section : sectionPositions.keySet()) {
+                section.onDetachedFromRecyclerView(recyclerView);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link SectionVisibilityTracker} of this {@link SectionManager}, creating it on
+     * first use. The tracker follows the {@link RecyclerView} the {@link #adapter} is attached to.
+     */
+    @NonNull
+    public SectionVisibilityTracker getVisibilityTracker() {
+        if (visibilityTracker == null) {
+            visibilityTracker = new SectionVisibilityTracker(this);
+            if (recyclerView != null) {
+                visibilityTracker.attach(recyclerView);
+            }
+        }
+        return visibilityTracker;
+    }
+
+    /**
+     * Returns the {@link LazySection.Loader} of this {@link SectionManager}, creating it on first
+     * use.
+     */
+    @NonNull
+    LazySection.Loader getLazySectionLoader() {
+        if (lazySectionLoader == null) {
+            lazySectionLoader = new LazySection.Loader(this);
+        }
+        return lazySectionLoader;
+    }
+
+    /**
+     * Returns the {@link ReloadableSection.Reloader} of this {@link SectionManager}, creating it
+     * on first use.
+     */
+    @NonNull
+    ReloadableSection.Reloader getReloadableSectionReloader() {
+        if (reloadableSectionReloader == null) {
+            reloadableSectionReloader = new ReloadableSection.Reloader(this);
+        }
+        return reloadableSectionReloader;
+    }
+
+    /**
+     * Releases memory held by {@link Section}s which are far from the visible items. Meant to be
+     * called from {@link ComponentCallbacks2#onTrimMemory(int)}. Off-screen {@link
+     * BindModelSection}s drop their cached models. {@link ReloadableSection}s beyond their reload
+     * distance drop their items, farthest and then largest first, until a share of the
+     * estimated memory of all {@link ReloadableSection}s has been released. The share grows with
+     * {@param level}. Released {@link Section}s keep their size, and are reloaded once they come
+     * back within their reload distance. Must be called from the main thread.
+     *
+     * @param level trim level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    public void trimMemory(int level) {
+        int firstVisible = findFirstVisibleItemPosition();
+        int lastVisible = findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION) {
+            // Without a visible range every Section may be on screen
+            return;
+        }
+        List<TrimCandidate> candidates = new ArrayList<>();
+        long totalBytes = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            int distance = getDistance(
+                    getFirstItemAdapterPositionForSectionPosition(i),
+                    section.isEnabled() ? section.size() : 0,
+                    firstVisible,
+                    lastVisible
+            );
+            if (section instanceof BindModelSection && distance > 0) {
+                ((BindModelSection) section).invalidateBindModels();
+            } else if (section instanceof ReloadableSection) {
+                ReloadableSection reloadableSection = (ReloadableSection) section;
+                long bytes = reloadableSection.getEstimatedBytes();
+                totalBytes += bytes;
+                if (bytes > 0 && distance > reloadableSection.getReloadDistance()) {
+                    candidates.add(new TrimCandidate(reloadableSection, distance, bytes));
+                }
+            }
+        }
+        long targetBytes;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            targetBytes = totalBytes;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            targetBytes = totalBytes / 2;
+        } else {
+            targetBytes = totalBytes / 4;
+        }
+        Collections.sort(candidates, TrimCandidate.FARTHEST_LARGEST_FIRST);
+        long releasedBytes = 0;
+        for (int i = 0; i < candidates.size() && releasedBytes < targetBytes; i++) {
+            TrimCandidate candidate = candidates.get(i);
+            candidate.section.release();
+            releasedBytes += candidate.bytes;
+        }
+    }
+
+    /**
+     * Runs {@param runnable} on the main thread at the start of the next animation frame of the
+     * attached {@link RecyclerView}, or as soon as possible if the adapter is not attached. Must
+     * be called from the main thread.
+     */
+    void postOnAnimation(@NonNull Runnable runnable) {
+        if (recyclerView != null) {
+            ViewCompat.postOnAnimation(recyclerView, runnable);
+        } else {
+            SectionExecutors.mainThread().post(runnable);
+        }
+    }
+
+    /**
+     * Returns the adapter position of the first visible item, or {@link RecyclerView#NO_POSITION}
+     * if it cannot be determined. Only {@link LinearLayoutManager} and its subclasses are
+     * supported.
+     */
+    protected int findFirstVisibleItemPosition() {
+        RecyclerView.LayoutManager layoutManager
+                = recyclerView != null ? recyclerView.getLayoutManager() : null;
+        if (layoutManager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Returns the adapter position of the last visible item, or {@link RecyclerView#NO_POSITION}
+     * if it cannot be determined.
+     *
+     * @see #findFirstVisibleItemPosition()
+     */
+    protected int findLastVisibleItemPosition() {
+        RecyclerView.LayoutManager layoutManager
+                = recyclerView != null ? recyclerView.getLayoutManager() : null;
+        if (layoutManager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Returns the number of items between a {@link Section} and the visible items of the {@link
+     * RecyclerView}, or 0 if any of its items are visible or the visible items are unknown.
+     *
+     * @param section {@link Section} contained in this {@link SectionManager}
+     */
+    protected int getDistanceFromVisibleItems(@NonNull Section section) {
+        int firstVisible = findFirstVisibleItemPosition();
+        int lastVisible = findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION) {
+            return 0;
+        }
+        return getDistance(
+                getFirstItemAdapterPositionForSection(section),
+                section.isEnabled() ? section.size() : 0,
+                firstVisible,
+                lastVisible
+        );
+    }
+
+    /**
+     * Returns the number of items between {@param itemCount} items starting at {@param
+     * sectionStart} and the visible range, or 0 if they overlap.
+     */
+    private static int getDistance(
+            int sectionStart,
+            int itemCount,
+            int firstVisible,
+            int lastVisible
+    ) {
+        int sectionEnd = sectionStart + itemCount - 1;
+        if (sectionEnd < firstVisible) {
+            return firstVisible - sectionEnd;
+        } else if (sectionStart > lastVisible) {
+            return sectionStart - lastVisible;
+        } else {
+            return 0;
+        }
+    }
+
     /**
      * Returns all {@link Section}s added to this {@link SectionManager}.
      */
@@ -105,6 +453,29 @@ public class SectionManager {
             createItemSectionMappings();
         }
         adapter.notifyItemRangeInserted(oldItemSize, itemsSize - oldItemSize);
+        dispatchSectionsChanged();
+    }
+
+    /**
+     * Inserts {@link Section}s at a given position in {@link #sections}, updates the internal
+     * mappings once and notifies the {@link #adapter} of a single range insertion.
+     *
+     * @param position position to insert the first {@link Section} at.
+     * @param sections {@link Section}s to insert, in order.
+     */
+    public void addAll(int position, Section... sections) {
+        int oldItemSize, positionStart;
+        synchronized (writeLock) {
+            oldItemSize = itemsSize;
+            for (int i = 0; i < sections.length; i++) {
+                sections[i].setManager(this);
+                this.sections.add(position + i, sections[i]);
+            }
+            createItemSectionMappings();
+            positionStart = getFirstItemAdapterPositionForSectionPosition(position);
+        }
+        adapter.notifyItemRangeInserted(positionStart, itemsSize - oldItemSize);
+        dispatchSectionsChanged();
     }
 
     /**
@@ -120,13 +491,90 @@ public class SectionManager {
         itemsSize = 0;
         itemPosToSectionPosMap = new TreeMap<>();
         sectionPosToItemPosMap = new TreeMap<>();
+        viewTypeToSectionMap = new SparseArray<>(sections.size());
+        sectionViewTypes = new int[sections.size()];
+        Map<Object, Integer> usedViewTypes = new HashMap<>(sections.size() * 2);
+        sectionPositions = new HashMap<>(sections.size() * 2);
+        Section[] snapshotSections = sections.toArray(new Section[sections.size()]);
+        int[] snapshotSizes = new int[snapshotSections.length];
+        int[] snapshotStartPositions = new int[snapshotSections.length];
         for (int i = 0; i < sections.size(); i++) {
+            Object viewTypeKey = sections.get(i).getViewTypeKey();
+            Integer viewType = viewTypesByKey.get(viewTypeKey);
+            if (viewType == null) {
+                viewType = nextViewType++;
+                viewTypesByKey.put(viewTypeKey, viewType);
+            }
+            usedViewTypes.put(viewTypeKey, viewType);
+            sectionViewTypes[i] = viewType;
+            if (viewTypeToSectionMap.get(viewType) == null) {
+                viewTypeToSectionMap.put(viewType, sections.get(i));
+            }
+            if (!sectionPositions.containsKey(sections.get(i))) {
+                sectionPositions.put(sections.get(i), i);
+            }
+            snapshotStartPositions[i] = itemsSize;
             if (sections.get(i).isEnabled() && sections.get(i).size() > 0) {
                 itemPosToSectionPosMap.put(itemsSize, i);
                 sectionPosToItemPosMap.put(i, itemsSize);
-                itemsSize += sections.get(i).size();
+                snapshotSizes[i] = sections.get(i).size();
+                itemsSize += snapshotSizes[i];
             }
         }
+        if (usedViewTypes.size() < viewTypesByKey.size()) {
+            removeUnusedViewTypes(usedViewTypes);
+        }
+        areExtentsValid = false;
+        snapshot = new SectionsSnapshot(
+                snapshot.getVersion() + 1,
+                snapshotSections,
+                snapshotSizes,
+                snapshotStartPositions,
+                itemsSize
+        );
+    }
+
+    /**
+     * Forgets the view types of {@link Section}s which have been removed, keeping only {@param
+     * usedViewTypes}, and drops their pooled {@link RecyclerView.ViewHolder}s, which no remaining
+     * {@link Section} can bind.
+     */
+    private void removeUnusedViewTypes(@NonNull Map<Object, Integer> usedViewTypes) {
+        SparseIntArray removedViewTypes = new SparseIntArray();
+        for (Integer viewType : viewTypesByKey.values()) {
+            if (viewTypeToSectionMap.get(viewType) == null) {
+                removedViewTypes.put(viewType, 1);
+                dropRecycledViews(viewType);
+            }
+        }
+        viewTypesByKey.clear();
+        viewTypesByKey.putAll(usedViewTypes);
+        Iterator<Map.Entry<Long, Integer>> iterator = adapterViewTypes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Integer> entry = iterator.next();
+            if (removedViewTypes.get((int) (entry.getKey() >>> 32)) != 0) {
+                itemViewTypeSections.delete(entry.getValue());
+                itemViewTypes.delete(entry.getValue());
+                dropRecycledViews(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private void dropRecycledViews(int adapterViewType) {
+        if (recyclerView != null) {
+            recyclerView.getRecycledViewPool().setMaxRecycledViews(adapterViewType, 0);
+        }
+    }
+
+    /**
+     * Returns an immutable {@link SectionsSnapshot} of the current {@link Section}s, their sizes
+     * and item positions. This is a constant time, lock-free read which is safe to make from any
+     * thread, for example to map adapter positions to {@link Section}s in the background.
+     */
+    @NonNull
+    public SectionsSnapshot snapshot() {
+        return snapshot;
     }
 
     /**
@@ -145,6 +593,7 @@ public class SectionManager {
         adapter.notifyItemRangeInserted(
                 getFirstItemAdapterPositionForSectionPosition(position), section.size()
         );
+        dispatchSectionsChanged();
     }
 
     /**
@@ -158,10 +607,10 @@ public class SectionManager {
             // This is a non-empty section. Return it's first position
             return sectionPosToItemPosMap.get(sectionPosition);
         } else {
-            // This is an empty section, get the first item position from the map for a non-empty
-            // section preceding this
+            // This is an empty section, its items would start right after the last item of the
+            // non-empty section preceding it
             Map.Entry<Integer, Integer> entry = sectionPosToItemPosMap.floorEntry(sectionPosition);
-            return entry != null ? entry.getValue() : 0;
+            return entry != null ? entry.getValue() + sections.get(entry.getKey()).size() : 0;
         }
     }
 
@@ -172,7 +621,10 @@ public class SectionManager {
      * @param section {@link Section} for whose item the position returned
      */
     protected int getFirstItemAdapterPositionForSection(Section section) {
-        return getFirstItemAdapterPositionForSectionPosition(sections.indexOf(section));
+        Integer sectionPosition = sectionPositions.get(section);
+        return getFirstItemAdapterPositionForSectionPosition(
+                sectionPosition != null ? sectionPosition : -1
+        );
     }
 
     /**
@@ -201,6 +653,69 @@ public class SectionManager {
             createItemSectionMappings();
         }
         adapter.notifyItemRangeRemoved(positionStart, section.size());
+        dispatchSectionsChanged();
+    }
+
+    /**
+     * Removes the {@link Section}s from {@param fromPosition} up to {@param toPosition},
+     * exclusive, updates the internal mappings once and notifies the {@link #adapter} of a single
+     * range removal.
+     */
+    public void removeRange(int fromPosition, int toPosition) {
+        replaceRange(fromPosition, toPosition);
+    }
+
+    /**
+     * Replaces the {@link Section}s from {@param fromPosition} up to {@param toPosition},
+     * exclusive, with {@param sections} and updates the internal mappings once. The {@link
+     * #adapter} is notified of a change of the items taking the place of old ones, and of a single
+     * insertion or removal of the difference.
+     *
+     * @param sections {@link Section}s to insert at {@param fromPosition}, in order.
+     */
+    public void replaceRange(int fromPosition, int toPosition, Section... sections) {
+        int positionStart, oldItemCount, newItemCount;
+        synchronized (writeLock) {
+            positionStart = getFirstItemAdapterPositionForSectionPosition(fromPosition);
+            List<Section> range = this.sections.subList(fromPosition, toPosition);
+            Map<Section, Integer> newSectionPositions = new HashMap<>(sections.length * 2);
+            for (int i = 0; i < sections.length; i++) {
+                newSectionPositions.put(sections[i], i);
+            }
+            oldItemCount = 0;
+            for (Section section : range) {
+                if (section.isEnabled()) {
+                    oldItemCount += section.size();
+                }
+                if (!newSectionPositions.containsKey(section)) {
+                    section.setManager(null);
+                }
+            }
+            int oldItemSize = itemsSize;
+            range.clear();
+            for (Section section : sections) {
+                section.setManager(this);
+            }
+            range.addAll(Arrays.asList(sections));
+            createItemSectionMappings();
+            newItemCount = itemsSize - oldItemSize + oldItemCount;
+        }
+        int changedCount = Math.min(oldItemCount, newItemCount);
+        if (changedCount > 0) {
+            adapter.notifyItemRangeChanged(positionStart, changedCount);
+        }
+        if (oldItemCount > newItemCount) {
+            adapter.notifyItemRangeRemoved(
+                    positionStart + newItemCount,
+                    oldItemCount - newItemCount
+            );
+        } else if (newItemCount > oldItemCount) {
+            adapter.notifyItemRangeInserted(
+                    positionStart + oldItemCount,
+                    newItemCount - oldItemCount
+            );
+        }
+        dispatchSectionsChanged();
     }
 
     /**
@@ -251,6 +766,7 @@ public class SectionManager {
             // Items have changed in place
             adapter.notifyItemRangeChanged(sectionFirstItemPos, newSectionItemCount);
         }
+        dispatchSectionsChanged();
     }
 
     /**
@@ -276,6 +792,276 @@ public class SectionManager {
             createItemSectionMappings();
         }
         adapter.notifyDataSetChanged();
+        dispatchSectionsChanged();
+    }
+
+    /**
+     * Replaces all {@link Section}s with {@param newSections}, notifying the {@link #adapter} of
+     * only the differences between the two. {@link Section}s are matched by {@link
+     * Section#getKey()}, so moved {@link Section}s are animated as moves. Only the items of
+     * matched {@link Section}s which are different instances are diffed, each pair on its own and
+     * by {@link Section#getItemKey(Object)}, so that unchanged items are neither rebound nor
+     * re-laid out. Matched instances which are the same are not diffed at all. The position
+     * mappings are rebuilt once.
+     * <p>
+     * The diff is computed on the calling thread, which must be the main thread. Use {@link
+     * #setSectionsAsync(List, Runnable)} when large {@link Section}s are replaced.
+     *
+     * @param newSections {@link Section}s to display, in order.
+     */
+    public void setSections(@NonNull List<? extends Section> newSections) {
+        SectionsDiff diff = new SectionsDiff(sections, newSections);
+        diff.calculate();
+        applySections(newSections, diff);
+    }
+
+    /**
+     * Same as {@link #setSections(List)}, except that the diff is computed on a background thread.
+     * The new {@link Section}s are applied on the main thread once the diff is ready, unless
+     * another call to this method has been made in the meantime. If the {@link Section}s of this
+     * {@link SectionManager} change structurally while the diff is computed, it is computed again,
+     * and after {@value #MAX_ASYNC_DIFF_ATTEMPTS} such attempts it is computed and applied on the
+     * main thread, as by {@link #setSections(List)}.
+     * <p>
+     * The new {@link Section}s must not be modified until they have been applied.
+     *
+     * @param newSections {@link Section}s to display, in order.
+     * @param onApplied   optional callback invoked on the main thread once the {@link Section}s
+     *                    have been applied.
+     */
+    public void setSectionsAsync(
+            @NonNull List<? extends Section> newSections,
+            @Nullable Runnable onApplied
+    ) {
+        setSectionsAsync(newSections, onApplied, 1);
+    }
+
+    private void setSectionsAsync(
+            @NonNull final List<? extends Section> newSections,
+            @Nullable final Runnable onApplied,
+            final int attempt
+    ) {
+        final int generation = ++setSectionsGeneration;
+        final long version = snapshot.getVersion();
+        // Only the items of the replaced Sections are captured here, the diff itself only reads
+        // the captured arrays
+        final SectionsDiff diff = new SectionsDiff(sections, newSections);
+        SectionExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                diff.calculate();
+                SectionExecutors.mainThread().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != setSectionsGeneration) {
+                            return;
+                        }
+                        if (version != snapshot.getVersion()) {
+                            if (attempt < MAX_ASYNC_DIFF_ATTEMPTS) {
+                                setSectionsAsync(newSections, onApplied, attempt + 1);
+                                return;
+                            }
+                            setSections(newSections);
+                        } else {
+                            applySections(newSections, diff);
+                        }
+                        if (onApplied != null) {
+                            onApplied.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void applySections(
+            @NonNull List<? extends Section> newSections,
+            @NonNull SectionsDiff diff
+    ) {
+        synchronized (writeLock) {
+            Map<Section, Integer> newSectionPositions = new HashMap<>(newSections.size() * 2);
+            for (int i = 0; i < newSections.size(); i++) {
+                newSectionPositions.put(newSections.get(i), i);
+            }
+            for (Section section : sections) {
+                if (!newSectionPositions.containsKey(section)) {
+                    // Kept Sections stay attached, so that they are not detached and re-attached
+                    section.setManager(null);
+                }
+            }
+            for (Section section : newSections) {
+                section.setManager(this);
+            }
+            this.sections = new ArrayList<Section>(newSections);
+            createItemSectionMappings();
+        }
+        diff.dispatchUpdatesTo(adapter);
+        dispatchSectionsChanged();
+    }
+
+    /**
+     * Registers a {@link OnSectionsChangedListener} to be notified whenever {@link Section}s are
+     * added, removed or replaced.
+     */
+    public void addOnSectionsChangedListener(@NonNull OnSectionsChangedListener listener) {
+        if (!sectionsChangedListeners.contains(listener)) {
+            sectionsChangedListeners.add(listener);
+        }
+    }
+
+    public void removeOnSectionsChangedListener(@NonNull OnSectionsChangedListener listener) {
+        sectionsChangedListeners.remove(listener);
+    }
+
+    private void dispatchSectionsChanged() {
+        for (int i = 0; i < sectionsChangedListeners.size(); i++) {
+            sectionsChangedListeners.get(i).onSectionsChanged(this);
+        }
+    }
+
+    /**
+     * Returns the estimated offset in pixels of the item at {@param adapterPosition} from the start
+     * of the first item, in logarithmic time of the number of {@link Section}s.
+     *
+     * @see Section#setItemExtent(int)
+     * @see SectionLinearLayoutManager
+     */
+    public long getOffsetForAdapterPosition(int adapterPosition) {
+        ensureExtents();
+        int sectionPosition = getSectionPositionForAdapterPosition(adapterPosition);
+        return getExtentBefore(sectionPosition) + (long) getItemSectionPosition(adapterPosition)
+                * sections.get(sectionPosition).getEstimatedItemExtent(defaultItemExtent);
+    }
+
+    /**
+     * Returns the adapter position of the item at {@param offset} pixels from the start of the
+     * first item, in logarithmic time of the number of {@link Section}s, or {@link
+     * RecyclerView#NO_POSITION} if there are no items. Offsets beyond the last item return the
+     * last item.
+     *
+     * @see Section#setItemExtent(int)
+     */
+    public int getAdapterPositionForOffset(long offset) {
+        if (itemsSize == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        ensureExtents();
+        // Find the last Section starting at or before offset, skipping Sections without items
+        int sectionPosition = 0;
+        long remaining = offset;
+        for (int step = Integer.highestOneBit(sections.size()); step > 0; step >>= 1) {
+            int next = sectionPosition + step;
+            if (next <= sections.size() && extentTree[next] <= remaining) {
+                sectionPosition = next;
+                remaining -= extentTree[next];
+            }
+        }
+        sectionPosition = Math.min(sectionPosition, sections.size() - 1);
+        Map.Entry<Integer, Integer> entry = sectionPosToItemPosMap.floorEntry(sectionPosition);
+        if (entry == null) {
+            entry = sectionPosToItemPosMap.firstEntry();
+        }
+        Section section = sections.get(entry.getKey());
+        int itemExtent = section.getEstimatedItemExtent(defaultItemExtent);
+        long offsetInSection = offset - getExtentBefore(entry.getKey());
+        int itemPosition = itemExtent > 0 && offsetInSection > 0
+                ? (int) Math.min(section.size() - 1, offsetInSection / itemExtent)
+                : 0;
+        return entry.getValue() + itemPosition;
+    }
+
+    /**
+     * Returns the estimated total extent in pixels of all items.
+     *
+     * @see Section#setItemExtent(int)
+     */
+    public long getTotalExtent() {
+        ensureExtents();
+        return getExtentBefore(sections.size());
+    }
+
+    /**
+     * Records the measured extent of the item at {@param adapterPosition}, updating the extent of
+     * its {@link Section} in logarithmic time of the number of {@link Section}s. The extents of
+     * all {@link Section}s are only rebuilt when the first item is measured, since the {@link
+     * #defaultItemExtent} of unmeasured {@link Section}s is unknown until then.
+     *
+     * @see SectionLinearLayoutManager
+     */
+    void recordItemExtent(int adapterPosition, int extent) {
+        int sectionPosition = getSectionPositionForAdapterPosition(adapterPosition);
+        Section section = sections.get(sectionPosition);
+        long oldSum = section.getMeasuredExtentSum();
+        int oldCount = section.getMeasuredExtentCount();
+        if (!section.recordMeasuredExtent(getItemSectionPosition(adapterPosition), extent)
+                || !areExtentsValid) {
+            return;
+        }
+        measuredExtentSum += section.getMeasuredExtentSum() - oldSum;
+        measuredExtentCount += section.getMeasuredExtentCount() - oldCount;
+        if (defaultItemExtent == 0 && measuredExtentCount > 0) {
+            areExtentsValid = false;
+            return;
+        }
+        long sectionExtent = section.isEnabled() ? section.getExtent(defaultItemExtent) : 0;
+        long delta = sectionExtent - sectionExtents[sectionPosition];
+        if (delta != 0) {
+            sectionExtents[sectionPosition] = sectionExtent;
+            for (int i = sectionPosition + 1; i < extentTree.length; i += i & -i) {
+                extentTree[i] += delta;
+            }
+        }
+    }
+
+    void invalidateExtents() {
+        areExtentsValid = false;
+    }
+
+    /**
+     * Returns the total extent of the {@link Section}s before {@param sectionPosition}. Must be
+     * called after {@link #ensureExtents()}.
+     */
+    private long getExtentBefore(int sectionPosition) {
+        long extent = 0;
+        for (int i = sectionPosition; i > 0; i -= i & -i) {
+            extent += extentTree[i];
+        }
+        return extent;
+    }
+
+    /**
+     * Rebuilds {@link #sectionExtents} and {@link #extentTree} in linear time if they have been
+     * invalidated, which happens when {@link Section}s or their items are added or removed.
+     */
+    private void ensureExtents() {
+        if (areExtentsValid) {
+            return;
+        }
+        measuredExtentSum = 0;
+        measuredExtentCount = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            measuredExtentSum += sections.get(i).getMeasuredExtentSum();
+            measuredExtentCount += sections.get(i).getMeasuredExtentCount();
+        }
+        defaultItemExtent = measuredExtentCount > 0
+                ? (int) (measuredExtentSum / measuredExtentCount)
+                : 0;
+        if (sectionExtents.length != sections.size()) {
+            sectionExtents = new long[sections.size()];
+            extentTree = new long[sections.size() + 1];
+        }
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            sectionExtents[i] = section.isEnabled() ? section.getExtent(defaultItemExtent) : 0;
+            extentTree[i + 1] = sectionExtents[i];
+        }
+        for (int i = 1; i < extentTree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < extentTree.length) {
+                extentTree[parent] += extentTree[i];
+            }
+        }
+        areExtentsValid = true;
     }
 
     /**
@@ -310,11 +1096,38 @@ public class SectionManager {
      * @return {@link Section}
      */
     protected Section getSectionForAdapterViewType(int adapterViewType) {
-        return sections.get(adapterViewType);
+        int itemViewTypeIndex = itemViewTypeSections.indexOfKey(adapterViewType);
+        return viewTypeToSectionMap.get(itemViewTypeIndex >= 0
+                ? itemViewTypeSections.valueAt(itemViewTypeIndex)
+                : adapterViewType);
     }
 
     protected int getViewTypeForAdapterPosition(int adapterPosition) {
-        return getSectionPositionForAdapterPosition(adapterPosition);
+        int sectionPosition = getSectionPositionForAdapterPosition(adapterPosition);
+        Section section = sections.get(sectionPosition);
+        int itemViewType = section.getItemViewType(getItemSectionPosition(adapterPosition));
+        int viewType = sectionViewTypes[sectionPosition];
+        if (itemViewType == 0) {
+            return viewType;
+        }
+        long key = ((long) viewType << 32) | (itemViewType & 0xFFFFFFFFL);
+        Integer adapterViewType = adapterViewTypes.get(key);
+        if (adapterViewType == null) {
+            adapterViewType = nextViewType++;
+            adapterViewTypes.put(key, adapterViewType);
+            itemViewTypeSections.put(adapterViewType, viewType);
+            itemViewTypes.put(adapterViewType, itemViewType);
+        }
+        return adapterViewType;
+    }
+
+    /**
+     * Creates a {@link RecyclerView.ViewHolder} for {@param adapterViewType} through the {@link
+     * Section} it belongs to.
+     */
+    protected RecyclerView.ViewHolder createViewHolder(ViewGroup parent, int adapterViewType) {
+        return getSectionForAdapterViewType(adapterViewType)
+                .createViewHolder(parent, itemViewTypes.get(adapterViewType, 0));
     }
 
     protected int getSectionPositionForAdapterPosition(int adapterPosition) {
@@ -330,4 +1143,382 @@ public class SectionManager {
     protected Section getSectionForAdapterPosition(int adapterPosition) {
         return sections.get(getSectionPositionForAdapterPosition(adapterPosition));
     }
+
+    /**
+     * A {@link ReloadableSection} which {@link #trimMemory(int)} may release.
+     */
+    private static class TrimCandidate {
+
+        static final Comparator<TrimCandidate> FARTHEST_LARGEST_FIRST
+                = new Comparator<TrimCandidate>() {
+            @Override
+            public int compare(TrimCandidate lhs, TrimCandidate rhs) {
+                if (lhs.distance != rhs.distance) {
+                    return lhs.distance > rhs.distance ? -1 : 1;
+                }
+                return lhs.bytes > rhs.bytes ? -1 : (lhs.bytes == rhs.bytes ? 0 : 1);
+            }
+        };
+
+        @NonNull final ReloadableSection section;
+
+        final int distance;
+
+        final long bytes;
+
+        TrimCandidate(@NonNull ReloadableSection section, int distance, long bytes) {
+            this.section = section;
+            this.distance = distance;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The difference between two lists of {@link Section}s. {@link Section}s are matched by {@link
+     * Section#getKey()} first, and then only the items of matched pairs of different instances
+     * are diffed, each against its counterpart. The cost hence depends on the number of {@link
+     * Section}s and the size of the replaced ones, rather than on the total number of items.
+     */
+    private static class SectionsDiff {
+
+        /**
+         * {@link Section}s with more items than this are moved as a removal and an insertion of
+         * their range, since RecyclerView processes a long series of single item moves in
+         * quadratic time.
+         */
+        private static final int MAX_ITEM_MOVES = 32;
+
+        @NonNull final Section[] oldSections;
+
+        @NonNull final int[] oldSizes;
+
+        @NonNull final Section[] newSections;
+
+        @NonNull final int[] newSizes;
+
+        /**
+         * Index of the matched old {@link Section} of each new {@link Section}, or -1.
+         */
+        @NonNull final int[] matches;
+
+        /**
+         * Items of the matched pairs whose items are diffed, by new index, else null.
+         */
+        @NonNull final Object[][] oldItems, newItems;
+
+        @NonNull final DiffUtil.DiffResult[] itemDiffs;
+
+        /**
+         * Captures the {@link Section}s and the items which need diffing. Must be called on the
+         * main thread, since {@link Section}s may be modified concurrently otherwise.
+         */
+        SectionsDiff(
+                @NonNull List<? extends Section> oldList,
+                @NonNull List<? extends Section> newList
+        ) {
+            oldSections = oldList.toArray(new Section[oldList.size()]);
+            newSections = newList.toArray(new Section[newList.size()]);
+            oldSizes = getSizes(oldSections);
+            newSizes = getSizes(newSections);
+            matches = new int[newSections.length];
+            oldItems = new Object[newSections.length][];
+            newItems = new Object[newSections.length][];
+            itemDiffs = new DiffUtil.DiffResult[newSections.length];
+            Map<Object, Integer> oldIndices = new HashMap<>(oldSections.length * 2);
+            for (int i = oldSections.length - 1; i >= 0; i--) {
+                // The first of several Sections with equal keys is matched
+                oldIndices.put(oldSections[i].getKey(), i);
+            }
+            for (int j = 0; j < newSections.length; j++) {
+                Integer i = oldIndices.remove(newSections[j].getKey());
+                if (i == null || oldSections[i].getClass() != newSections[j].getClass()) {
+                    matches[j] = -1;
+                    continue;
+                }
+                matches[j] = i;
+                if (oldSections[i] != newSections[j] && (oldSizes[i] > 0 || newSizes[j] > 0)) {
+                    oldItems[j] = getItems(oldSections[i], oldSizes[i]);
+                    newItems[j] = getItems(newSections[j], newSizes[j]);
+                }
+            }
+        }
+
+        @NonNull
+        private static int[] getSizes(@NonNull Section[] sections) {
+            int[] sizes = new int[sections.length];
+            for (int i = 0; i < sections.length; i++) {
+                sizes[i] = sections[i].isEnabled() ? sections[i].size() : 0;
+            }
+            return sizes;
+        }
+
+        @NonNull
+        private static Object[] getItems(@NonNull Section section, int size) {
+            Object[] items = new Object[size];
+            for (int i = 0; i < size; i++) {
+                items[i] = section.getItemForDiff(i);
+            }
+            return items;
+        }
+
+        /**
+         * Diffs the items of matched {@link Section}s. Only reads captured state, so it may run on
+         * a background thread.
+         */
+        void calculate() {
+            for (int j = 0; j < newSections.length; j++) {
+                if (oldItems[j] != null) {
+                    itemDiffs[j] = DiffUtil.calculateDiff(
+                            new ItemsDiffCallback(newSections[j], oldItems[j], newItems[j]),
+                            false
+                    );
+                }
+            }
+        }
+
+        /**
+         * Notifies {@param adapter} of the difference: removed {@link Section}s first, then moved
+         * ones, inserted ones and finally the items of matched {@link Section}s. Slots hold the
+         * new index of each {@link Section} in its current position, or -1 for removed ones, and
+         * its current number of items.
+         */
+        void dispatchUpdatesTo(@NonNull RecyclerView.Adapter adapter) {
+            List<int[]> slots = new ArrayList<>(Math.max(oldSections.length, newSections.length));
+            for (int i = 0; i < oldSections.length; i++) {
+                slots.add(new int[]{-1, oldSizes[i]});
+            }
+            for (int j = 0; j < newSections.length; j++) {
+                if (matches[j] >= 0) {
+                    slots.get(matches[j])[0] = j;
+                }
+            }
+            for (int i = slots.size() - 1; i >= 0; i--) {
+                if (slots.get(i)[0] < 0) {
+                    if (slots.get(i)[1] > 0) {
+                        adapter.notifyItemRangeRemoved(getOffset(slots, i), slots.get(i)[1]);
+                    }
+                    slots.remove(i);
+                }
+            }
+            dispatchMoves(adapter, slots);
+            for (int j = 0; j < newSections.length; j++) {
+                if (matches[j] < 0) {
+                    slots.add(j, new int[]{j, newSizes[j]});
+                    if (newSizes[j] > 0) {
+                        adapter.notifyItemRangeInserted(getOffset(slots, j), newSizes[j]);
+                    }
+                }
+            }
+            for (int j = 0; j < newSections.length; j++) {
+                if (itemDiffs[j] != null) {
+                    itemDiffs[j].dispatchUpdatesTo(
+                            new OffsetUpdateCallback(adapter, getOffset(slots, j))
+                    );
+                    slots.get(j)[1] = newSizes[j];
+                }
+            }
+        }
+
+        /**
+         * Moves the matched {@link Section}s into their new order, keeping the run of {@link
+         * Section}s with the most items which are already in order in place and moving the others
+         * next to their new predecessor. Moves of more than {@link #MAX_ITEM_MOVES} items are
+         * dispatched as a range removal and insertion.
+         */
+        private void dispatchMoves(@NonNull RecyclerView.Adapter adapter, List<int[]> slots) {
+            int[] order = new int[slots.size()];
+            int count = 0;
+            for (int j = 0; j < newSections.length; j++) {
+                if (matches[j] >= 0) {
+                    order[count++] = j;
+                }
+            }
+            boolean[] isInPlace = getLongestIncreasingRun(order, count);
+            for (int t = 0; t < count; t++) {
+                if (isInPlace[t]) {
+                    continue;
+                }
+                int from = indexOfSlot(slots, order[t]);
+                int to = t == 0 ? 0 : indexOfSlot(slots, order[t - 1]) + 1;
+                if (from == to) {
+                    continue;
+                }
+                int size = slots.get(from)[1];
+                int fromOffset = getOffset(slots, from);
+                if (size > MAX_ITEM_MOVES) {
+                    adapter.notifyItemRangeRemoved(fromOffset, size);
+                    int[] slot = slots.remove(from);
+                    int index = from > to ? to : to - 1;
+                    slots.add(index, slot);
+                    adapter.notifyItemRangeInserted(getOffset(slots, index), size);
+                } else if (from > to) {
+                    int toOffset = getOffset(slots, to);
+                    for (int m = 0; m < size; m++) {
+                        adapter.notifyItemMoved(fromOffset + m, toOffset + m);
+                    }
+                    slots.add(to, slots.remove(from));
+                } else {
+                    int toOffset = getOffset(slots, to) - size;
+                    for (int m = 0; m < size; m++) {
+                        adapter.notifyItemMoved(fromOffset, toOffset + size - 1);
+                    }
+                    slots.add(to - 1, slots.remove(from));
+                }
+            }
+        }
+
+        /**
+         * Marks the subsequence of the first {@param count} matched {@link Section}s in {@param
+         * order}, given by new index in new order, whose old indices are increasing and which
+         * holds the most items, and among those the most {@link Section}s. Uses a Fenwick tree of
+         * the best run ending at each old index, so it takes O(n log n) time.
+         */
+        @NonNull
+        private boolean[] getLongestIncreasingRun(@NonNull int[] order, int count) {
+            int n = oldSections.length;
+            // Indexed by old index + 1, holding the best weight and the position in order
+            long[] treeWeights = new long[n + 1];
+            int[] treeEnds = new int[n + 1];
+            Arrays.fill(treeEnds, -1);
+            int[] previous = new int[count];
+            long bestWeight = 0;
+            int bestEnd = -1;
+            for (int t = 0; t < count; t++) {
+                int oldIndex = matches[order[t]];
+                long prefixWeight = 0;
+                int prefixEnd = -1;
+                for (int i = oldIndex; i > 0; i -= i & -i) {
+                    if (treeWeights[i] > prefixWeight) {
+                        prefixWeight = treeWeights[i];
+                        prefixEnd = treeEnds[i];
+                    }
+                }
+                long weight = prefixWeight + (long) oldSizes[oldIndex] * (n + 1) + 1;
+                previous[t] = prefixEnd;
+                for (int i = oldIndex + 1; i <= n; i += i & -i) {
+                    if (weight > treeWeights[i]) {
+                        treeWeights[i] = weight;
+                        treeEnds[i] = t;
+                    }
+                }
+                if (weight > bestWeight) {
+                    bestWeight = weight;
+                    bestEnd = t;
+                }
+            }
+            boolean[] isInRun = new boolean[count];
+            for (int t = bestEnd; t >= 0; t = previous[t]) {
+                isInRun[t] = true;
+            }
+            return isInRun;
+        }
+
+        private static int indexOfSlot(@NonNull List<int[]> slots, int newIndex) {
+            for (int i = 0; i < slots.size(); i++) {
+                if (slots.get(i)[0] == newIndex) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int getOffset(@NonNull List<int[]> slots, int index) {
+            int offset = 0;
+            for (int i = 0; i < index; i++) {
+                offset += slots.get(i)[1];
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Diffs the items of a matched pair of {@link Section}s, using the hooks of the new {@link
+     * Section} to compare them.
+     */
+    private static class ItemsDiffCallback extends DiffUtil.Callback {
+
+        @NonNull private final Section section;
+
+        @NonNull private final Object[] oldItems;
+
+        @NonNull private final Object[] newItems;
+
+        ItemsDiffCallback(
+                @NonNull Section section,
+                @NonNull Object[] oldItems,
+                @NonNull Object[] newItems
+        ) {
+            this.section = section;
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            Object oldItem = oldItems[oldPosition];
+            Object newItem = newItems[newPosition];
+            if (oldItem == null || newItem == null) {
+                return oldItem == newItem && oldPosition == newPosition;
+            }
+            Object oldKey = section.getItemKey(oldItem);
+            Object newKey = section.getItemKey(newItem);
+            return oldKey == null ? newKey == null : oldKey.equals(newKey);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            Object oldItem = oldItems[oldPosition];
+            Object newItem = newItems[newPosition];
+            return oldItem != null && newItem != null
+                    && section.areContentsTheSame(oldItem, newItem);
+        }
+    }
+
+    /**
+     * Forwards the updates of a single {@link Section} to the adapter, offset by the adapter
+     * position of its first item.
+     */
+    private static class OffsetUpdateCallback implements ListUpdateCallback {
+
+        @NonNull private final RecyclerView.Adapter adapter;
+
+        private final int offset;
+
+        OffsetUpdateCallback(@NonNull RecyclerView.Adapter adapter, int offset) {
+            this.adapter = adapter;
+            this.offset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            adapter.notifyItemRangeInserted(offset + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            adapter.notifyItemRangeRemoved(offset + position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            adapter.notifyItemMoved(offset + fromPosition, offset + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            adapter.notifyItemRangeChanged(offset + position, count, payload);
+        }
+    }
 }
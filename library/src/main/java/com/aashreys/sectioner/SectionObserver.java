@@ -0,0 +1,100 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives callbacks when the {@link Data}s held by a {@link Section} change. Register via {@link
+ * Section#registerObserver(SectionObserver)}. Callbacks are made on the thread which modified the
+ * {@link Section}, after the modification has been made.
+ * <p>
+ * Besides the {@link Data}s themselves, changes to the positions of a {@link Section} are
+ * reported after the adapter has been notified of them, which lets position based state such as
+ * {@link SectionSelection} or a {@link DerivedSection} follow insertions, removals, moves and
+ * changes. Positions hidden or revealed by {@link Section#setEnabled(boolean)} are not reported.
+ */
+public abstract class SectionObserver<Data> {
+
+    /**
+     * Called when a {@link Data} has been added to {@param section}.
+     */
+    public void onDataAdded(@NonNull Section<Data, ?> section, @NonNull Data data) {}
+
+    /**
+     * Called when a {@link Data} has been removed from {@param section}.
+     */
+    public void onDataRemoved(@NonNull Section<Data, ?> section, @NonNull Data data) {}
+
+    /**
+     * Called when {@param itemCount} positions have been inserted into {@param section}, starting
+     * at {@param positionStart}.
+     */
+    public void onItemRangeInserted(
+            @NonNull Section<Data, ?> section,
+            int positionStart,
+            int itemCount
+    ) {}
+
+    /**
+     * Called when {@param itemCount} positions have been removed from {@param section}, starting
+     * at {@param positionStart}.
+     */
+    public void onItemRangeRemoved(
+            @NonNull Section<Data, ?> section,
+            int positionStart,
+            int itemCount
+    ) {}
+
+    /**
+     * Called when the item at {@param fromPosition} in {@param section} has been moved to {@param
+     * toPosition}.
+     */
+    public void onItemMoved(@NonNull Section<Data, ?> section, int fromPosition, int toPosition) {}
+
+    /**
+     * Called when the {@link Data}s at {@param itemCount} positions of {@param section}, starting
+     * at {@param positionStart}, have been changed or replaced.
+     */
+    public void onItemRangeChanged(
+            @NonNull Section<Data, ?> section,
+            int positionStart,
+            int itemCount
+    ) {}
+
+    /**
+     * Called when {@param itemCount} {@link Data}s have been inserted into {@param section},
+     * starting at {@param dataPositionStart} among all of its {@link Data}s, including those
+     * hidden by a filter. Same as {@link #onItemRangeInserted(Section, int, int)} unless {@param
+     * section} is filtered: {@link Data}s revealed by a filter are not reported here, while
+     * {@link Data}s inserted but hidden are.
+     *
+     * @see MultiItemSection#filter(ItemFilter)
+     */
+    public void onDataRangeInserted(
+            @NonNull Section<Data, ?> section,
+            int dataPositionStart,
+            int itemCount
+    ) {}
+
+    /**
+     * Called when {@param itemCount} {@link Data}s have been removed from {@param section},
+     * starting at {@param dataPositionStart} among all of its {@link Data}s, including those
+     * hidden by a filter. Same as {@link #onItemRangeRemoved(Section, int, int)} unless {@param
+     * section} is filtered: {@link Data}s hidden by a filter are not reported here, while hidden
+     * {@link Data}s which are removed are.
+     */
+    public void onDataRangeRemoved(
+            @NonNull Section<Data, ?> section,
+            int dataPositionStart,
+            int itemCount
+    ) {}
+
+    /**
+     * Called when the {@link Data} at {@param fromDataPosition} among all {@link Data}s of {@param
+     * section} has been moved to {@param toDataPosition}.
+     */
+    public void onDataMoved(
+            @NonNull Section<Data, ?> section,
+            int fromDataPosition,
+            int toDataPosition
+    ) {}
+}
@@ -0,0 +1,534 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-selection state for the items of a {@link SectionManager}, kept as one bitset per {@link
+ * Section}. Toggling an item takes constant time, and selecting, clearing or inverting all items
+ * of a {@link Section} takes time proportional to its size divided by 64.
+ * <p>
+ * Selections follow their items when positions are inserted into, removed from or moved within a
+ * {@link Section}, and are dropped when their {@link Section} is removed from the {@link
+ * SectionManager}. They are kept by the position of each item among all items of its {@link
+ * Section}, including those hidden by a filter, so that hidden items keep their selection until
+ * they are revealed again. Changes are notified to the adapter with {@link #SELECTION_PAYLOAD}
+ * only for the affected positions around the visible items, which can be checked for in {@link
+ * Section#bindViewHolder(RecyclerView.ViewHolder, int, int, List)} to update only the selected
+ * state of a {@link android.view.View}. Must be used from the main thread.
+ */
+public class SectionSelection {
+
+    /**
+     * Notified whenever items are selected or deselected through a {@link SectionSelection}.
+     */
+    public interface OnSelectionChangedListener {
+
+        void onSelectionChanged(@NonNull SectionSelection selection);
+    }
+
+    /**
+     * Payload of the change notifications dispatched for selection changes.
+     */
+    public static final Object SELECTION_PAYLOAD = new Object();
+
+    /**
+     * Default number of positions beyond the visible items which are notified of selection
+     * changes, covering {@link RecyclerView.ViewHolder}s which are bound but not displayed, such
+     * as cached and prefetched ones.
+     */
+    public static final int DEFAULT_OFFSCREEN_MARGIN = 10;
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final Map<Section, Bits> selections = new HashMap<>();
+
+    @NonNull private final List<OnSelectionChangedListener> listeners = new ArrayList<>();
+
+    @NonNull private final SectionObserver positionObserver = new PositionObserver();
+
+    private int offscreenMargin = DEFAULT_OFFSCREEN_MARGIN;
+
+    @NonNull private final SectionManager.OnSectionsChangedListener sectionsChangedListener
+            = new SectionManager.OnSectionsChangedListener() {
+        @Override
+        public void onSectionsChanged(@NonNull SectionManager sectionManager) {
+            removeDetachedSections();
+        }
+    };
+
+    public SectionSelection(@NonNull SectionManager sectionManager) {
+        this.sectionManager = sectionManager;
+        sectionManager.addOnSectionsChangedListener(sectionsChangedListener);
+    }
+
+    /**
+     * Stops tracking the {@link SectionManager} and its {@link Section}s. This selection must not
+     * be used afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    public void release() {
+        sectionManager.removeOnSectionsChangedListener(sectionsChangedListener);
+        for (Section section : selections.keySet()) {
+            section.unregisterObserver(positionObserver);
+        }
+        selections.clear();
+    }
+
+    /**
+     * Sets the number of positions beyond the visible items which are notified of selection
+     * changes. Defaults to {@link #DEFAULT_OFFSCREEN_MARGIN}. Should be at least the number of
+     * {@link RecyclerView.ViewHolder}s the {@link RecyclerView} keeps bound off screen.
+     */
+    public void setOffscreenMargin(int offscreenMargin) {
+        this.offscreenMargin = offscreenMargin;
+    }
+
+    public void addOnSelectionChangedListener(@NonNull OnSelectionChangedListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeOnSelectionChangedListener(@NonNull OnSelectionChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Checks if the item at {@param adapterPosition} is selected.
+     */
+    public boolean isSelected(int adapterPosition) {
+        return isSelected(
+                sectionManager.getSectionForAdapterPosition(adapterPosition),
+                sectionManager.getItemSectionPosition(adapterPosition)
+        );
+    }
+
+    /**
+     * Checks if the item at {@param sectionPosition} of {@param section} is selected.
+     */
+    public boolean isSelected(@NonNull Section section, int sectionPosition) {
+        Bits bits = selections.get(section);
+        return bits != null && bits.get(section.getDataPosition(sectionPosition));
+    }
+
+    /**
+     * Selects or deselects the item at {@param adapterPosition}.
+     */
+    public void setSelected(int adapterPosition, boolean isSelected) {
+        setSelected(
+                sectionManager.getSectionForAdapterPosition(adapterPosition),
+                sectionManager.getItemSectionPosition(adapterPosition),
+                isSelected
+        );
+    }
+
+    /**
+     * Selects or deselects the item at {@param sectionPosition} of {@param section}.
+     */
+    public void setSelected(@NonNull Section section, int sectionPosition, boolean isSelected) {
+        checkPosition(section, sectionPosition);
+        if (isSelected(section, sectionPosition) != isSelected) {
+            int dataPosition = section.getDataPosition(sectionPosition);
+            getOrCreateBits(section).flip(dataPosition, dataPosition + 1);
+            onSelectionChanged(section, sectionPosition, sectionPosition + 1);
+        }
+    }
+
+    /**
+     * Inverts the selection of the item at {@param adapterPosition}.
+     */
+    public void toggle(int adapterPosition) {
+        toggle(
+                sectionManager.getSectionForAdapterPosition(adapterPosition),
+                sectionManager.getItemSectionPosition(adapterPosition)
+        );
+    }
+
+    /**
+     * Inverts the selection of the item at {@param sectionPosition} of {@param section}.
+     */
+    public void toggle(@NonNull Section section, int sectionPosition) {
+        checkPosition(section, sectionPosition);
+        int dataPosition = section.getDataPosition(sectionPosition);
+        getOrCreateBits(section).flip(dataPosition, dataPosition + 1);
+        onSelectionChanged(section, sectionPosition, sectionPosition + 1);
+    }
+
+    /**
+     * Selects every item displayed by {@param section}.
+     */
+    public void selectAll(@NonNull Section section) {
+        if (section.size() > 0) {
+            Bits bits = getOrCreateBits(section);
+            if (section.size() == section.getDataCount()) {
+                bits.set(0, section.size());
+            } else {
+                for (int i = 0; i < section.size(); i++) {
+                    int dataPosition = section.getDataPosition(i);
+                    bits.set(dataPosition, dataPosition + 1);
+                }
+            }
+            onSelectionChanged(section, 0, section.size());
+        }
+    }
+
+    /**
+     * Inverts the selection of every item displayed by {@param section}.
+     */
+    public void invert(@NonNull Section section) {
+        if (section.size() > 0) {
+            Bits bits = getOrCreateBits(section);
+            if (section.size() == section.getDataCount()) {
+                bits.flip(0, section.size());
+            } else {
+                for (int i = 0; i < section.size(); i++) {
+                    int dataPosition = section.getDataPosition(i);
+                    bits.flip(dataPosition, dataPosition + 1);
+                }
+            }
+            onSelectionChanged(section, 0, section.size());
+        }
+    }
+
+    /**
+     * Deselects every item of {@param section}, including those hidden by a filter.
+     */
+    public void clearSelection(@NonNull Section section) {
+        Bits bits = selections.get(section);
+        if (bits != null && !bits.isEmpty()) {
+            bits.clear(0, bits.length());
+            onSelectionChanged(section, 0, section.size());
+        }
+    }
+
+    /**
+     * Deselects every item of every {@link Section}.
+     */
+    public void clearSelection() {
+        List<Section> sections = new ArrayList<>(selections.keySet());
+        for (int i = 0; i < sections.size(); i++) {
+            clearSelection(sections.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of selected items of {@param section}, including those hidden by a
+     * filter.
+     */
+    public int getSelectedCount(@NonNull Section section) {
+        Bits bits = selections.get(section);
+        return bits != null ? bits.cardinality() : 0;
+    }
+
+    /**
+     * Returns the number of selected items of every {@link Section}, including those hidden by a
+     * filter.
+     */
+    public int getSelectedCount() {
+        int count = 0;
+        for (Bits bits : selections.values()) {
+            count += bits.cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the selected positions of {@param section} in ascending order. Selected items which
+     * are hidden by a filter have no position and are left out.
+     */
+    @NonNull
+    public int[] getSelectedPositions(@NonNull Section section) {
+        Bits bits = selections.get(section);
+        if (bits == null) {
+            return new int[0];
+        }
+        int[] positions = new int[bits.cardinality()];
+        int count = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            int sectionPosition = section.getSectionPositionForDataPosition(i);
+            if (sectionPosition >= 0) {
+                positions[count++] = sectionPosition;
+            }
+        }
+        return count < positions.length ? Arrays.copyOf(positions, count) : positions;
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private Bits getOrCreateBits(@NonNull Section section) {
+        Bits bits = selections.get(section);
+        if (bits == null) {
+            bits = new Bits();
+            selections.put(section, bits);
+            section.registerObserver(positionObserver);
+        }
+        return bits;
+    }
+
+    private static void checkPosition(@NonNull Section section, int sectionPosition) {
+        if (sectionPosition < 0 || sectionPosition >= section.size()) {
+            throw new IndexOutOfBoundsException(
+                    "Invalid position " + sectionPosition + ", size is " + section.size());
+        }
+    }
+
+    /**
+     * Notifies the adapter of a selection change of the positions {@param start} to {@param end}
+     * of {@param section}, restricted to the positions around the visible items, and then the
+     * {@link OnSelectionChangedListener}s.
+     */
+    private void onSelectionChanged(@NonNull Section section, int start, int end) {
+        if (section.isEnabled() && sectionManager.contains(section) && start < end) {
+            int firstPosition = sectionManager.getFirstItemAdapterPositionForSection(section);
+            int firstVisible = sectionManager.findFirstVisibleItemPosition();
+            int lastVisible = sectionManager.findLastVisibleItemPosition();
+            if (firstVisible != RecyclerView.NO_POSITION
+                    && lastVisible != RecyclerView.NO_POSITION) {
+                start = Math.max(start, firstVisible - offscreenMargin - firstPosition);
+                end = Math.min(end, lastVisible + offscreenMargin + 1 - firstPosition);
+            }
+            if (start < end) {
+                sectionManager.getAdapter().notifyItemRangeChanged(
+                        firstPosition + start,
+                        end - start,
+                        SELECTION_PAYLOAD
+                );
+            }
+        }
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onSelectionChanged(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeDetachedSections() {
+        Iterator<Map.Entry<Section, Bits>> iterator = selections.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Section section = iterator.next().getKey();
+            if (!sectionManager.contains(section)) {
+                section.unregisterObserver(positionObserver);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Shifts the selections of a {@link Section} along with the positions of its items, ignoring
+     * items which are only hidden or revealed by a filter.
+     */
+    private class PositionObserver extends SectionObserver<Object> {
+
+        @Override
+        public void onDataRangeInserted(
+                @NonNull Section<Object, ?> section,
+                int dataPositionStart,
+                int itemCount
+        ) {
+            Bits bits = selections.get(section);
+            if (bits != null) {
+                bits.insert(dataPositionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onDataRangeRemoved(
+                @NonNull Section<Object, ?> section,
+                int dataPositionStart,
+                int itemCount
+        ) {
+            Bits bits = selections.get(section);
+            if (bits != null) {
+                bits.remove(dataPositionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onDataMoved(
+                @NonNull Section<Object, ?> section,
+                int fromPosition,
+                int toPosition
+        ) {
+            Bits bits = selections.get(section);
+            if (bits != null) {
+                boolean isSelected = bits.get(fromPosition);
+                bits.remove(fromPosition, 1);
+                bits.insert(toPosition, 1);
+                if (isSelected) {
+                    bits.set(toPosition, toPosition + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable bitset which, unlike {@link java.util.BitSet}, can insert and remove ranges of
+     * bits, shifting the following bits a word at a time.
+     */
+    static class Bits {
+
+        private static final long ALL_ONES = -1L;
+
+        @NonNull private long[] words = new long[1];
+
+        boolean get(int index) {
+            int word = index >>> 6;
+            return word < words.length && (words[word] & (1L << index)) != 0;
+        }
+
+        void set(int fromIndex, int toIndex) {
+            ensureCapacity(toIndex);
+            for (int w = fromIndex >>> 6; w <= (toIndex - 1) >>> 6; w++) {
+                words[w] |= rangeMask(w, fromIndex, toIndex);
+            }
+        }
+
+        void clear(int fromIndex, int toIndex) {
+            toIndex = Math.min(toIndex, words.length << 6);
+            for (int w = fromIndex >>> 6; fromIndex < toIndex && w <= (toIndex - 1) >>> 6; w++) {
+                words[w] &= ~rangeMask(w, fromIndex, toIndex);
+            }
+        }
+
+        void flip(int fromIndex, int toIndex) {
+            ensureCapacity(toIndex);
+            for (int w = fromIndex >>> 6; w <= (toIndex - 1) >>> 6; w++) {
+                words[w] ^= rangeMask(w, fromIndex, toIndex);
+            }
+        }
+
+        /**
+         * Inserts {@param count} clear bits at {@param index}, shifting the following bits up.
+         */
+        void insert(int index, int count) {
+            int length = length();
+            if (length <= index || count <= 0) {
+                return;
+            }
+            ensureCapacity(length + count);
+            // Copy from the highest word down, so that source words are read before written
+            for (int w = (length + count - 1) >>> 6; w >= index >>> 6; w--) {
+                words[w] = (words[w] & ~maskFrom(w, index))
+                        | (wordAt((w << 6) - count) & maskFrom(w, index + count));
+            }
+        }
+
+        /**
+         * Removes the {@param count} bits at {@param index}, shifting the following bits down.
+         */
+        void remove(int index, int count) {
+            int length = length();
+            if (length <= index || count <= 0) {
+                return;
+            }
+            // Copy from the lowest word up, so that source words are read before written
+            for (int w = index >>> 6; w <= (length - 1) >>> 6; w++) {
+                words[w] = (words[w] & ~maskFrom(w, index))
+                        | (wordAt((w << 6) + count) & maskFrom(w, index));
+            }
+        }
+
+        int cardinality() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        boolean isEmpty() {
+            for (long word : words) {
+                if (word != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the index of the highest set bit plus one, or 0 if no bits are set.
+         */
+        int length() {
+            for (int w = words.length - 1; w >= 0; w--) {
+                if (words[w] != 0) {
+                    return (w << 6) + 64 - Long.numberOfLeadingZeros(words[w]);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the index of the first set bit at or after {@param fromIndex}, or -1.
+         */
+        int nextSetBit(int fromIndex) {
+            int w = fromIndex >>> 6;
+            if (w >= words.length) {
+                return -1;
+            }
+            long word = words[w] & (ALL_ONES << fromIndex);
+            while (true) {
+                if (word != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == words.length) {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+
+        /**
+         * Returns the 64 bits starting at {@param index}, which may be negative, treating bits
+         * outside of {@link #words} as clear.
+         */
+        private long wordAt(int index) {
+            if (index <= -64) {
+                return 0;
+            } else if (index < 0) {
+                return words[0] << -index;
+            }
+            int w = index >>> 6;
+            int offset = index & 63;
+            long low = w < words.length ? words[w] >>> offset : 0;
+            if (offset == 0 || w + 1 >= words.length) {
+                return low;
+            }
+            return low | (words[w + 1] << (64 - offset));
+        }
+
+        /**
+         * Returns the bits of word {@param w} whose indices are at least {@param index}.
+         */
+        private static long maskFrom(int w, int index) {
+            int start = w << 6;
+            if (index <= start) {
+                return ALL_ONES;
+            } else if (index >= start + 64) {
+                return 0;
+            }
+            return ALL_ONES << (index - start);
+        }
+
+        /**
+         * Returns the bits of word {@param w} whose indices are in [{@param fromIndex}, {@param
+         * toIndex}).
+         */
+        private static long rangeMask(int w, int fromIndex, int toIndex) {
+            return maskFrom(w, fromIndex) & ~maskFrom(w, toIndex);
+        }
+
+        private void ensureCapacity(int bitCount) {
+            int wordCount = (bitCount + 63) >>> 6;
+            if (wordCount > words.length) {
+                words = Arrays.copyOf(words, Math.max(wordCount, words.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,714 @@
+package com.aashreys.sectioner;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps a binary snapshot of the {@link Section}s of a {@link SectionManager} and their items on
+ * disk, so that the next cold start can display the last known state right away instead of
+ * waiting for the data layer.
+ * <p>
+ * The snapshot consists of a small layout file listing the cached {@link Section}s, and one file
+ * per {@link Section} holding its items as records encoded by a {@link RecordCodec}. Snapshots are
+ * written on a background thread once the {@link SectionManager} has not changed for the write
+ * delay, or after the maximum write delay if it keeps changing, and only the files of {@link
+ * Section}s which have changed since the last write are rewritten. Section files are
+ * memory-mapped when loaded.
+ * <p>
+ * After {@link #load(Callback)} has displayed the cached {@link Section}s, pass the live {@link
+ * Section}s to {@link SectionManager#setSections(List)}, which animates only the differences. For
+ * this, restored {@link Section}s must return the same {@link Section#getKey()} and {@link
+ * Section#getItemKey(Object)} as their live counterparts. Must be used from the main thread.
+ */
+public class SectionSnapshotCache {
+
+    /**
+     * Describes how {@link Section}s are cached and restored.
+     */
+    public interface Codec {
+
+        /**
+         * Returned by {@link #getSectionType(Section)} for {@link Section}s which are not cached.
+         */
+        int NOT_CACHED = -1;
+
+        /**
+         * Returns an application defined type of {@param section}, which selects its {@link
+         * RecordCodec} and how it is restored, or {@link #NOT_CACHED}.
+         */
+        int getSectionType(@NonNull Section section);
+
+        /**
+         * Returns a key identifying {@param section} across process restarts, such as a server
+         * provided id. Keys must be unique among the cached {@link Section}s.
+         */
+        @NonNull
+        String getSectionKey(@NonNull Section section);
+
+        /**
+         * Returns the {@link RecordCodec} of the items of {@link Section}s of {@param sectionType}.
+         * Called, and its methods are called, on a background thread.
+         */
+        @NonNull
+        RecordCodec getItemCodec(int sectionType);
+
+        /**
+         * Recreates a {@link Section} from its cached items.
+         *
+         * @param sectionType type returned by {@link #getSectionType(Section)}
+         * @param key         key returned by {@link #getSectionKey(Section)}
+         * @param items       decoded items, in order.
+         */
+        @NonNull
+        Section createSection(int sectionType, @NonNull String key, @NonNull List<Object> items);
+    }
+
+    /**
+     * Notified on the main thread once {@link #load(Callback)} has completed.
+     */
+    public interface Callback {
+
+        /**
+         * @param isApplied true if cached {@link Section}s have been added to the {@link
+         *                  SectionManager}, false if there was no usable snapshot or the {@link
+         *                  SectionManager} already had {@link Section}s.
+         */
+        void onLoaded(boolean isApplied);
+    }
+
+    /**
+     * Default time, in milliseconds, the {@link SectionManager} must remain unchanged before a
+     * snapshot is written.
+     */
+    public static final long DEFAULT_WRITE_DELAY_MILLIS = 2000;
+
+    /**
+     * Default maximum time, in milliseconds, a change to the {@link SectionManager} waits to be
+     * written while further changes keep postponing the write.
+     */
+    public static final long DEFAULT_MAX_WRITE_DELAY_MILLIS = 10000;
+
+    private static final int LAYOUT_MAGIC = 0x534C4159;
+
+    private static final int SECTION_MAGIC = 0x53534543;
+
+    private static final String LAYOUT_FILE_NAME = "layout";
+
+    private static final String SECTION_FILE_PREFIX = "section-";
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final File directory;
+
+    @NonNull private final Codec codec;
+
+    /**
+     * Runs loads and writes one at a time, in order, on the shared background {@link Executor}.
+     */
+    @NonNull private final SerialExecutor fileExecutor;
+
+    private long writeDelayMillis = DEFAULT_WRITE_DELAY_MILLIS;
+
+    private long maxWriteDelayMillis = DEFAULT_MAX_WRITE_DELAY_MILLIS;
+
+    /**
+     * {@link SystemClock#uptimeMillis()} of the first change since the last write, by which the
+     * scheduled write is held to the maximum write delay.
+     */
+    private long firstUnwrittenChangeMillis;
+
+    /**
+     * File id of every cached {@link Section} key.
+     */
+    @NonNull private final Map<String, Integer> fileIds = new HashMap<>();
+
+    private int nextFileId;
+
+    /**
+     * Layout as last written, as the type, key and file id of every cached {@link Section}.
+     */
+    @NonNull private List<LayoutEntry> writtenLayout = new ArrayList<>();
+
+    /**
+     * {@link Section} instance and {@link Section#getChangeCount()} last written for every key.
+     */
+    @NonNull private final Map<String, Section> writtenSections = new HashMap<>();
+
+    @NonNull private final Map<String, Integer> writtenChangeCounts = new HashMap<>();
+
+    private boolean isWriteScheduled;
+
+    private boolean isReleased;
+
+    @NonNull private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isWriteScheduled = false;
+            writeSnapshot();
+        }
+    };
+
+    @NonNull private final RecyclerView.AdapterDataObserver adapterObserver
+            = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            scheduleWrite();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            scheduleWrite();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            scheduleWrite();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            scheduleWrite();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            scheduleWrite();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            scheduleWrite();
+        }
+    };
+
+    /**
+     * Creates a {@link SectionSnapshotCache} which starts writing snapshots of {@param
+     * sectionManager} as soon as it changes.
+     *
+     * @param directory directory holding the snapshot files, created if it does not exist. Must
+     *                  not be used for anything else.
+     */
+    public SectionSnapshotCache(
+            @NonNull SectionManager sectionManager,
+            @NonNull File directory,
+            @NonNull Codec codec
+    ) {
+        this.sectionManager = sectionManager;
+        this.directory = directory;
+        this.codec = codec;
+        this.fileExecutor = new SerialExecutor(SectionExecutors.background());
+        sectionManager.getAdapter().registerAdapterDataObserver(adapterObserver);
+    }
+
+    /**
+     * Sets the time, in milliseconds, the {@link SectionManager} must remain unchanged before a
+     * snapshot is written. Defaults to {@link #DEFAULT_WRITE_DELAY_MILLIS}.
+     */
+    public void setWriteDelay(long writeDelayMillis) {
+        this.writeDelayMillis = writeDelayMillis;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, a change to the {@link SectionManager} waits to be
+     * written, so that a snapshot is still written at least this often while changes keep coming
+     * more often than the write delay. Defaults to {@link #DEFAULT_MAX_WRITE_DELAY_MILLIS}.
+     */
+    public void setMaxWriteDelay(long maxWriteDelayMillis) {
+        this.maxWriteDelayMillis = maxWriteDelayMillis;
+    }
+
+    /**
+     * Reads the snapshot on a background thread and, if the {@link SectionManager} has no {@link
+     * Section}s by then, adds the restored {@link Section}s to it on the main thread.
+     */
+    public void load(@Nullable final Callback callback) {
+        fileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<LayoutEntry> layout = null;
+                List<List<Object>> items = null;
+                try {
+                    layout = readLayout();
+                    items = new ArrayList<>(layout.size());
+                    for (int i = 0; i < layout.size(); i++) {
+                        LayoutEntry entry = layout.get(i);
+                        items.add(readSection(entry.fileId, codec.getItemCodec(entry.type)));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // A missing or unreadable snapshot is not an error, only a cache miss
+                    layout = null;
+                }
+                final List<LayoutEntry> loadedLayout = layout;
+                final List<List<Object>> loadedItems = items;
+                SectionExecutors.mainThread().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        boolean isApplied = loadedLayout != null
+                                && applySnapshot(loadedLayout, loadedItems);
+                        if (callback != null) {
+                            callback.onLoaded(isApplied);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Writes any pending changes right away instead of after the write delay, for example when the
+     * app moves to the background.
+     */
+    public void flush() {
+        if (isWriteScheduled) {
+            SectionExecutors.mainThread().removeCallbacks(writeRunnable);
+            isWriteScheduled = false;
+        }
+        writeSnapshot();
+    }
+
+    /**
+     * Deletes the snapshot. Later changes to the {@link SectionManager} are written again.
+     */
+    public void clear() {
+        writtenLayout = new ArrayList<>();
+        writtenSections.clear();
+        writtenChangeCounts.clear();
+        fileIds.clear();
+        fileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File[] files = directory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops writing snapshots. Writes which have already started are completed.
+     */
+    public void release() {
+        isReleased = true;
+        sectionManager.getAdapter().unregisterAdapterDataObserver(adapterObserver);
+        SectionExecutors.mainThread().removeCallbacks(writeRunnable);
+        isWriteScheduled = false;
+    }
+
+    /**
+     * Adds the restored {@link Section}s to the {@link SectionManager} unless live {@link
+     * Section}s have been added in the meantime, and records them as written.
+     */
+    private boolean applySnapshot(
+            @NonNull List<LayoutEntry> layout,
+            @NonNull List<List<Object>> items
+    ) {
+        if (isReleased || sectionManager.getSectionCount() > 0) {
+            return false;
+        }
+        Section[] sections = new Section[layout.size()];
+        for (int i = 0; i < layout.size(); i++) {
+            LayoutEntry entry = layout.get(i);
+            sections[i] = codec.createSection(entry.type, entry.key, items.get(i));
+        }
+        sectionManager.addAll(sections);
+        // The restored Sections are exactly what is on disk, so nothing needs to be rewritten
+        writtenLayout = layout;
+        for (int i = 0; i < layout.size(); i++) {
+            LayoutEntry entry = layout.get(i);
+            fileIds.put(entry.key, entry.fileId);
+            nextFileId = Math.max(nextFileId, entry.fileId + 1);
+            writtenSections.put(entry.key, sections[i]);
+            writtenChangeCounts.put(entry.key, sections[i].getChangeCount());
+        }
+        if (isWriteScheduled) {
+            SectionExecutors.mainThread().removeCallbacks(writeRunnable);
+            isWriteScheduled = false;
+        }
+        return true;
+    }
+
+    private void scheduleWrite() {
+        long now = SystemClock.uptimeMillis();
+        if (isWriteScheduled) {
+            // Only write once the SectionManager has been stable for the write delay
+            SectionExecutors.mainThread().removeCallbacks(writeRunnable);
+        } else {
+            firstUnwrittenChangeMillis = now;
+        }
+        isWriteScheduled = true;
+        // But never postpone the first unwritten change by more than the maximum write delay
+        long maxDelayMillis = Math.max(0, firstUnwrittenChangeMillis + maxWriteDelayMillis - now);
+        SectionExecutors.mainThread().postDelayed(
+                writeRunnable,
+                Math.min(writeDelayMillis, maxDelayMillis)
+        );
+    }
+
+    /**
+     * Captures the layout and the items of the {@link Section}s which have changed since the last
+     * write, and writes them on a background thread.
+     */
+    private void writeSnapshot() {
+        if (isReleased) {
+            return;
+        }
+        List<LayoutEntry> layout = new ArrayList<>();
+        List<SectionContents> changedSections = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < sectionManager.getSectionCount(); i++) {
+            Section section = sectionManager.get(i);
+            int type = codec.getSectionType(section);
+            if (type == Codec.NOT_CACHED) {
+                continue;
+            }
+            String key = codec.getSectionKey(section);
+            if (!keys.add(key)) {
+                throw new IllegalStateException("Duplicate section key " + key);
+            }
+            Integer fileId = fileIds.get(key);
+            boolean isChanged = writtenSections.get(key) != section
+                    || writtenChangeCounts.get(key) != section.getChangeCount();
+            if (isChanged) {
+                Object[] items = captureItems(section);
+                if (items == null) {
+                    // Items cannot be captured, leave the Section out of the snapshot
+                    continue;
+                }
+                if (fileId == null) {
+                    fileId = nextFileId++;
+                    fileIds.put(key, fileId);
+                }
+                changedSections.add(new SectionContents(fileId, type, items));
+                writtenSections.put(key, section);
+                writtenChangeCounts.put(key, section.getChangeCount());
+            }
+            layout.add(new LayoutEntry(type, key, fileId));
+        }
+        final boolean isLayoutChanged = !layout.equals(writtenLayout);
+        if (!isLayoutChanged && changedSections.isEmpty()) {
+            return;
+        }
+        // Forget the Sections which have been removed, so that their files can be deleted
+        final Set<Integer> liveFileIds = new HashSet<>();
+        for (int i = 0; i < layout.size(); i++) {
+            liveFileIds.add(layout.get(i).fileId);
+        }
+        fileIds.keySet().retainAll(keys);
+        writtenSections.keySet().retainAll(keys);
+        writtenChangeCounts.keySet().retainAll(keys);
+        writtenLayout = layout;
+        final List<LayoutEntry> finalLayout = layout;
+        final List<SectionContents> finalChangedSections = changedSections;
+        final int finalNextFileId = nextFileId;
+        fileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!directory.isDirectory() && !directory.mkdirs()) {
+                        throw new IOException("Cannot create " + directory);
+                    }
+                    for (int i = 0; i < finalChangedSections.size(); i++) {
+                        writeSection(finalChangedSections.get(i));
+                    }
+                    if (isLayoutChanged) {
+                        writeLayout(finalLayout, finalNextFileId);
+                        deleteStaleSectionFiles(liveFileIds);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Rewrite everything on the next change instead of leaving a partial snapshot
+                    SectionExecutors.mainThread().post(new Runnable() {
+                        @Override
+                        public void run() {
+                            writtenLayout = new ArrayList<>();
+                            writtenSections.clear();
+                            writtenChangeCounts.clear();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the items of {@param section}, or returns null if any of them is not available via
+     * {@link Section#getItemForDiff(int)}.
+     */
+    @Nullable
+    private static Object[] captureItems(@NonNull Section section) {
+        Object[] items = new Object[section.size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = section.getItemForDiff(i);
+            if (items[i] == null) {
+                return null;
+            }
+        }
+        return items;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeSection(@NonNull SectionContents contents) throws IOException {
+        RecordCodec itemCodec = codec.getItemCodec(contents.type);
+        int recordLength = itemCodec.getRecordLength();
+        File tempFile = getTempFile(SECTION_FILE_PREFIX + contents.fileId);
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(SECTION_MAGIC);
+            out.writeInt(contents.items.length);
+            out.writeInt(recordLength);
+            ByteBuffer record = ByteBuffer.allocate(Math.max(recordLength, 256));
+            for (Object item : contents.items) {
+                int length = recordLength != RecordCodec.VARIABLE_LENGTH
+                        ? recordLength
+                        : itemCodec.getEncodedLength(item);
+                if (record.capacity() < length) {
+                    record = ByteBuffer.allocate(Math.max(length, record.capacity() * 2));
+                }
+                record.clear();
+                record.limit(length);
+                itemCodec.encode(item, record);
+                if (recordLength == RecordCodec.VARIABLE_LENGTH) {
+                    out.writeInt(length);
+                }
+                out.write(record.array(), 0, length);
+            }
+        } finally {
+            out.close();
+        }
+        commit(tempFile, getSectionFile(contents.fileId));
+    }
+
+    /**
+     * Memory-maps and decodes the items of a section file.
+     */
+    @NonNull
+    private List<Object> readSection(int fileId, @NonNull RecordCodec itemCodec)
+            throws IOException {
+        RandomAccessFile file = new RandomAccessFile(getSectionFile(fileId), "r");
+        try {
+            ByteBuffer buffer = file.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getInt() != SECTION_MAGIC) {
+                throw new IOException("Not a section file");
+            }
+            int count = buffer.getInt();
+            int recordLength = buffer.getInt();
+            if (recordLength != itemCodec.getRecordLength()) {
+                throw new IOException("Record length has changed");
+            }
+            List<Object> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = recordLength != RecordCodec.VARIABLE_LENGTH
+                        ? recordLength
+                        : buffer.getInt();
+                ByteBuffer record = buffer.duplicate();
+                record.limit(buffer.position() + length);
+                items.add(itemCodec.decode(record));
+                buffer.position(buffer.position() + length);
+            }
+            return items;
+        } finally {
+            file.close();
+        }
+    }
+
+    private void writeLayout(@NonNull List<LayoutEntry> layout, int nextFileId)
+            throws IOException {
+        File tempFile = getTempFile(LAYOUT_FILE_NAME);
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(LAYOUT_MAGIC);
+            out.writeInt(nextFileId);
+            out.writeInt(layout.size());
+            for (int i = 0; i < layout.size(); i++) {
+                LayoutEntry entry = layout.get(i);
+                out.writeInt(entry.type);
+                out.writeUTF(entry.key);
+                out.writeInt(entry.fileId);
+            }
+        } finally {
+            out.close();
+        }
+        commit(tempFile, new File(directory, LAYOUT_FILE_NAME));
+    }
+
+    @NonNull
+    private List<LayoutEntry> readLayout() throws IOException {
+        DataInputStream in = new DataInputStream(
+                new FileInputStream(new File(directory, LAYOUT_FILE_NAME)));
+        try {
+            if (in.readInt() != LAYOUT_MAGIC) {
+                throw new IOException("Not a layout file");
+            }
+            in.readInt(); // Next file id, recomputed from the entries
+            int count = in.readInt();
+            List<LayoutEntry> layout = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                layout.add(new LayoutEntry(in.readInt(), in.readUTF(), in.readInt()));
+            }
+            return layout;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void deleteStaleSectionFiles(@NonNull Set<Integer> liveFileIds) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SECTION_FILE_PREFIX) && !name.endsWith(TEMP_FILE_SUFFIX)) {
+                try {
+                    int fileId = Integer.parseInt(name.substring(SECTION_FILE_PREFIX.length()));
+                    if (!liveFileIds.contains(fileId)) {
+                        file.delete();
+                    }
+                } catch (NumberFormatException e) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private File getSectionFile(int fileId) {
+        return new File(directory, SECTION_FILE_PREFIX + fileId);
+    }
+
+    @NonNull
+    private File getTempFile(@NonNull String name) {
+        return new File(directory, name + TEMP_FILE_SUFFIX);
+    }
+
+    /**
+     * Replaces {@param file} with the completely written {@param tempFile}, so that a crash never
+     * leaves a partially written file behind.
+     */
+    private static void commit(@NonNull File tempFile, @NonNull File file) throws IOException {
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Cannot write " + file);
+        }
+    }
+
+    private static class LayoutEntry {
+
+        final int type;
+
+        @NonNull final String key;
+
+        final int fileId;
+
+        LayoutEntry(int type, @NonNull String key, int fileId) {
+            this.type = type;
+            this.key = key;
+            this.fileId = fileId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LayoutEntry)) {
+                return false;
+            }
+            LayoutEntry that = (LayoutEntry) o;
+            return type == that.type && fileId == that.fileId && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{type, key, fileId});
+        }
+    }
+
+    /**
+     * Items of a changed {@link Section}, captured on the main thread to be encoded and written on
+     * a background thread.
+     */
+    private static class SectionContents {
+
+        final int fileId;
+
+        final int type;
+
+        @NonNull final Object[] items;
+
+        SectionContents(int fileId, int type, @NonNull Object[] items) {
+            this.fileId = fileId;
+            this.type = type;
+            this.items = items;
+        }
+    }
+
+    /**
+     * Runs tasks one at a time, in submission order, on a delegate {@link Executor}.
+     */
+    private static class SerialExecutor implements Executor {
+
+        @NonNull private final Executor executor;
+
+        @NonNull private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Nullable private Runnable activeTask;
+
+        SerialExecutor(@NonNull Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(@NonNull final Runnable runnable) {
+            tasks.offer(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                }
+            });
+            if (activeTask == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            activeTask = tasks.poll();
+            if (activeTask != null) {
+                executor.execute(activeTask);
+            }
+        }
+    }
+}
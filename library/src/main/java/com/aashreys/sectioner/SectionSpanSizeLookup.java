@@ -0,0 +1,305 @@
+package com.aashreys.sectioner;
+
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A {@link GridLayoutManager.SpanSizeLookup} which reads span sizes from the {@link Section}s of a
+ * {@link SectionManager} via {@link Section#getSpanSize(int, int)}.
+ * <p>
+ * Span indices and span group indices are computed relative to the first item of each {@link
+ * Section} and cached per {@link Section}, so a change in one {@link Section} only invalidates the
+ * indices of that {@link Section} instead of the whole list. For this to hold every {@link Section}
+ * starts at span 0 of a new span group. Since {@link GridLayoutManager} fills rows greedily by span
+ * size, the last item of a {@link Section} is reported to occupy the remainder of its row; {@link
+ * #getFillerDecoration()} insets it by the width of those spans so that it keeps its own size.
+ * {@link SectionedRecyclerViewAdapter#createSpanSizeLookup(GridLayoutManager)} adds that decoration
+ * automatically. The global span index cache of {@link GridLayoutManager.SpanSizeLookup} is
+ * disabled since it is cleared on every adapter change.
+ *
+ * @see SectionedRecyclerViewAdapter#createSpanSizeLookup(GridLayoutManager)
+ */
+public class SectionSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final GridLayoutManager layoutManager;
+
+    /**
+     * Span indices of the items in each {@link Section}, weakly keyed so that removed {@link
+     * Section}s do not leak.
+     */
+    @NonNull private final Map<Section, SectionSpans> sectionSpansMap;
+
+    @NonNull private final FillerDecoration fillerDecoration = new FillerDecoration();
+
+    /**
+     * Span borders of the last total space and span count seen by the {@link #fillerDecoration},
+     * as laid out by {@link GridLayoutManager}.
+     */
+    @NonNull private int[] spanBorders = new int[0];
+
+    private int spanBordersTotalSpace = -1;
+
+    /**
+     * Creates a {@link SectionSpanSizeLookup}. You must still set it on the {@link
+     * GridLayoutManager} via {@link GridLayoutManager#setSpanSizeLookup(GridLayoutManager.SpanSizeLookup)}.
+     *
+     * @param sectionManager {@link SectionManager} whose {@link Section}s are displayed in the grid
+     * @param layoutManager  {@link GridLayoutManager} to read the span count from
+     */
+    public SectionSpanSizeLookup(
+            @NonNull SectionManager sectionManager,
+            @NonNull GridLayoutManager layoutManager
+    ) {
+        this.sectionManager = sectionManager;
+        this.layoutManager = layoutManager;
+        this.sectionSpansMap = new WeakHashMap<>();
+        setSpanIndexCacheEnabled(false);
+    }
+
+    /**
+     * Returns the {@link RecyclerView.ItemDecoration} which keeps the last item of every {@link
+     * Section} from being stretched over the remainder of its row. Must be added to the {@link
+     * RecyclerView} unless this lookup was created via {@link
+     * SectionedRecyclerViewAdapter#createSpanSizeLookup(GridLayoutManager)}.
+     */
+    @NonNull
+    public RecyclerView.ItemDecoration getFillerDecoration() {
+        return fillerDecoration;
+    }
+
+    @Override
+    public int getSpanSize(int adapterPosition) {
+        int spanCount = layoutManager.getSpanCount();
+        SectionSpans spans = getSectionSpans(adapterPosition, spanCount);
+        int sectionPosition = sectionManager.getItemSectionPosition(adapterPosition);
+        spans.compute(sectionPosition);
+        return spans.spanSizes[sectionPosition] + spans.getFillerSpanCount(sectionPosition);
+    }
+
+    @Override
+    public int getSpanIndex(int adapterPosition, int spanCount) {
+        SectionSpans spans = getSectionSpans(adapterPosition, spanCount);
+        int sectionPosition = sectionManager.getItemSectionPosition(adapterPosition);
+        spans.compute(sectionPosition);
+        return spans.spanIndices[sectionPosition];
+    }
+
+    /**
+     * Adds the span group counts of the {@link Section}s before the one containing {@param
+     * adapterPosition}, each cached, to the span group index within that {@link Section}.
+     */
+    @Override
+    public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+        int sectionIndex = sectionManager.getSectionPositionForAdapterPosition(adapterPosition);
+        List<Section> sections = sectionManager.getSections();
+        int groupIndex = 0;
+        for (int i = 0; i < sectionIndex; i++) {
+            Section section = sections.get(i);
+            if (section.isEnabled() && section.size() > 0) {
+                groupIndex += getSectionSpans(section, spanCount).getGroupCount();
+            }
+        }
+        SectionSpans spans = getSectionSpans(adapterPosition, spanCount);
+        int sectionPosition = sectionManager.getItemSectionPosition(adapterPosition);
+        spans.compute(sectionPosition);
+        return groupIndex + spans.groupIndices[sectionPosition];
+    }
+
+    /**
+     * Returns the {@link SectionSpans} for the {@link Section} containing the item at {@param
+     * adapterPosition}, resetting them if the {@link Section} or the span count has changed since
+     * they were last computed.
+     */
+    @NonNull
+    private SectionSpans getSectionSpans(int adapterPosition, int spanCount) {
+        Section section = sectionManager.getSectionForAdapterPosition(adapterPosition);
+        return getSectionSpans(section, spanCount);
+    }
+
+    @NonNull
+    private SectionSpans getSectionSpans(@NonNull Section section, int spanCount) {
+        SectionSpans spans = sectionSpansMap.get(section);
+        if (spans == null) {
+            spans = new SectionSpans(section);
+            sectionSpansMap.put(section, spans);
+        }
+        spans.validate(spanCount);
+        return spans;
+    }
+
+    /**
+     * Span sizes and span indices of a single {@link Section}'s items, computed lazily up to the
+     * highest position requested so far.
+     */
+    private static class SectionSpans {
+
+        @NonNull private final Section section;
+
+        @NonNull private int[] spanSizes = new int[0];
+
+        @NonNull private int[] spanIndices = new int[0];
+
+        @NonNull private int[] groupIndices = new int[0];
+
+        /**
+         * Number of items, starting from the first, whose span sizes and indices are computed.
+         */
+        private int computedCount;
+
+        private int changeCount = -1;
+
+        private int spanCount = -1;
+
+        private int sectionSize;
+
+        SectionSpans(@NonNull Section section) {
+            this.section = section;
+        }
+
+        void validate(int spanCount) {
+            if (this.changeCount != section.getChangeCount()
+                    || this.spanCount != spanCount
+                    || this.sectionSize != section.size()) {
+                this.changeCount = section.getChangeCount();
+                this.spanCount = spanCount;
+                this.sectionSize = section.size();
+                this.computedCount = 0;
+                if (spanSizes.length < sectionSize) {
+                    spanSizes = new int[sectionSize];
+                    spanIndices = new int[sectionSize];
+                    groupIndices = new int[sectionSize];
+                }
+            }
+        }
+
+        void compute(int sectionPosition) {
+            for (int i = computedCount; i <= sectionPosition; i++) {
+                int spanIndex = 0;
+                int groupIndex = 0;
+                if (i > 0) {
+                    spanIndex = spanIndices[i - 1] + spanSizes[i - 1];
+                    groupIndex = groupIndices[i - 1];
+                }
+                int spanSize = Math.min(
+                        Math.max(1, section.getSpanSize(i, spanCount)),
+                        spanCount
+                );
+                if (spanIndex + spanSize > spanCount) {
+                    // Item does not fit in the current row, move it to the next one
+                    spanIndex = 0;
+                    groupIndex++;
+                }
+                spanIndices[i] = spanIndex;
+                spanSizes[i] = spanSize;
+                groupIndices[i] = groupIndex;
+            }
+            computedCount = Math.max(computedCount, sectionPosition + 1);
+        }
+
+        /**
+         * Returns the number of spans left empty after the item at {@param sectionPosition}, which
+         * is reported as part of it so that the next {@link Section} starts on a new row. Only the
+         * last item has any. Requires the item to be computed.
+         */
+        int getFillerSpanCount(int sectionPosition) {
+            if (sectionPosition != sectionSize - 1) {
+                return 0;
+            }
+            return spanCount - spanIndices[sectionPosition] - spanSizes[sectionPosition];
+        }
+
+        int getGroupCount() {
+            if (sectionSize == 0) {
+                return 0;
+            }
+            compute(sectionSize - 1);
+            return groupIndices[sectionSize - 1] + 1;
+        }
+    }
+
+    /**
+     * Returns the extent of the spans from {@param fromSpan} up to {@param toSpan}, distributing
+     * {@param totalSpace} over the spans exactly like {@link GridLayoutManager} does.
+     */
+    private int getSpanRangeSize(int totalSpace, int spanCount, int fromSpan, int toSpan) {
+        if (spanBorders.length != spanCount + 1 || spanBordersTotalSpace != totalSpace) {
+            spanBorders = new int[spanCount + 1];
+            spanBordersTotalSpace = totalSpace;
+            int sizePerSpan = totalSpace / spanCount;
+            int sizePerSpanRemainder = totalSpace % spanCount;
+            int consumedPixels = 0;
+            int additionalSize = 0;
+            for (int i = 1; i <= spanCount; i++) {
+                int itemSize = sizePerSpan;
+                additionalSize += sizePerSpanRemainder;
+                if (additionalSize > 0 && (spanCount - additionalSize) < sizePerSpanRemainder) {
+                    itemSize += 1;
+                    additionalSize -= spanCount;
+                }
+                consumedPixels += itemSize;
+                spanBorders[i] = consumedPixels;
+            }
+        }
+        return spanBorders[toSpan] - spanBorders[fromSpan];
+    }
+
+    /**
+     * Insets the last item of every {@link Section} at its end by the extent of its filler spans.
+     */
+    private class FillerDecoration extends RecyclerView.ItemDecoration {
+
+        @Override
+        public void getItemOffsets(
+                Rect outRect,
+                View view,
+                RecyclerView parent,
+                RecyclerView.State state
+        ) {
+            int adapterPosition = parent.getChildAdapterPosition(view);
+            if (adapterPosition == RecyclerView.NO_POSITION
+                    || adapterPosition >= sectionManager.getItemCount()) {
+                return;
+            }
+            int spanCount = layoutManager.getSpanCount();
+            SectionSpans spans = getSectionSpans(adapterPosition, spanCount);
+            int sectionPosition = sectionManager.getItemSectionPosition(adapterPosition);
+            spans.compute(sectionPosition);
+            int fillerSpanCount = spans.getFillerSpanCount(sectionPosition);
+            if (fillerSpanCount == 0) {
+                return;
+            }
+            boolean isVertical = layoutManager.getOrientation() == LinearLayoutManager.VERTICAL;
+            int totalSpace = isVertical
+                    ? layoutManager.getWidth()
+                            - layoutManager.getPaddingLeft()
+                            - layoutManager.getPaddingRight()
+                    : layoutManager.getHeight()
+                            - layoutManager.getPaddingTop()
+                            - layoutManager.getPaddingBottom();
+            int fillerSize = getSpanRangeSize(
+                    totalSpace,
+                    spanCount,
+                    spanCount - fillerSpanCount,
+                    spanCount
+            );
+            if (!isVertical) {
+                outRect.bottom += fillerSize;
+            } else if (ViewCompat.getLayoutDirection(parent) == ViewCompat.LAYOUT_DIRECTION_RTL) {
+                outRect.left += fillerSize;
+            } else {
+                outRect.right += fillerSize;
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks which {@link Section}s of a {@link SectionManager} are visible in the {@link
+ * RecyclerView}, and notifies {@link Listener}s when {@link Section}s enter or exit the viewport
+ * and when the fraction of their items which is visible changes.
+ * <p>
+ * Instead of inspecting every visible child, the tracker reads the first and last visible adapter
+ * positions from the layout manager and maps them to {@link Section}s through the position
+ * mappings of the {@link SectionManager} in logarithmic time. Visibility is re-evaluated whenever
+ * the {@link RecyclerView} scrolls or lays out a different range of children; when neither the
+ * visible positions nor the {@link Section}s have changed, the update does no work and allocates
+ * nothing.
+ * <p>
+ * Obtain the tracker of a {@link SectionManager} via {@link SectionManager#getVisibilityTracker()}.
+ * Only {@link android.support.v7.widget.LinearLayoutManager} and its subclasses are supported.
+ */
+public class SectionVisibilityTracker {
+
+    /**
+     * Receives visibility callbacks on the main thread. All methods do nothing by default.
+     */
+    public static abstract class Listener {
+
+        /**
+         * Called when at least one item of {@param section} has become visible.
+         */
+        public void onSectionEntered(@NonNull Section section) {}
+
+        /**
+         * Called when no item of {@param section} is visible anymore, or when it has been removed
+         * from the {@link SectionManager} while visible.
+         */
+        public void onSectionExited(@NonNull Section section) {}
+
+        /**
+         * Called when the fraction of {@param section}'s items which are visible has changed.
+         *
+         * @param visibleFraction fraction between 0, exclusive, and 1, inclusive.
+         */
+        public void onSectionVisibleFractionChanged(
+                @NonNull Section section,
+                float visibleFraction
+        ) {}
+
+        /**
+         * Called after every update in which the visible adapter positions have changed.
+         *
+         * @param firstVisiblePosition adapter position of the first visible item, or {@link
+         *                             RecyclerView#NO_POSITION} if nothing is visible.
+         * @param lastVisiblePosition  adapter position of the last visible item, or {@link
+         *                             RecyclerView#NO_POSITION} if nothing is visible.
+         */
+        public void onVisibleRangeChanged(int firstVisiblePosition, int lastVisiblePosition) {}
+    }
+
+    @NonNull private final SectionManager sectionManager;
+
+    @NonNull private final List<Listener> listeners;
+
+    /**
+     * Visible {@link Section}s and their visible fractions as of the last update.
+     */
+    @NonNull private Section[] visibleSections = new Section[8];
+
+    @NonNull private float[] visibleFractions = new float[8];
+
+    private int visibleSectionCount;
+
+    /**
+     * Buffers for the next update, swapped with the ones above after every update.
+     */
+    @NonNull private Section[] nextVisibleSections = new Section[8];
+
+    @NonNull private float[] nextVisibleFractions = new float[8];
+
+    private int firstVisiblePosition = RecyclerView.NO_POSITION;
+
+    private int lastVisiblePosition = RecyclerView.NO_POSITION;
+
+    private long snapshotVersion = -1;
+
+    @Nullable private RecyclerView recyclerView;
+
+    @NonNull private final RecyclerView.OnScrollListener scrollListener
+            = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            update();
+        }
+    };
+
+    SectionVisibilityTracker(@NonNull SectionManager sectionManager) {
+        this.sectionManager = sectionManager;
+        this.listeners = new ArrayList<>();
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the adapter position of the first visible item as of the last update, or {@link
+     * RecyclerView#NO_POSITION}.
+     */
+    public int getFirstVisiblePosition() {
+        return firstVisiblePosition;
+    }
+
+    /**
+     * Returns the adapter position of the last visible item as of the last update, or {@link
+     * RecyclerView#NO_POSITION}.
+     */
+    public int getLastVisiblePosition() {
+        return lastVisiblePosition;
+    }
+
+    /**
+     * Checks if any item of {@param section} was visible as of the last update.
+     */
+    public boolean isVisible(@NonNull Section section) {
+        return indexOf(visibleSections, visibleSectionCount, section) >= 0;
+    }
+
+    void attach(@NonNull RecyclerView recyclerView) {
+        detach();
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    void detach() {
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            recyclerView = null;
+        }
+    }
+
+    /**
+     * Re-evaluates the visible {@link Section}s and notifies {@link Listener}s of any changes.
+     * Called automatically on scroll and layout; call it manually after changes which do neither.
+     * Must be called from the main thread.
+     */
+    public void update() {
+        int firstPosition = sectionManager.findFirstVisibleItemPosition();
+        int lastPosition = sectionManager.findLastVisibleItemPosition();
+        int itemCount = sectionManager.getItemCount();
+        if (firstPosition < 0 || lastPosition < firstPosition || lastPosition >= itemCount) {
+            firstPosition = RecyclerView.NO_POSITION;
+            lastPosition = RecyclerView.NO_POSITION;
+        }
+        long version = sectionManager.snapshot().getVersion();
+        if (firstPosition == firstVisiblePosition
+                && lastPosition == lastVisiblePosition
+                && version == snapshotVersion) {
+            return;
+        }
+        firstVisiblePosition = firstPosition;
+        lastVisiblePosition = lastPosition;
+        snapshotVersion = version;
+
+        int nextCount = 0;
+        if (firstPosition != RecyclerView.NO_POSITION) {
+            int firstSection = sectionManager.getSectionPositionForAdapterPosition(firstPosition);
+            int lastSection = sectionManager.getSectionPositionForAdapterPosition(lastPosition);
+            ensureNextCapacity(lastSection - firstSection + 1);
+            for (int i = firstSection; i <= lastSection; i++) {
+                Section section = sectionManager.get(i);
+                if (!section.isEnabled() || section.size() == 0) {
+                    continue;
+                }
+                int start = sectionManager.getFirstItemAdapterPositionForSectionPosition(i);
+                int end = start + section.size() - 1;
+                int visibleCount = Math.min(end, lastPosition) - Math.max(start, firstPosition) + 1;
+                nextVisibleSections[nextCount] = section;
+                nextVisibleFractions[nextCount] = (float) visibleCount / section.size();
+                nextCount++;
+            }
+        }
+
+        for (int i = 0; i < visibleSectionCount; i++) {
+            if (indexOf(nextVisibleSections, nextCount, visibleSections[i]) < 0) {
+                for (int j = 0; j < listeners.size(); j++) {
+                    listeners.get(j).onSectionExited(visibleSections[i]);
+                }
+            }
+        }
+        for (int i = 0; i < nextCount; i++) {
+            Section section = nextVisibleSections[i];
+            int previousIndex = indexOf(visibleSections, visibleSectionCount, section);
+            if (previousIndex < 0) {
+                for (int j = 0; j < listeners.size(); j++) {
+                    listeners.get(j).onSectionEntered(section);
+                }
+            }
+            if (previousIndex < 0 || visibleFractions[previousIndex] != nextVisibleFractions[i]) {
+                for (int j = 0; j < listeners.size(); j++) {
+                    listeners.get(j).onSectionVisibleFractionChanged(
+                            section,
+                            nextVisibleFractions[i]
+                    );
+                }
+            }
+        }
+
+        // Swap buffers, clearing references to Sections which are no longer visible
+        Section[] sections = visibleSections;
+        float[] fractions = visibleFractions;
+        for (int i = 0; i < visibleSectionCount; i++) {
+            sections[i] = null;
+        }
+        visibleSections = nextVisibleSections;
+        visibleFractions = nextVisibleFractions;
+        visibleSectionCount = nextCount;
+        nextVisibleSections = sections;
+        nextVisibleFractions = fractions;
+
+        for (int j = 0; j < listeners.size(); j++) {
+            listeners.get(j).onVisibleRangeChanged(firstPosition, lastPosition);
+        }
+    }
+
+    private void ensureNextCapacity(int capacity) {
+        if (nextVisibleSections.length < capacity) {
+            int newCapacity = Math.max(capacity, nextVisibleSections.length * 2);
+            nextVisibleSections = new Section[newCapacity];
+            nextVisibleFractions = new float[newCapacity];
+        }
+    }
+
+    private static int indexOf(@NonNull Section[] sections, int count, @NonNull Section section) {
+        for (int i = 0; i < count; i++) {
+            if (sections[i] == section) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,9 +1,16 @@
 package com.aashreys.sectioner;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * A implementation of the {@link RecyclerView.Adapter} for interfacing with {@link SectionManager}
  * to display different {@link Section}s. Use {@link #getSectionManager()} to obtain a {@link
@@ -17,6 +24,19 @@ public class SectionedRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerV
 
     @NonNull private SectionManager sectionManager;
 
+    /**
+     * The {@link Section} each ViewHolder was last bound by. {@link Section}s sharing a view type
+     * share their ViewHolders, so the view type alone does not tell which {@link Section} to
+     * notify when a ViewHolder is recycled or rebound by another {@link Section}.
+     */
+    @NonNull private final Map<RecyclerView.ViewHolder, Section> boundSections = new HashMap<>();
+
+    /**
+     * The last lookup created via {@link #createSpanSizeLookup(GridLayoutManager)}, whose filler
+     * decoration is added to the {@link RecyclerView} this adapter is attached to.
+     */
+    @Nullable private SectionSpanSizeLookup spanSizeLookup;
+
     public SectionedRecyclerViewAdapter() {
         this.sectionManager = new SectionManager(this);
     }
@@ -26,15 +46,37 @@ public class SectionedRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerV
         return sectionManager;
     }
 
+    /**
+     * Creates a {@link SectionSpanSizeLookup} for displaying this adapter's {@link Section}s in a
+     * grid. Set the returned lookup on {@param layoutManager} via {@link
+     * GridLayoutManager#setSpanSizeLookup(GridLayoutManager.SpanSizeLookup)}. Its {@link
+     * SectionSpanSizeLookup#getFillerDecoration()} is added to the {@link RecyclerView} this
+     * adapter is attached to, replacing the one of a previously created lookup.
+     *
+     * @param layoutManager {@link GridLayoutManager} the returned lookup will be used with.
+     */
+    @NonNull
+    public SectionSpanSizeLookup createSpanSizeLookup(@NonNull GridLayoutManager layoutManager) {
+        RecyclerView recyclerView = sectionManager.getRecyclerView();
+        if (recyclerView != null && spanSizeLookup != null) {
+            recyclerView.removeItemDecoration(spanSizeLookup.getFillerDecoration());
+        }
+        spanSizeLookup = new SectionSpanSizeLookup(sectionManager, layoutManager);
+        if (recyclerView != null) {
+            recyclerView.addItemDecoration(spanSizeLookup.getFillerDecoration());
+        }
+        return spanSizeLookup;
+    }
+
     /**
      * Delegates to the {@link #sectionManager} which fetches the appropriate {@link Section} for
-     * the given ViewType and calls {@link Section#createViewHolder(ViewGroup)} to create an
+     * the given ViewType and calls {@link Section#createViewHolder(ViewGroup, int)} to create an
      * appropriate {@link android.support.v7.widget.RecyclerView.ViewHolder} for the {@link
      * android.view.View} to be inflated.
      */
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        return sectionManager.getSectionForAdapterViewType(viewType).createViewHolder(parent);
+        return sectionManager.createViewHolder(parent, viewType);
     }
 
     /**
@@ -45,12 +87,113 @@ public class SectionedRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerV
      */
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int adapterPosition) {
-        sectionManager.getSectionForAdapterPosition(adapterPosition)
-                .bindViewHolder(
-                        holder,
-                        sectionManager.getItemSectionPosition(adapterPosition),
-                        adapterPosition
-                );
+        onBindViewHolder(holder, adapterPosition, Collections.emptyList());
+    }
+
+    /**
+     * Same as {@link #onBindViewHolder(RecyclerView.ViewHolder, int)}, but calls {@link
+     * Section#bindViewHolder(RecyclerView.ViewHolder, int, int, List)} so that {@link Section}s
+     * can rebind only part of the View for known payloads.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(
+            RecyclerView.ViewHolder holder,
+            int adapterPosition,
+            List<Object> payloads
+    ) {
+        Section section = sectionManager.getSectionForAdapterPosition(adapterPosition);
+        Section previousSection = boundSections.put(holder, section);
+        if (previousSection != null && previousSection != section) {
+            previousSection.onHolderRecycled(holder);
+            previousSection.onViewRecycled(holder);
+        }
+        section.onHolderBound(holder);
+        section.bindViewHolder(
+                holder,
+                sectionManager.getItemSectionPosition(adapterPosition),
+                adapterPosition,
+                payloads
+        );
+    }
+
+    /**
+     * Delegates to the {@link Section} the recycled ViewHolder was last bound by.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        Section section = boundSections.remove(holder);
+        if (section != null) {
+            section.onHolderRecycled(holder);
+            section.onViewRecycled(holder);
+        }
+    }
+
+    /**
+     * Lets the {@link Section} a ViewHolder which could not be recycled because of its transient
+     * state was last bound by decide whether to recycle it anyway. If not, it is treated as
+     * recycled by that {@link Section}, since it is discarded.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        Section section = boundSections.get(holder);
+        if (section != null && section.onFailedToRecycleView(holder)) {
+            // Recycled after all, onViewRecycled follows
+            return true;
+        }
+        boundSections.remove(holder);
+        if (section != null) {
+            section.onHolderRecycled(holder);
+        }
+        return super.onFailedToRecycleView(holder);
+    }
+
+    /**
+     * Delegates to the {@link Section} the attached ViewHolder was last bound by.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        Section section = boundSections.get(holder);
+        if (section != null) {
+            section.onViewAttachedToWindow(holder);
+        }
+    }
+
+    /**
+     * Delegates to the {@link Section} the detached ViewHolder was last bound by.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        Section section = boundSections.get(holder);
+        if (section != null) {
+            section.onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        sectionManager.onAttachedToRecyclerView(recyclerView);
+        if (spanSizeLookup != null) {
+            recyclerView.addItemDecoration(spanSizeLookup.getFillerDecoration());
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        boundSections.clear();
+        if (spanSizeLookup != null) {
+            recyclerView.removeItemDecoration(spanSizeLookup.getFillerDecoration());
+        }
+        sectionManager.onDetachedFromRecyclerView(recyclerView);
     }
 
     @Override
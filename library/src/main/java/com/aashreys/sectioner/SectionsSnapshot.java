@@ -0,0 +1,147 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable view of the structure of a {@link SectionManager} at a point in time: its {@link
+ * Section}s, their sizes and the adapter positions of their items. Snapshots can be read from any
+ * thread without synchronization.
+ * <p>
+ * A new snapshot is published every time the {@link SectionManager} updates its position mappings,
+ * so {@link SectionManager#snapshot()} is a constant time read which never blocks writers. Note
+ * that while the structure captured by a snapshot never changes, the {@link Section}s it refers to
+ * are live objects.
+ *
+ * @see SectionManager#snapshot()
+ */
+public final class SectionsSnapshot {
+
+    static final SectionsSnapshot EMPTY
+            = new SectionsSnapshot(0, new Section[0], new int[0], new int[0], 0);
+
+    private final long version;
+
+    @NonNull private final Section[] sections;
+
+    /**
+     * Number of items displayed by each {@link Section}, 0 for disabled {@link Section}s.
+     */
+    @NonNull private final int[] sizes;
+
+    /**
+     * Adapter position of the first item of each {@link Section}. Empty {@link Section}s share the
+     * start position of the {@link Section} following them.
+     */
+    @NonNull private final int[] startPositions;
+
+    private final int itemCount;
+
+    SectionsSnapshot(
+            long version,
+            @NonNull Section[] sections,
+            @NonNull int[] sizes,
+            @NonNull int[] startPositions,
+            int itemCount
+    ) {
+        this.version = version;
+        this.sections = sections;
+        this.sizes = sizes;
+        this.startPositions = startPositions;
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Returns the version of this snapshot. Versions increase every time the structure of the
+     * {@link SectionManager} changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns an unmodifiable list of the {@link Section}s in this snapshot.
+     */
+    @NonNull
+    public List<Section> getSections() {
+        return Collections.unmodifiableList(Arrays.asList(sections));
+    }
+
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if {@param sectionPosition} is invalid.
+     */
+    @NonNull
+    public Section getSection(int sectionPosition) {
+        return sections[sectionPosition];
+    }
+
+    /**
+     * Returns the number of items displayed by the {@link Section} at a position, which is 0 if
+     * the {@link Section} was disabled.
+     */
+    public int getSectionSize(int sectionPosition) {
+        return sizes[sectionPosition];
+    }
+
+    /**
+     * Returns the total number of items displayed by all {@link Section}s.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns the adapter position of the first item of the {@link Section} at a position.
+     */
+    public int getFirstItemAdapterPosition(int sectionPosition) {
+        return startPositions[sectionPosition];
+    }
+
+    /**
+     * Returns the position of the {@link Section} displaying the item at an adapter position, in
+     * logarithmic time.
+     *
+     * @throws IndexOutOfBoundsException if {@param adapterPosition} is invalid.
+     */
+    public int getSectionPositionForAdapterPosition(int adapterPosition) {
+        if (adapterPosition < 0 || adapterPosition >= itemCount) {
+            throw new IndexOutOfBoundsException(
+                    "Invalid adapter position " + adapterPosition + ", item count is " + itemCount);
+        }
+        // Find the last Section starting at or before the adapter position. Empty Sections share
+        // the start of the next Section, so the last one found is never empty.
+        int low = 0, high = startPositions.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (startPositions[mid] <= adapterPosition) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position within its {@link Section} of the item at an adapter position.
+     */
+    public int getItemSectionPosition(int adapterPosition) {
+        return adapterPosition
+                - startPositions[getSectionPositionForAdapterPosition(adapterPosition)];
+    }
+
+    /**
+     * Returns the {@link Section} displaying the item at an adapter position.
+     */
+    @NonNull
+    public Section getSectionForAdapterPosition(int adapterPosition) {
+        return sections[getSectionPositionForAdapterPosition(adapterPosition)];
+    }
+}
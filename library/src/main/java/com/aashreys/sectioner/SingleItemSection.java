@@ -1,6 +1,7 @@
 package com.aashreys.sectioner;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
 
 /**
@@ -18,9 +19,16 @@ public abstract class SingleItemSection<Data, ViewHolder extends RecyclerView.Vi
 
     private static final String MULTI_ITEM_OPERATION_ERROR = "MultiItem operations are unsupported in SingleItemSection";
 
+    /**
+     * Creates a {@link SingleItemSection} holding {@param data}. Since these {@link Section}s are
+     * usually headers, footers or separators, they span the full width of a grid by default.
+     *
+     * @see #setColumnCount(int)
+     */
     public SingleItemSection(Data data) {
         super();
         this.data = data;
+        setColumnCount(1);
     }
 
     @NonNull
@@ -54,6 +62,8 @@ public abstract class SingleItemSection<Data, ViewHolder extends RecyclerView.Vi
         }
         if (notifyAdapter) {
             _notifyItemReplaced(0);
+        } else {
+            _markDataChanged();
         }
     }
 
@@ -101,6 +111,12 @@ public abstract class SingleItemSection<Data, ViewHolder extends RecyclerView.Vi
         return firstIndexOf(data);
     }
 
+    @Nullable
+    @Override
+    protected Data getItemForDiff(int sectionPosition) {
+        return data;
+    }
+
     @Override
     public final int size() {
         return 1;
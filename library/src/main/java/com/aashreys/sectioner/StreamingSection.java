@@ -0,0 +1,334 @@
+package com.aashreys.sectioner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link MultiItemSection} fed by a stream of {@link Data}s from a {@link Publisher}. Items may
+ * arrive on any thread; they are buffered and appended to this {@link Section} at most once per
+ * animation frame, as a single range insertion.
+ * <p>
+ * Demand is signalled to the {@link Publisher} in batches of the buffer size, and is only
+ * replenished once buffered items have been appended. Demand is withheld while this {@link
+ * Section} is disabled via {@link #setEnabled(boolean)} or is further than the pause distance from
+ * the visible items of the {@link RecyclerView}, and is signalled again once neither is the case.
+ * <p>
+ * The {@link Publisher}, {@link Subscriber} and {@link Subscription} interfaces mirror those of
+ * Reactive Streams and {@code java.util.concurrent.Flow}, so any compliant publisher can be adapted
+ * with a thin wrapper.
+ */
+public abstract class StreamingSection<Data, ViewHolder extends RecyclerView.ViewHolder>
+        extends MultiItemSection<Data, ViewHolder> {
+
+    /**
+     * A provider of a potentially unbounded number of items.
+     */
+    public interface Publisher<T> {
+
+        void subscribe(@NonNull Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items from a {@link Publisher}.
+     */
+    public interface Subscriber<T> {
+
+        void onSubscribe(@NonNull Subscription subscription);
+
+        void onNext(@NonNull T item);
+
+        void onError(@NonNull Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * Links a {@link Publisher} and a {@link Subscriber}, and carries demand from the latter.
+     */
+    public interface Subscription {
+
+        void request(long n);
+
+        void cancel();
+    }
+
+    /**
+     * Default number of items requested from the {@link Publisher} at a time.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64;
+
+    /**
+     * Default distance, in items, from the visible items beyond which demand is withheld.
+     */
+    public static final int DEFAULT_PAUSE_DISTANCE = 200;
+
+    private final int bufferSize;
+
+    private int pauseDistance = DEFAULT_PAUSE_DISTANCE;
+
+    /**
+     * Items received from the {@link Publisher} but not yet appended to this {@link Section}.
+     */
+    @NonNull private final ConcurrentLinkedQueue<Data> receivedItems;
+
+    @NonNull private final AtomicBoolean isFlushScheduled;
+
+    @Nullable private volatile Subscription subscription;
+
+    /**
+     * {@link Subscriber} of the current subscription. Items delivered to previous subscribers are
+     * dropped.
+     */
+    @Nullable private volatile StreamSubscriber currentSubscriber;
+
+    /**
+     * Demand which has not been signalled to the {@link Publisher} because the stream is paused.
+     */
+    private long withheldDemand;
+
+    private boolean isPaused;
+
+    private boolean isComplete;
+
+    @Nullable private RecyclerView scrollObservedRecyclerView;
+
+    @NonNull private final Runnable scheduleFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            SectionManager manager = getManager();
+            if (manager != null) {
+                manager.postOnAnimation(flushRunnable);
+            } else {
+                flushRunnable.run();
+            }
+        }
+    };
+
+    @NonNull private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    @NonNull private final RecyclerView.OnScrollListener scrollListener
+            = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            updatePausedState();
+        }
+    };
+
+    public StreamingSection() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize number of items requested from the {@link Publisher} at a time.
+     */
+    public StreamingSection(int bufferSize) {
+        super();
+        this.bufferSize = bufferSize;
+        this.receivedItems = new ConcurrentLinkedQueue<>();
+        this.isFlushScheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Sets the distance, in items, from the visible items of the {@link RecyclerView} beyond which
+     * no more items are requested from the {@link Publisher}.
+     */
+    public void setPauseDistance(int pauseDistance) {
+        this.pauseDistance = pauseDistance;
+    }
+
+    /**
+     * Subscribes this {@link Section} to {@param publisher}, cancelling any previous
+     * subscription. Must be called from the main thread.
+     */
+    public void subscribe(@NonNull Publisher<? extends Data> publisher) {
+        cancel();
+        isComplete = false;
+        withheldDemand = 0;
+        StreamSubscriber subscriber = new StreamSubscriber();
+        currentSubscriber = subscriber;
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Cancels the current subscription, if any. Items already received are still appended.
+     */
+    public void cancel() {
+        currentSubscriber = null;
+        Subscription subscription = this.subscription;
+        this.subscription = null;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        stopObservingScroll();
+    }
+
+    @Override
+    public void setEnabled(boolean isEnabled) {
+        super.setEnabled(isEnabled);
+        updatePausedState();
+    }
+
+    /**
+     * Called on the main thread when the {@link Publisher} signals an error. The subscription is
+     * over at this point.
+     */
+    protected void onStreamError(@NonNull Throwable throwable) {}
+
+    /**
+     * Called on the main thread once the {@link Publisher} has completed and all its items have
+     * been appended to this {@link Section}.
+     */
+    protected void onStreamComplete() {}
+
+    /**
+     * Appends all received items to this {@link Section} in a single range insertion and
+     * replenishes the demand for as many items.
+     */
+    private void flush() {
+        isFlushScheduled.set(false);
+        List<Data> items = new ArrayList<>();
+        Data item;
+        while ((item = receivedItems.poll()) != null) {
+            items.add(item);
+        }
+        if (!items.isEmpty()) {
+            addAll(items);
+        }
+        if (isComplete) {
+            subscription = null;
+            stopObservingScroll();
+            onStreamComplete();
+            return;
+        }
+        updatePausedState();
+        request(items.size());
+    }
+
+    /**
+     * Signals demand for {@param n} items, or withholds it if the stream is paused.
+     */
+    private void request(long n) {
+        Subscription subscription = this.subscription;
+        if (subscription == null || n <= 0) {
+            return;
+        }
+        if (isPaused) {
+            withheldDemand += n;
+        } else {
+            subscription.request(n);
+        }
+    }
+
+    private void updatePausedState() {
+        if (subscription == null) {
+            return;
+        }
+        SectionManager manager = getManager();
+        boolean isFarFromVisibleItems = manager != null
+                && manager.getDistanceFromVisibleItems(this) > pauseDistance;
+        boolean shouldPause = !isEnabled() || isFarFromVisibleItems;
+        if (isFarFromVisibleItems) {
+            // Scroll events are needed to notice when this Section comes close again
+            startObservingScroll(manager.getRecyclerView());
+        } else {
+            stopObservingScroll();
+        }
+        if (isPaused != shouldPause) {
+            isPaused = shouldPause;
+            if (!isPaused) {
+                long demand = withheldDemand;
+                withheldDemand = 0;
+                request(demand);
+            }
+        }
+    }
+
+    private void startObservingScroll(@Nullable RecyclerView recyclerView) {
+        if (recyclerView != null && scrollObservedRecyclerView != recyclerView) {
+            stopObservingScroll();
+            recyclerView.addOnScrollListener(scrollListener);
+            scrollObservedRecyclerView = recyclerView;
+        }
+    }
+
+    private void stopObservingScroll() {
+        if (scrollObservedRecyclerView != null) {
+            scrollObservedRecyclerView.removeOnScrollListener(scrollListener);
+            scrollObservedRecyclerView = null;
+        }
+    }
+
+    private class StreamSubscriber implements Subscriber<Data> {
+
+        @Override
+        public void onSubscribe(@NonNull final Subscription subscription) {
+            SectionExecutors.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (currentSubscriber != StreamSubscriber.this) {
+                        subscription.cancel();
+                        return;
+                    }
+                    StreamingSection.this.subscription = subscription;
+                    isPaused = false;
+                    updatePausedState();
+                    request(bufferSize);
+                }
+            });
+        }
+
+        @Override
+        public void onNext(@NonNull Data item) {
+            if (currentSubscriber != this) {
+                return;
+            }
+            receivedItems.offer(item);
+            if (isFlushScheduled.compareAndSet(false, true)) {
+                SectionExecutors.runOnMainThread(scheduleFlushRunnable);
+            }
+        }
+
+        @Override
+        public void onError(@NonNull final Throwable throwable) {
+            SectionExecutors.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (currentSubscriber != StreamSubscriber.this) {
+                        return;
+                    }
+                    currentSubscriber = null;
+                    subscription = null;
+                    stopObservingScroll();
+                    onStreamError(throwable);
+                }
+            });
+        }
+
+        @Override
+        public void onComplete() {
+            SectionExecutors.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (currentSubscriber != StreamSubscriber.this) {
+                        return;
+                    }
+                    isComplete = true;
+                    if (isFlushScheduled.compareAndSet(false, true)) {
+                        scheduleFlushRunnable.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.aashreys.sectioner;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class CursorSectionTest {
+
+    private static final Executor SYNCHRONOUS_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private TextCursorSection section;
+
+    private List<String> events;
+
+    @Before
+    public void setUp() {
+        section = new TextCursorSection();
+        section.setDiffExecutor(SYNCHRONOUS_EXECUTOR);
+        events = new ArrayList<>();
+        section.registerObserver(new SectionObserver<String>() {
+            @Override
+            public void onItemRangeInserted(
+                    @NonNull Section<String, ?> section,
+                    int positionStart,
+                    int itemCount
+            ) {
+                events.add("inserted " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(
+                    @NonNull Section<String, ?> section,
+                    int positionStart,
+                    int itemCount
+            ) {
+                events.add("removed " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(
+                    @NonNull Section<String, ?> section,
+                    int positionStart,
+                    int itemCount
+            ) {
+                events.add("changed " + positionStart + " " + itemCount);
+            }
+        });
+    }
+
+    @Test
+    public void firstCursorIsInserted() {
+        Cursor cursor = cursor(1, "a", 2, "b", 3, "c");
+        section.changeCursor(cursor);
+        ShadowLooper.runUiThreadTasks();
+
+        assertSame(cursor, section.getCursor());
+        assertEquals(Arrays.asList("inserted 0 3"), events);
+        assertContents("a", "b", "c");
+    }
+
+    @Test
+    public void cursorAfterFirstIsDiffed() {
+        Cursor first = cursor(1, "a", 2, "b", 3, "c");
+        section.changeCursor(first);
+        ShadowLooper.runUiThreadTasks();
+        events.clear();
+
+        section.changeCursor(cursor(1, "a", 2, "b", 3, "c", 4, "d"));
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(Arrays.asList("inserted 3 1"), events);
+        assertContents("a", "b", "c", "d");
+        assertTrue(first.isClosed());
+    }
+
+    @Test
+    public void changedRowIsReboundFromNewCursor() {
+        section.changeCursor(cursor(1, "a", 2, "b", 3, "c"));
+        ShadowLooper.runUiThreadTasks();
+        assertContents("a", "b", "c");
+        events.clear();
+
+        section.changeCursor(cursor(1, "a", 2, "B", 3, "c"));
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(Arrays.asList("changed 1 1"), events);
+        assertContents("a", "B", "c");
+    }
+
+    @Test
+    public void staleCursorIsClosedWithoutBeingInstalled() {
+        final List<Runnable> tasks = new ArrayList<>();
+        section.setDiffExecutor(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                tasks.add(command);
+            }
+        });
+        Cursor stale = cursor(1, "a");
+        Cursor latest = cursor(2, "b");
+        section.changeCursor(stale);
+        section.changeCursor(latest);
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).run();
+        }
+        ShadowLooper.runUiThreadTasks();
+
+        assertTrue(stale.isClosed());
+        assertFalse(latest.isClosed());
+        assertSame(latest, section.getCursor());
+        assertContents("b");
+    }
+
+    private void assertContents(String... texts) {
+        assertEquals(texts.length, section.size());
+        for (int i = 0; i < texts.length; i++) {
+            assertEquals(texts[i], section.get(i));
+        }
+    }
+
+    /**
+     * Returns a {@link Cursor} of alternating ids and texts.
+     */
+    private static Cursor cursor(Object... idsAndTexts) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"_id", "text"});
+        for (int i = 0; i < idsAndTexts.length; i += 2) {
+            cursor.addRow(new Object[]{idsAndTexts[i], idsAndTexts[i + 1]});
+        }
+        return cursor;
+    }
+
+    private static class TextCursorSection extends CursorSection<String, RecyclerView.ViewHolder> {
+
+        @NonNull
+        @Override
+        protected String readRow(@NonNull Cursor cursor) {
+            return cursor.getString(1);
+        }
+
+        @Override
+        protected void bindViewHolder(
+                RecyclerView.ViewHolder holder,
+                @NonNull String data,
+                int sectionPosition,
+                int adapterPosition
+        ) {}
+
+        @Override
+        protected int getRowHash(@NonNull Cursor cursor) {
+            return cursor.getString(1).hashCode();
+        }
+
+        @Override
+        protected RecyclerView.ViewHolder createViewHolder(ViewGroup parent) {
+            return null;
+        }
+    }
+}
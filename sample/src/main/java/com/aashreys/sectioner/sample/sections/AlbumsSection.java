@@ -25,7 +25,7 @@ public class AlbumsSection extends MultiItemSection<String, AlbumViewHolder> {
             int adapterPosition
     ) {
         holder.onBind(
-                dataList.get(sectionPosition),
+                get(sectionPosition),
                 "Pink Floyd",
                 sectionPosition,
                 adapterPosition
@@ -20,6 +20,6 @@ public class SongsSection extends MultiItemSection<String, SongViewHolder> {
 
     @Override
     protected void bindViewHolder(SongViewHolder holder, int sectionPosition, int adapterPosition) {
-        holder.onBind(dataList.get(sectionPosition), sectionPosition, adapterPosition);
+        holder.onBind(get(sectionPosition), sectionPosition, adapterPosition);
     }
 }